@@ -0,0 +1,175 @@
+package com.giou.minimapview.utils;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Counting, coalescing and removing on the channel's lanes. Runs on a device,
+ * the lanes are Handlers.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LaneTest {
+
+    private static final int WHAT_STATE = 1;
+    private static final int WHAT_EVENT = 2;
+
+    private HandlerThread mThread;
+    private Handler mThreadHandler;
+    private AndroidChannel.Lane mLane;
+    private final List<String> mHandled = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws Exception {
+        mThread = new HandlerThread("lane-test");
+        mThread.start();
+        mThreadHandler = new Handler(mThread.getLooper());
+        mLane = new AndroidChannel.Lane(mThread.getLooper(), new Handler.Callback() {
+            @Override
+            public boolean handleMessage(Message msg) {
+                mHandled.add(msg.what + ":" + msg.arg1 + ":" + msg.obj);
+                return true;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mThread.quit();
+    }
+
+    // Hold the lane's thread until the returned gate opens, so messages stay queued.
+    private CountDownLatch block() throws InterruptedException {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        mThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        return gate;
+    }
+
+    // Wait until everything queued on the lane's thread so far is handled.
+    private void drain() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        mThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void coalescedSendsUpdateThePendingMessage() throws Exception {
+        CountDownLatch gate = block();
+        assertTrue(mLane.coalesce(WHAT_STATE, 1, 0, "a", null));
+        assertTrue(mLane.coalesce(WHAT_STATE, 2, 0, "b", null));
+        assertTrue(mLane.coalesce(WHAT_STATE, 3, 0, "c", null));
+        assertEquals(1, mLane.getDepth());
+        assertEquals(2, mLane.getCoalescedCount());
+
+        gate.countDown();
+        drain();
+        assertEquals(Arrays.asList("1:3:c"), mHandled);
+        assertEquals(0, mLane.getDepth());
+
+        // Once handled, the next one is queued again.
+        gate = block();
+        mLane.coalesce(WHAT_STATE, 4, 0, "d", null);
+        assertEquals(1, mLane.getDepth());
+        assertEquals(2, mLane.getCoalescedCount());
+        gate.countDown();
+        drain();
+        assertEquals(Arrays.asList("1:3:c", "1:4:d"), mHandled);
+    }
+
+    @Test
+    public void mergerCombinesThePayloads() throws Exception {
+        AndroidChannel.Merger sum = new AndroidChannel.Merger() {
+            @Override
+            public Object merge(int what, Object pending, Object update) {
+                return (Integer) pending + (Integer) update;
+            }
+        };
+        CountDownLatch gate = block();
+        mLane.coalesce(WHAT_STATE, 0, 0, 1, sum);
+        mLane.coalesce(WHAT_STATE, 0, 0, 2, sum);
+        mLane.coalesce(WHAT_STATE, 0, 0, 3, sum);
+
+        gate.countDown();
+        drain();
+        assertEquals(Arrays.asList("1:0:6"), mHandled);
+    }
+
+    @Test
+    public void sendsAreCountedPerWhat() throws Exception {
+        CountDownLatch gate = block();
+        mLane.send(WHAT_EVENT, 1, 0, null);
+        mLane.send(WHAT_EVENT, 2, 0, null);
+        mLane.coalesce(WHAT_STATE, 3, 0, null, null);
+        assertEquals(3, mLane.getDepth());
+
+        mLane.remove(WHAT_EVENT);
+        assertEquals(1, mLane.getDepth());
+
+        gate.countDown();
+        drain();
+        assertEquals(Arrays.asList("1:3:null"), mHandled);
+        assertEquals(0, mLane.getDepth());
+    }
+
+    @Test
+    public void removedCoalescedMessageIsNotUpdated() throws Exception {
+        CountDownLatch gate = block();
+        mLane.coalesce(WHAT_STATE, 1, 0, null, null);
+        mLane.remove(WHAT_STATE);
+        assertEquals(0, mLane.getDepth());
+
+        // Queued anew instead of updating the removed one.
+        mLane.coalesce(WHAT_STATE, 2, 0, null, null);
+        assertEquals(1, mLane.getDepth());
+        assertEquals(0, mLane.getCoalescedCount());
+
+        gate.countDown();
+        drain();
+        assertEquals(Arrays.asList("1:2:null"), mHandled);
+    }
+
+    @Test
+    public void removeAllEmptiesTheLane() throws Exception {
+        CountDownLatch gate = block();
+        mLane.send(WHAT_EVENT, 1, 0, null);
+        mLane.coalesce(WHAT_STATE, 2, 0, null, null);
+        mLane.removeAll();
+        assertEquals(0, mLane.getDepth());
+
+        gate.countDown();
+        drain();
+        assertTrue(mHandled.isEmpty());
+    }
+}
@@ -0,0 +1,202 @@
+package com.giou.minimapview.utils;
+
+import android.os.Message;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ordering, coalescing, closing and fairness of the lanes opened with
+ * AndroidChannel.openLane(), on an executor the test runs by hand. Runs on a
+ * device, the lanes queue android Messages.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WorkerLaneTest {
+
+    private static final int WHAT_STATE = 1;
+    private static final int WHAT_EVENT = 2;
+
+    /**
+     * Queues the lanes' runs until the test runs them.
+     */
+    private static class ManualExecutor implements Executor {
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        synchronized int size() {
+            return mTasks.size();
+        }
+
+        void runNext() {
+            Runnable task;
+            synchronized (this) {
+                task = mTasks.poll();
+            }
+            task.run();
+        }
+
+        void runAll() {
+            while (size() > 0) {
+                runNext();
+            }
+        }
+    }
+
+    private final ManualExecutor mExecutor = new ManualExecutor();
+    private final List<String> mHandled = new ArrayList<>();
+
+    private AndroidChannel.WorkerLane createLane(final String name) {
+        return new AndroidChannel.WorkerLane(name, LanePool.PRIORITY_BACKGROUND, mExecutor,
+                new AndroidChannel.WorkerCallback() {
+                    @Override
+                    public boolean handleWorkerMessage(Message msg) {
+                        mHandled.add(name + ":" + msg.what + ":" + msg.arg1);
+                        return true;
+                    }
+                });
+    }
+
+    @Test
+    public void messagesAreHandledInOrder() throws Exception {
+        AndroidChannel.WorkerLane lane = createLane("a");
+        for (int loopi = 0; loopi < 5; loopi++) {
+            assertTrue(lane.send(WHAT_EVENT, loopi, 0, null));
+        }
+        assertEquals(5, lane.getQueueDepth());
+        // One run scheduled however many messages wait.
+        assertEquals(1, mExecutor.size());
+
+        mExecutor.runAll();
+        assertEquals(Arrays.asList("a:2:0", "a:2:1", "a:2:2", "a:2:3", "a:2:4"), mHandled);
+        assertEquals(0, lane.getQueueDepth());
+    }
+
+    @Test
+    public void coalescedSendsKeepTheirPlace() throws Exception {
+        AndroidChannel.WorkerLane lane = createLane("a");
+        lane.send(WHAT_EVENT, 1, 0, null);
+        lane.coalesce(WHAT_STATE, 2, 0, null, null);
+        lane.send(WHAT_EVENT, 3, 0, null);
+        lane.coalesce(WHAT_STATE, 4, 0, null, null);
+        assertEquals(3, lane.getQueueDepth());
+        assertEquals(1, lane.getCoalescedCount());
+
+        mExecutor.runAll();
+        assertEquals(Arrays.asList("a:2:1", "a:1:4", "a:2:3"), mHandled);
+
+        // Once handled, the next one is queued again.
+        lane.coalesce(WHAT_STATE, 5, 0, null, null);
+        assertEquals(1, lane.getQueueDepth());
+        mExecutor.runAll();
+        assertEquals("a:1:5", mHandled.get(3));
+    }
+
+    @Test
+    public void mergerCombinesThePayloads() throws Exception {
+        final List<Object> payloads = new ArrayList<>();
+        AndroidChannel.WorkerLane lane = new AndroidChannel.WorkerLane("a", LanePool.PRIORITY_BACKGROUND,
+                mExecutor, new AndroidChannel.WorkerCallback() {
+                    @Override
+                    public boolean handleWorkerMessage(Message msg) {
+                        payloads.add(msg.obj);
+                        return true;
+                    }
+                });
+        AndroidChannel.Merger sum = new AndroidChannel.Merger() {
+            @Override
+            public Object merge(int what, Object pending, Object update) {
+                return (Integer) pending + (Integer) update;
+            }
+        };
+        lane.coalesce(WHAT_STATE, 0, 0, 1, sum);
+        lane.coalesce(WHAT_STATE, 0, 0, 2, sum);
+        lane.coalesce(WHAT_STATE, 0, 0, 3, sum);
+
+        mExecutor.runAll();
+        assertEquals(Arrays.<Object>asList(6), payloads);
+    }
+
+    @Test
+    public void removeDropsOneWhat() throws Exception {
+        AndroidChannel.WorkerLane lane = createLane("a");
+        lane.send(WHAT_EVENT, 1, 0, null);
+        lane.coalesce(WHAT_STATE, 2, 0, null, null);
+        lane.send(WHAT_EVENT, 3, 0, null);
+        lane.remove(WHAT_STATE);
+        assertEquals(2, lane.getQueueDepth());
+
+        // Queued anew instead of updating the removed one.
+        lane.coalesce(WHAT_STATE, 4, 0, null, null);
+        mExecutor.runAll();
+        assertEquals(Arrays.asList("a:2:1", "a:2:3", "a:1:4"), mHandled);
+    }
+
+    @Test
+    public void closeDropsQueuedMessagesAndRefusesNewOnes() throws Exception {
+        AndroidChannel.WorkerLane lane = createLane("a");
+        lane.send(WHAT_EVENT, 1, 0, null);
+        lane.coalesce(WHAT_STATE, 2, 0, null, null);
+        lane.close();
+        assertEquals(0, lane.getQueueDepth());
+        assertFalse(lane.send(WHAT_EVENT, 3, 0, null));
+        assertFalse(lane.coalesce(WHAT_STATE, 4, 0, null, null));
+
+        mExecutor.runAll();
+        assertTrue(mHandled.isEmpty());
+    }
+
+    @Test
+    public void closeWhileHandlingFinishesTheMessage() throws Exception {
+        final AndroidChannel.WorkerLane[] lane = new AndroidChannel.WorkerLane[1];
+        lane[0] = new AndroidChannel.WorkerLane("a", LanePool.PRIORITY_BACKGROUND, mExecutor,
+                new AndroidChannel.WorkerCallback() {
+                    @Override
+                    public boolean handleWorkerMessage(Message msg) {
+                        lane[0].close();
+                        mHandled.add("a:" + msg.what + ":" + msg.arg1);
+                        return true;
+                    }
+                });
+        lane[0].send(WHAT_EVENT, 1, 0, null);
+        lane[0].send(WHAT_EVENT, 2, 0, null);
+
+        mExecutor.runAll();
+        assertEquals(Arrays.asList("a:2:1"), mHandled);
+    }
+
+    @Test
+    public void busyLaneLetsTheOthersRun() throws Exception {
+        AndroidChannel.WorkerLane busy = createLane("busy");
+        AndroidChannel.WorkerLane other = createLane("other");
+        for (int loopi = 0; loopi < 40; loopi++) {
+            busy.send(WHAT_EVENT, loopi, 0, null);
+        }
+        other.send(WHAT_EVENT, 0, 0, null);
+
+        // The busy lane hands its thread back after a batch and queues up
+        // again behind the other lane.
+        mExecutor.runNext();
+        assertEquals(16, mHandled.size());
+        assertEquals(24, busy.getQueueDepth());
+        mExecutor.runNext();
+        assertEquals("other:2:0", mHandled.get(16));
+
+        mExecutor.runAll();
+        assertEquals(41, mHandled.size());
+        assertEquals("busy:2:39", mHandled.get(40));
+        assertEquals(0, busy.getQueueDepth());
+    }
+}
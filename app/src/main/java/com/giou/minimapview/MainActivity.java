@@ -4,13 +4,29 @@ import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 
 import com.giou.minimapview.utils.Timer;
+import com.giou.minimapview.view.MiniMapGLView;
 import com.giou.minimapview.view.MiniMapView;
+import com.giou.minimapview.view.RiderLoadGenerator;
 
 public class MainActivity extends AppCompatActivity {
 
+    // Draw the route with OpenGL ES 2.0 instead of the Canvas.
+    private static final boolean USE_GL_RENDERER = false;
+
     private final String TAG = MainActivity.class.getSimpleName();
     private String objUrl = "multiPerson/bike.obj";
     private MiniMapView mMiniMapView;
+    private MiniMapGLView mMiniMapGLView;
+
+    // Synthetic riders publishing their positions from worker threads, for
+    // load testing the telemetry. They only run while the activity is resumed.
+    private static final boolean SHOW_DEMO_RIDERS = false;
+    private static final int DEMO_RIDER_COUNT = 200;
+    private static final int DEMO_RIDER_RATE_HZ = 20;
+    private static final int DEMO_RIDER_GROUPS = 2;
+    private static final float DEMO_LAP_SECONDS = 60f;
+    private RiderLoadGenerator mRiderLoadGenerator;
+    private boolean mResumed;
 
     private Timer mTimer = new Timer(600, new Timer.OnTimer() {
         @Override
@@ -23,12 +39,84 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
-        mMiniMapView = (MiniMapView) findViewById(R.id.mini_map_view);
+        if (USE_GL_RENDERER) {
+            setContentView(R.layout.activity_main_gl);
+            mMiniMapGLView = (MiniMapGLView) findViewById(R.id.mini_map_gl_view);
+
+            mMiniMapGLView.loadObjFileAsync(objUrl);
+        } else {
+            setContentView(R.layout.activity_main);
+            mMiniMapView = (MiniMapView) findViewById(R.id.mini_map_view);
+            mMiniMapView.setOnRouteLoadListener(new MiniMapView.OnRouteLoadListener() {
+                @Override
+                public void onLoadProgress(float progress) {
+
+                }
+
+                @Override
+                public void onLoadComplete(int vertexCount) {
+                    if (SHOW_DEMO_RIDERS) {
+                        startDemoRiders();
+                    }
+                }
+
+                @Override
+                public void onLoadFailed(Exception e) {
+
+                }
+            });
+
+            mMiniMapView.loadObjFileAsync(objUrl);
+        }
 
-        mMiniMapView.loadObjFile(objUrl);
 
+    }
 
+    // Riders of the route loaded before are replaced.
+    private void startDemoRiders() {
+        if (mRiderLoadGenerator != null) {
+            mRiderLoadGenerator.stop();
+        }
+        for (int loopi = 0; loopi < DEMO_RIDER_COUNT; loopi++) {
+            mMiniMapView.setRider(loopi, loopi + 1, "user" + (loopi + 1));
+        }
+        mRiderLoadGenerator = new RiderLoadGenerator(mMiniMapView.getTelemetry(), DEMO_RIDER_COUNT,
+                DEMO_RIDER_RATE_HZ, DEMO_RIDER_GROUPS, mMiniMapView.getRouteLength(), DEMO_LAP_SECONDS);
+        if (mResumed) {
+            mRiderLoadGenerator.start();
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mResumed = true;
+        if (mMiniMapGLView != null) {
+            mMiniMapGLView.onResume();
+        }
+        if (mRiderLoadGenerator != null) {
+            mRiderLoadGenerator.start();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        mResumed = false;
+        if (mRiderLoadGenerator != null) {
+            mRiderLoadGenerator.stop();
+        }
+        if (mMiniMapGLView != null) {
+            mMiniMapGLView.onPause();
+        }
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (mRiderLoadGenerator != null) {
+            mRiderLoadGenerator.stop();
+        }
+        super.onDestroy();
     }
 
 }
@@ -0,0 +1,86 @@
+package com.giou.minimapview.objparser;
+
+import android.content.res.AssetManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Description: OBJ file in the app assets. Lives in the app, the parser
+ * library itself knows nothing about Android. Assets only change with the
+ * app, so the length and stamp are worked out once per source.
+ */
+public class AssetSource implements ObjSource {
+
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final AssetManager mAssets;
+    private final String mPath;
+
+    private long mLength = UNKNOWN;
+    private long mStamp;
+
+    /**
+     * Stamped by a checksum of the content, read once on first use.
+     */
+    public AssetSource(AssetManager assets, String path) {
+        this(assets, path, UNKNOWN);
+    }
+
+    /**
+     * @param stamp     changes whenever the assets may have, e.g. the
+     *                  PackageInfo.lastUpdateTime of the app
+     */
+    public AssetSource(AssetManager assets, String path, long stamp) {
+        mAssets = assets;
+        mPath = path;
+        mStamp = stamp;
+    }
+
+    @Override
+    public String getName() {
+        return mPath;
+    }
+
+    @Override
+    public long getLength() throws IOException {
+        if (mLength == UNKNOWN) {
+            InputStream inputStream = mAssets.open(mPath);
+            try {
+                // The remaining length of an asset, uncompressed.
+                mLength = inputStream.available();
+            } finally {
+                inputStream.close();
+            }
+        }
+        return mLength;
+    }
+
+    @Override
+    public long getStamp() throws IOException {
+        if (mStamp == UNKNOWN) {
+            // Assets have no modification time, key them by content instead.
+            mStamp = RouteCache.checksum(mAssets.open(mPath));
+        }
+        return mStamp;
+    }
+
+    @Override
+    public void readLines(ObjLineReader reader, ObjLineReader.LineHandler handler) throws IOException {
+        reader.readStream(mAssets.open(mPath), handler);
+    }
+
+    @Override
+    public ObjSource resolve(String name) {
+        int slash = mPath.lastIndexOf('/');
+        String path = slash < 0 ? name : mPath.substring(0, slash + 1) + name;
+        return mStamp == UNKNOWN ? new AssetSource(mAssets, path) : new AssetSource(mAssets, path, mStamp);
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+        // Assets are usually compressed in the apk, there is nothing to map.
+        return null;
+    }
+}
@@ -4,6 +4,14 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
+import android.os.Process;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
 
 /**
  * Created by liuenbao on 1/23/16.
@@ -18,6 +26,14 @@ public class AndroidChannel {
         boolean handleWorkerMessage(Message msg);
     }
 
+    /**
+     * Folds the payload of a coalesced send into the one still pending, e.g. to
+     * sum up counts instead of keeping only the latest.
+     */
+    public interface Merger {
+        Object merge(int what, Object pending, Object update);
+    }
+
     HandlerThread mWorkerThread            = null;
 
     Handler mMainThreadHandler       = null;
@@ -28,10 +44,27 @@ public class AndroidChannel {
 
     boolean mIsChannelOpened                 = false;
 
+    // The channel's own send methods go through these, so they can count and
+    // coalesce, the raw toUI()/toWorker() handlers bypass them.
+    volatile Lane mUiLane                    = null;
+    volatile Lane mWorkerLane                = null;
+
+    // Lanes opened with openLane(), closed with the channel.
+    final ArrayList<WorkerLane> mWorkerLanes = new ArrayList<>();
+
+    /**
+     * Create and open a channel without a worker thread, for users that do
+     * their work on lanes, see openLane().
+     * @param uiCallback        handler callback for ui messages
+     */
+    public AndroidChannel(final UiCallback uiCallback) {
+        this(uiCallback, null);
+    }
+
     /**
      * Create channel and open channel
      * @param uiCallback        handler callback for ui messages
-     * @param workerCallback    handler callback for worker messages
+     * @param workerCallback    handler callback for worker messages, null for no worker thread
      */
     public AndroidChannel(final UiCallback uiCallback, final WorkerCallback workerCallback) {
 
@@ -51,7 +84,7 @@ public class AndroidChannel {
 
     /**
      * To send message to worker thread, You should get workerThreadHandler by using toWorker() method
-     * @return worker thread handler
+     * @return worker thread handler, null if the channel has no worker thread
      */
     public Handler toWorker() {
         return mWorkerThreadHandler;
@@ -67,7 +100,7 @@ public class AndroidChannel {
             return true;
         }
 
-        if(mUiCallback == null || mWorkerCallback == null)
+        if(mUiCallback == null)
             return false;
 
         mMainThreadHandler = new Handler(Looper.getMainLooper(), new Handler.Callback() {
@@ -77,35 +110,426 @@ public class AndroidChannel {
             }
         });
 
-        mWorkerThread = new HandlerThread("channel-worker-thread");
-        mWorkerThread.start();
-        mWorkerThreadHandler = new Handler(mWorkerThread.getLooper(), new Handler.Callback() {
+        mUiLane = new Lane(Looper.getMainLooper(), new Handler.Callback() {
             @Override
             public boolean handleMessage(Message msg) {
-                return mWorkerCallback.handleWorkerMessage(msg);
+                return mUiCallback.handleUiMessage(msg);
             }
         });
 
+        if(mWorkerCallback != null) {
+            mWorkerThread = new HandlerThread("channel-worker-thread", Process.THREAD_PRIORITY_BACKGROUND);
+            mWorkerThread.start();
+            mWorkerThreadHandler = new Handler(mWorkerThread.getLooper(), new Handler.Callback() {
+                @Override
+                public boolean handleMessage(Message msg) {
+                    return mWorkerCallback.handleWorkerMessage(msg);
+                }
+            });
+            mWorkerLane = new Lane(mWorkerThread.getLooper(), new Handler.Callback() {
+                @Override
+                public boolean handleMessage(Message msg) {
+                    return mWorkerCallback.handleWorkerMessage(msg);
+                }
+            });
+        }
+
         mIsChannelOpened = true;
         return true;
     }
 
+    /**
+     * Open a named lane for work that shouldn't wait behind the worker thread.
+     * Its messages are handled one at a time and in order, on a LanePool thread
+     * of the given priority shared with every other lane of that priority.
+     * @param priority  LanePool.PRIORITY_INTERACTIVE or PRIORITY_BACKGROUND
+     */
+    public WorkerLane openLane(String name, int priority, WorkerCallback callback) {
+        WorkerLane lane = new WorkerLane(name, priority, LanePool.getExecutor(priority), callback);
+        synchronized (mWorkerLanes) {
+            mWorkerLanes.add(lane);
+        }
+        return lane;
+    }
+
     /**
      * Close channel
      */
     public void close() {
+        synchronized (mWorkerLanes) {
+            for (WorkerLane lane : mWorkerLanes) {
+                lane.close();
+            }
+            mWorkerLanes.clear();
+        }
+
         if(mIsChannelOpened == false)
             return;
 
         mMainThreadHandler.removeCallbacksAndMessages(null);
-        mWorkerThreadHandler.removeCallbacksAndMessages(null);
+        mUiLane.removeAll();
+        mUiLane = null;
 
-        mWorkerThread.quit();
-        mWorkerThread = null;
+        if(mWorkerThread != null) {
+            mWorkerThreadHandler.removeCallbacksAndMessages(null);
+            mWorkerLane.removeAll();
+            mWorkerLane = null;
+
+            mWorkerThread.quit();
+            mWorkerThread = null;
+        }
 
         mWorkerThreadHandler = null;
         mMainThreadHandler = null;
 
         mIsChannelOpened = false;
     }
+
+    /**
+     * Send a message to the ui thread, counted in getUIQueueDepth().
+     * @return false if the channel is closed
+     */
+    public boolean sendToUI(int what, int arg1, int arg2, Object obj) {
+        Lane lane = mUiLane;
+        return lane != null && lane.send(what, arg1, arg2, obj);
+    }
+
+    /**
+     * Send a message to the worker thread, counted in getWorkerQueueDepth().
+     * @return false if the channel is closed or has no worker thread
+     */
+    public boolean sendToWorker(int what, int arg1, int arg2, Object obj) {
+        Lane lane = mWorkerLane;
+        return lane != null && lane.send(what, arg1, arg2, obj);
+    }
+
+    /**
+     * Send to the ui thread unless a coalesced message with the same what is
+     * still pending, then replace its args and payload instead. A slow ui
+     * thread so gets the latest state once rather than every step of it.
+     * @return false if the channel is closed
+     */
+    public boolean coalesceToUI(int what, int arg1, int arg2, Object obj) {
+        return coalesceToUI(what, arg1, arg2, obj, null);
+    }
+
+    /**
+     * @param merger    combines the pending payload with obj, null to replace it
+     */
+    public boolean coalesceToUI(int what, int arg1, int arg2, Object obj, Merger merger) {
+        Lane lane = mUiLane;
+        return lane != null && lane.coalesce(what, arg1, arg2, obj, merger);
+    }
+
+    /**
+     * Like coalesceToUI(), stale work for the worker is replaced by the latest.
+     */
+    public boolean coalesceToWorker(int what, int arg1, int arg2, Object obj) {
+        return coalesceToWorker(what, arg1, arg2, obj, null);
+    }
+
+    public boolean coalesceToWorker(int what, int arg1, int arg2, Object obj, Merger merger) {
+        Lane lane = mWorkerLane;
+        return lane != null && lane.coalesce(what, arg1, arg2, obj, merger);
+    }
+
+    /**
+     * Drop pending messages with what sent or coalesced through the channel.
+     */
+    public void removeUIMessages(int what) {
+        Lane lane = mUiLane;
+        if (lane != null) {
+            lane.remove(what);
+        }
+    }
+
+    public void removeWorkerMessages(int what) {
+        Lane lane = mWorkerLane;
+        if (lane != null) {
+            lane.remove(what);
+        }
+    }
+
+    /**
+     * Drop every pending message sent or coalesced through the channel.
+     */
+    public void removeAllUIMessages() {
+        Lane lane = mUiLane;
+        if (lane != null) {
+            lane.removeAll();
+        }
+    }
+
+    public void removeAllWorkerMessages() {
+        Lane lane = mWorkerLane;
+        if (lane != null) {
+            lane.removeAll();
+        }
+    }
+
+    /**
+     * @return messages sent or coalesced to the ui thread and not handled yet
+     */
+    public int getUIQueueDepth() {
+        Lane lane = mUiLane;
+        return lane != null ? lane.getDepth() : 0;
+    }
+
+    /**
+     * @return messages sent or coalesced to the worker thread and not handled yet
+     */
+    public int getWorkerQueueDepth() {
+        Lane lane = mWorkerLane;
+        return lane != null ? lane.getDepth() : 0;
+    }
+
+    /**
+     * @return sends folded into a pending message instead of queued, both ways
+     */
+    public long getCoalescedCount() {
+        Lane uiLane = mUiLane;
+        Lane workerLane = mWorkerLane;
+        return (uiLane != null ? uiLane.getCoalescedCount() : 0)
+                + (workerLane != null ? workerLane.getCoalescedCount() : 0);
+    }
+
+    /**
+     * A handler that knows how many of its messages are queued, per what, and
+     * keeps the pending coalesced message of every what so later sends can
+     * update it where it sits in the queue.
+     */
+    static class Lane extends Handler {
+
+        private final Handler.Callback mCallback;
+
+        // All guarded by this.
+        private final SparseArray<Message> mPending = new SparseArray<>();
+        private final SparseIntArray mCounts = new SparseIntArray();
+        private int mDepth;
+        private long mCoalesced;
+
+        Lane(Looper looper, Handler.Callback callback) {
+            super(looper);
+            mCallback = callback;
+        }
+
+        synchronized boolean send(int what, int arg1, int arg2, Object obj) {
+            if (!sendMessage(obtainMessage(what, arg1, arg2, obj))) {
+                return false;
+            }
+            queued(what);
+            return true;
+        }
+
+        synchronized boolean coalesce(int what, int arg1, int arg2, Object obj, Merger merger) {
+            Message pending = mPending.get(what);
+            if (pending != null) {
+                // Still queued, handleMessage() takes it out of mPending
+                // before it reads the fields.
+                pending.arg1 = arg1;
+                pending.arg2 = arg2;
+                pending.obj = merger != null ? merger.merge(what, pending.obj, obj) : obj;
+                mCoalesced++;
+                return true;
+            }
+            Message message = obtainMessage(what, arg1, arg2, obj);
+            if (!sendMessage(message)) {
+                return false;
+            }
+            mPending.put(what, message);
+            queued(what);
+            return true;
+        }
+
+        private void queued(int what) {
+            mCounts.put(what, mCounts.get(what) + 1);
+            mDepth++;
+        }
+
+        synchronized void remove(int what) {
+            removeMessages(what);
+            mPending.remove(what);
+            mDepth -= mCounts.get(what);
+            mCounts.delete(what);
+        }
+
+        synchronized void removeAll() {
+            removeCallbacksAndMessages(null);
+            mPending.clear();
+            mCounts.clear();
+            mDepth = 0;
+        }
+
+        synchronized int getDepth() {
+            return mDepth;
+        }
+
+        synchronized long getCoalescedCount() {
+            return mCoalesced;
+        }
+
+        @Override
+        public void handleMessage(Message msg) {
+            synchronized (this) {
+                if (mPending.get(msg.what) == msg) {
+                    mPending.remove(msg.what);
+                }
+                int count = mCounts.get(msg.what);
+                if (count > 0) {
+                    mCounts.put(msg.what, count - 1);
+                    mDepth--;
+                }
+            }
+            mCallback.handleMessage(msg);
+        }
+    }
+
+    /**
+     * Serial work on a shared pool thread, see openLane(). Sending, coalescing
+     * and the queue depth work as on the channel's own lanes.
+     */
+    public static class WorkerLane implements Runnable {
+
+        // Messages handled before the lane goes to the back of the pool's queue,
+        // so one busy lane can't keep a thread from the others.
+        private static final int MAX_MESSAGES_PER_RUN = 16;
+
+        private final String mName;
+        private final int mPriority;
+        private final Executor mExecutor;
+        private final WorkerCallback mCallback;
+
+        // All guarded by this.
+        private final ArrayDeque<Message> mQueue = new ArrayDeque<>();
+        private final SparseArray<Message> mPending = new SparseArray<>();
+        private boolean mScheduled;
+        private boolean mClosed;
+        private long mCoalesced;
+
+        WorkerLane(String name, int priority, Executor executor, WorkerCallback callback) {
+            mName = name;
+            mPriority = priority;
+            mExecutor = executor;
+            mCallback = callback;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public int getPriority() {
+            return mPriority;
+        }
+
+        /**
+         * @return false if the lane is closed
+         */
+        public synchronized boolean send(int what, int arg1, int arg2, Object obj) {
+            if (mClosed) {
+                return false;
+            }
+            mQueue.add(Message.obtain(null, what, arg1, arg2, obj));
+            schedule();
+            return true;
+        }
+
+        /**
+         * Like AndroidChannel.coalesceToWorker().
+         * @param merger    combines the pending payload with obj, null to replace it
+         */
+        public synchronized boolean coalesce(int what, int arg1, int arg2, Object obj, Merger merger) {
+            if (mClosed) {
+                return false;
+            }
+            Message pending = mPending.get(what);
+            if (pending != null) {
+                pending.arg1 = arg1;
+                pending.arg2 = arg2;
+                pending.obj = merger != null ? merger.merge(what, pending.obj, obj) : obj;
+                mCoalesced++;
+                return true;
+            }
+            Message message = Message.obtain(null, what, arg1, arg2, obj);
+            mQueue.add(message);
+            mPending.put(what, message);
+            schedule();
+            return true;
+        }
+
+        public synchronized void remove(int what) {
+            Iterator<Message> messages = mQueue.iterator();
+            while (messages.hasNext()) {
+                Message message = messages.next();
+                if (message.what == what) {
+                    messages.remove();
+                    message.recycle();
+                }
+            }
+            mPending.remove(what);
+        }
+
+        public synchronized void removeAll() {
+            for (Message message : mQueue) {
+                message.recycle();
+            }
+            mQueue.clear();
+            mPending.clear();
+        }
+
+        public synchronized int getQueueDepth() {
+            return mQueue.size();
+        }
+
+        public synchronized long getCoalescedCount() {
+            return mCoalesced;
+        }
+
+        /**
+         * Drop the queued messages and refuse new ones, a message being handled
+         * finishes.
+         */
+        public synchronized void close() {
+            mClosed = true;
+            removeAll();
+        }
+
+        private void schedule() {
+            if (!mScheduled) {
+                mScheduled = true;
+                mExecutor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int loopi = 0; loopi < MAX_MESSAGES_PER_RUN; loopi++) {
+                    Message message;
+                    synchronized (this) {
+                        message = mQueue.poll();
+                        if (message == null) {
+                            return;
+                        }
+                        // From here on coalesce() must not touch it.
+                        if (mPending.get(message.what) == message) {
+                            mPending.remove(message.what);
+                        }
+                    }
+                    try {
+                        mCallback.handleWorkerMessage(message);
+                    } finally {
+                        message.recycle();
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    if (mQueue.isEmpty()) {
+                        mScheduled = false;
+                    } else {
+                        mExecutor.execute(this);
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,64 @@
+package com.giou.minimapview.utils;
+
+import android.view.Choreographer;
+
+/**
+ * Description: Runs a callback on vsync aligned Choreographer frames for as long
+ * as it has something to animate, then stops scheduling until requestFrame() is
+ * called again. Any number of requests between two frames make one frame.
+ * Must be used on the ui thread.
+ */
+public class FrameScheduler {
+
+    public interface OnFrameListener {
+        /**
+         * @param frameTimeNanos    start of the frame, in System.nanoTime() time
+         * @return true to get the next frame as well, false to go idle
+         */
+        boolean onFrame(long frameTimeNanos);
+    }
+
+    private final Choreographer mChoreographer;
+    private final OnFrameListener mListener;
+
+    private boolean mFramePending;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFramePending = false;
+            if (mListener.onFrame(frameTimeNanos)) {
+                requestFrame();
+            }
+        }
+    };
+
+    public FrameScheduler(OnFrameListener listener) {
+        mChoreographer = Choreographer.getInstance();
+        mListener = listener;
+    }
+
+    /**
+     * Call the listener on the next frame, if that isn't already scheduled.
+     */
+    public void requestFrame() {
+        if (!mFramePending) {
+            mFramePending = true;
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * Drop a scheduled frame, e.g. when the view goes away.
+     */
+    public void cancel() {
+        if (mFramePending) {
+            mFramePending = false;
+            mChoreographer.removeFrameCallback(mFrameCallback);
+        }
+    }
+
+    public boolean isFramePending() {
+        return mFramePending;
+    }
+}
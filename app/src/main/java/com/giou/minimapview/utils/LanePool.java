@@ -0,0 +1,88 @@
+package com.giou.minimapview.utils;
+
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: The threads behind every AndroidChannel lane, one small bounded
+ * pool per priority shared by the whole process. Background work can't take
+ * the threads of interactive work, the thread count stays fixed however many
+ * channels and lanes there are, and idle threads exit after a while.
+ */
+public final class LanePool {
+
+    // Latency sensitive work the user waits for, e.g. telemetry for the next frame.
+    public static final int PRIORITY_INTERACTIVE = 0;
+    // Heavy work that may take its time, e.g. parsing and index building.
+    public static final int PRIORITY_BACKGROUND = 1;
+
+    private static final int INTERACTIVE_THREADS = 2;
+    private static final int MAX_BACKGROUND_THREADS = 4;
+    private static final int KEEP_ALIVE_SECONDS = 30;
+
+    private static ScheduledThreadPoolExecutor sInteractive;
+    private static ThreadPoolExecutor sBackground;
+
+    private LanePool() {
+    }
+
+    /**
+     * @param priority  PRIORITY_INTERACTIVE or PRIORITY_BACKGROUND
+     */
+    public static synchronized Executor getExecutor(int priority) {
+        if (priority == PRIORITY_INTERACTIVE) {
+            return getScheduler();
+        }
+        if (sBackground == null) {
+            // Leave a core to the ui and render threads.
+            int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, MAX_BACKGROUND_THREADS));
+            sBackground = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    createThreadFactory("lane-background-", Process.THREAD_PRIORITY_BACKGROUND));
+            sBackground.allowCoreThreadTimeOut(true);
+        }
+        return sBackground;
+    }
+
+    /**
+     * The interactive threads for periodic or delayed work, e.g. telemetry
+     * sources, instead of a timer thread of its own.
+     */
+    public static synchronized ScheduledExecutorService getScheduler() {
+        if (sInteractive == null) {
+            sInteractive = new ScheduledThreadPoolExecutor(INTERACTIVE_THREADS, createThreadFactory(
+                    "lane-interactive-", Process.THREAD_PRIORITY_DEFAULT + Process.THREAD_PRIORITY_MORE_FAVORABLE));
+            sInteractive.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            sInteractive.allowCoreThreadTimeOut(true);
+        }
+        return sInteractive;
+    }
+
+    private static ThreadFactory createThreadFactory(final String namePrefix, final int threadPriority) {
+        return new ThreadFactory() {
+
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(threadPriority);
+                        runnable.run();
+                    }
+                }, namePrefix + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -1,90 +1,79 @@
 package com.giou.minimapview.utils;
 
-import android.os.Message;
+import android.view.Choreographer;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by liuenbao on 1/23/16.
+ *
+ * Ticks on the ui thread every interval milliseconds. Ticks are Choreographer
+ * frame callbacks, so they are vsync aligned and need no thread of their own,
+ * and each deadline follows from the previous one instead of from when the
+ * tick ran, so the timer doesn't drift. Must be used on the ui thread.
  */
 public class Timer {
 
-    private final int START_TIMER = 0;
-    private final int STOP_TIMER  = 1;
-
-    private AndroidChannel mAndroidChannel;
-    private int mInterval=0;
+    private final Choreographer mChoreographer;
+    private int mInterval = 0;
     private OnTimer mOnTimer;
 
-    volatile  boolean loop = false;
+    private boolean mRunning = false;
+    private long mNextTickNanos;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRunning) {
+                return;
+            }
+            mOnTimer.onTime(Timer.this);
+
+            long intervalNanos = TimeUnit.MILLISECONDS.toNanos(mInterval);
+            mNextTickNanos += intervalNanos;
+            if (mNextTickNanos <= frameTimeNanos) {
+                // Fell behind, e.g. while the ui thread was blocked. Skip the
+                // missed ticks instead of running them back to back.
+                mNextTickNanos = frameTimeNanos + intervalNanos;
+            }
+            if (mRunning) {
+                scheduleTick();
+            }
+        }
+    };
 
     public Timer(int interval, OnTimer onTimer) {
         this.mInterval = (interval < 0) ? (interval*-1) : (interval);
         this.mOnTimer = onTimer;
+        mChoreographer = Choreographer.getInstance();
+    }
 
-        mAndroidChannel = new AndroidChannel(new AndroidChannel.UiCallback() {
-            @Override
-            public boolean handleUiMessage(Message msg) {
-                Timer.this.mOnTimer.onTime(Timer.this);
-                return false;
-            }
-        }, new AndroidChannel.WorkerCallback() {
-
-            Thread jobThread = null;
-
-            @Override
-            public boolean handleWorkerMessage(Message msg) {
-
-                switch (msg.what) {
-                    case START_TIMER:
-                        loop = true;
-                        break;
-                    case STOP_TIMER:
-                        loop = false;
-                        jobThread = null;
-                        break;
-                }
-
-                if(msg.what == START_TIMER && jobThread == null) {
-                    jobThread = new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            while (loop) {
-                                try {
-                                    Message msg = mAndroidChannel.toUI().obtainMessage();
-                                    mAndroidChannel.toUI().sendMessage(msg);
-                                    Thread.sleep(Timer.this.mInterval);
-                                } catch (InterruptedException e) {
-                                }
-                            }
-                        }
-                    });
-                }
-
-                switch (msg.what) {
-                    case START_TIMER:
-                        loop = true;
-                        jobThread.start();
-                        break;
-                    case STOP_TIMER:
-                        loop = false;
-                        jobThread = null;
-                        break;
-                }
-
-
-                return false;
-            }
-        });
-
+    // Wait for the frame at or after the next deadline.
+    private void scheduleTick() {
+        long delayMillis = TimeUnit.NANOSECONDS.toMillis(mNextTickNanos - System.nanoTime());
+        mChoreographer.postFrameCallbackDelayed(mFrameCallback, Math.max(delayMillis, 0));
     }
 
+    /**
+     * Tick on the next frame and every interval after.
+     */
     public void start() {
-        mAndroidChannel.toWorker().sendEmptyMessage(START_TIMER);
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mNextTickNanos = System.nanoTime();
+        scheduleTick();
     }
 
     public void stop() {
-        mAndroidChannel.toWorker().sendEmptyMessage(STOP_TIMER);
+        mRunning = false;
+        mChoreographer.removeFrameCallback(mFrameCallback);
     }
 
+    /**
+     * Takes effect from the tick after the next one.
+     */
     public void resetInterval(int interval) {
         this.mInterval = interval;
     }
@@ -94,7 +83,7 @@ public class Timer {
     }
 
     public boolean isAlive() {
-        return loop;
+        return mRunning;
     }
 
     public interface OnTimer {
@@ -0,0 +1,157 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.IntArray;
+
+/**
+ * Description: Splits OBJ faces into triangles by ear clipping, so concave
+ * outlines (venues, zones, buildings) fill correctly where a fan from the first
+ * vertex would spill over their edges. Each face is clipped in the plane its
+ * normal faces most, so walls work as well as floors. Convex faces come out as
+ * the same fan as before. Keeps its scratch buffers between faces, use one
+ * instance per thread. Faces are clipped as given: holes must already be
+ * bridged into the outline, and faces with no area come out as the fan.
+ */
+public class FaceTriangulator {
+
+    // The face projected on its plane, wound counterclockwise.
+    private float[] mX = new float[16];
+    private float[] mY = new float[16];
+    // The corners not clipped yet, as a ring.
+    private int[] mPrev = new int[16];
+    private int[] mNext = new int[16];
+
+    /**
+     * Triangulate the face indices[first .. end) and append the triangles to
+     * out, three vertex indices each, wound like the face.
+     * @param vertices  interleaved x,y,z
+     * @return the number of triangles added, end - first - 2 for any face of
+     *         three or more vertices
+     */
+    public int triangulate(float[] vertices, int[] indices, int first, int end, IntArray out) {
+        int count = end - first;
+        if (count < 3) {
+            return 0;
+        }
+        if (count == 3 || !project(vertices, indices, first, count)) {
+            // Nothing to clip, or no area to clip in.
+            for (int loopi = first + 1; loopi + 1 < end; loopi++) {
+                addTriangle(out, indices[first], indices[loopi], indices[loopi + 1]);
+            }
+            return count - 2;
+        }
+
+        for (int loopi = 0; loopi < count; loopi++) {
+            mPrev[loopi] = loopi == 0 ? count - 1 : loopi - 1;
+            mNext[loopi] = loopi == count - 1 ? 0 : loopi + 1;
+        }
+        // Starting at corner 1 makes a convex face the fan from corner 0.
+        int corner = 1;
+        int remaining = count;
+        int tried = 0;
+        while (remaining > 3) {
+            int prev = mPrev[corner];
+            int next = mNext[corner];
+            // A self intersecting outline may have no ear left, clip anyway
+            // rather than give up on the face.
+            if (isEar(prev, corner, next, remaining) || tried >= remaining) {
+                addTriangle(out, indices[first + prev], indices[first + corner], indices[first + next]);
+                mNext[prev] = next;
+                mPrev[next] = prev;
+                remaining--;
+                tried = 0;
+            } else {
+                tried++;
+            }
+            corner = next;
+        }
+        addTriangle(out, indices[first + mPrev[corner]], indices[first + corner], indices[first + mNext[corner]]);
+        return count - 2;
+    }
+
+    // Fill mX, mY with the face dropped along the largest axis of its normal,
+    // mirrored if need be so it winds counterclockwise. False if it has no area.
+    private boolean project(float[] vertices, int[] indices, int first, int count) {
+        if (mX.length < count) {
+            int capacity = Math.max(count, mX.length * 2);
+            mX = new float[capacity];
+            mY = new float[capacity];
+            mPrev = new int[capacity];
+            mNext = new int[capacity];
+        }
+
+        // Newell's normal, robust for concave and slightly non planar faces.
+        float nx = 0;
+        float ny = 0;
+        float nz = 0;
+        for (int loopi = 0; loopi < count; loopi++) {
+            int current = indices[first + loopi] * 3;
+            int next = indices[first + (loopi + 1) % count] * 3;
+            nx += (vertices[current + 1] - vertices[next + 1]) * (vertices[current + 2] + vertices[next + 2]);
+            ny += (vertices[current + 2] - vertices[next + 2]) * (vertices[current] + vertices[next]);
+            nz += (vertices[current] - vertices[next]) * (vertices[current + 1] + vertices[next + 1]);
+        }
+
+        int axisX;
+        int axisY;
+        float normal;
+        if (Math.abs(nz) >= Math.abs(nx) && Math.abs(nz) >= Math.abs(ny)) {
+            axisX = 0;
+            axisY = 1;
+            normal = nz;
+        } else if (Math.abs(nx) >= Math.abs(ny)) {
+            axisX = 1;
+            axisY = 2;
+            normal = nx;
+        } else {
+            axisX = 2;
+            axisY = 0;
+            normal = ny;
+        }
+        if (normal == 0) {
+            return false;
+        }
+        float mirror = normal > 0 ? 1 : -1;
+        for (int loopi = 0; loopi < count; loopi++) {
+            int vertex = indices[first + loopi] * 3;
+            mX[loopi] = vertices[vertex + axisX];
+            mY[loopi] = vertices[vertex + axisY] * mirror;
+        }
+        return true;
+    }
+
+    // Convex at corner, with no other corner left inside the triangle.
+    private boolean isEar(int prev, int corner, int next, int remaining) {
+        float ax = mX[prev];
+        float ay = mY[prev];
+        float bx = mX[corner];
+        float by = mY[corner];
+        float cx = mX[next];
+        float cy = mY[next];
+        if (cross(ax, ay, bx, by, cx, cy) <= 0) {
+            return false;
+        }
+        for (int other = mNext[next], loopi = 3; loopi < remaining; other = mNext[other], loopi++) {
+            float px = mX[other];
+            float py = mY[other];
+            // A corner on top of the triangle's own, e.g. where a hole is bridged, doesn't block it.
+            if ((px == ax && py == ay) || (px == bx && py == by) || (px == cx && py == cy)) {
+                continue;
+            }
+            if (cross(ax, ay, bx, by, px, py) >= 0 && cross(bx, by, cx, cy, px, py) >= 0
+                    && cross(cx, cy, ax, ay, px, py) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float cross(float ax, float ay, float bx, float by, float cx, float cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    private static void addTriangle(IntArray out, int a, int b, int c) {
+        out.add(a);
+        out.add(b);
+        out.add(c);
+    }
+}
@@ -0,0 +1,161 @@
+package com.giou.minimapview.view;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+
+import com.giou.minimapview.R;
+import com.giou.minimapview.objparser.IntArray;
+
+/**
+ * Description: Rider markers pre-rendered into the cells of one bitmap. The badge
+ * backgrounds are rasterized once, each rider's badge, number and name are
+ * composited into its cell only when they change, and every frame is then
+ * one drawBitmap() per rider from the same bitmap, which the renderer batches.
+ */
+public class MarkerAtlas {
+
+    // Badge styles, bg_moving_icon and bg_moving_icon0.
+    public static final int BADGE_RIDER = 0;
+    public static final int BADGE_HIGHLIGHT = 1;
+    private static final int[] BADGE_DRAWABLES = {R.drawable.bg_moving_icon, R.drawable.bg_moving_icon0};
+
+    // Sizes in pixels, the same as icon_coach_player.xml.
+    private static final int BADGE_SIZE = 30;
+    private static final float NUMBER_TEXT_SIZE = 18f;
+    private static final float NAME_TEXT_SIZE = 13f;
+    private static final int NAME_GAP = 2;
+
+    // A cell holds the badge and up to 96 pixels of name.
+    private static final int CELL_WIDTH = 128;
+    private static final int CELL_HEIGHT = 32;
+    private static final int ATLAS_SIZE = 1024;
+    private static final int COLUMNS = ATLAS_SIZE / CELL_WIDTH;
+    private static final int CAPACITY = COLUMNS * (ATLAS_SIZE / CELL_HEIGHT);
+
+    private final Bitmap mBadges;
+
+    // Created with the first cell.
+    private Bitmap mAtlas;
+    private Canvas mAtlasCanvas;
+    private final IntArray mFreeCells = new IntArray();
+
+    private final Paint mClearPaint;
+    private final Paint mBitmapPaint;
+    private final Paint mNumberPaint;
+    private final Paint mNamePaint;
+    // Baselines that center the text on the badge.
+    private final float mNumberBaseline;
+    private final float mNameBaseline;
+
+    // Scratch for drawing, so no frame allocates.
+    private final Rect mSrc = new Rect();
+    private final RectF mDst = new RectF();
+
+    public MarkerAtlas(Resources resources) {
+        mBadges = Bitmap.createBitmap(BADGE_SIZE * BADGE_DRAWABLES.length, BADGE_SIZE, Bitmap.Config.ARGB_8888);
+        Canvas badgeCanvas = new Canvas(mBadges);
+        for (int loopi = 0; loopi < BADGE_DRAWABLES.length; loopi++) {
+            Drawable badge = resources.getDrawable(BADGE_DRAWABLES[loopi]);
+            badge.setBounds(loopi * BADGE_SIZE, 0, (loopi + 1) * BADGE_SIZE, BADGE_SIZE);
+            badge.draw(badgeCanvas);
+        }
+
+        mClearPaint = new Paint();
+        mClearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+
+        mBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+        mNumberPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mNumberPaint.setColor(Color.WHITE);
+        mNumberPaint.setTextSize(NUMBER_TEXT_SIZE);
+        mNumberPaint.setTextAlign(Paint.Align.CENTER);
+
+        mNamePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mNamePaint.setColor(Color.RED);
+        mNamePaint.setTextSize(NAME_TEXT_SIZE);
+
+        Paint.FontMetrics metrics = mNumberPaint.getFontMetrics();
+        mNumberBaseline = -(metrics.ascent + metrics.descent) / 2;
+        metrics = mNamePaint.getFontMetrics();
+        mNameBaseline = -(metrics.ascent + metrics.descent) / 2;
+    }
+
+    /**
+     * @return a free cell, or -1 if the atlas is full
+     */
+    public int allocate() {
+        if (mAtlas == null) {
+            mAtlas = Bitmap.createBitmap(ATLAS_SIZE, ATLAS_SIZE, Bitmap.Config.ARGB_8888);
+            mAtlasCanvas = new Canvas(mAtlas);
+            // Hand out the low cells first.
+            for (int cell = CAPACITY - 1; cell >= 0; cell--) {
+                mFreeCells.add(cell);
+            }
+        }
+        if (mFreeCells.size() == 0) {
+            return -1;
+        }
+        int last = mFreeCells.size() - 1;
+        int cell = mFreeCells.get(last);
+        mFreeCells.setSize(last);
+        return cell;
+    }
+
+    public void release(int cell) {
+        mFreeCells.add(cell);
+    }
+
+    /**
+     * Composite a marker into cell, replacing what it held.
+     * @param badge     BADGE_RIDER or BADGE_HIGHLIGHT
+     * @param name      may be null
+     */
+    public void render(int cell, int badge, String number, String name) {
+        int left = (cell % COLUMNS) * CELL_WIDTH;
+        int top = (cell / COLUMNS) * CELL_HEIGHT;
+
+        mAtlasCanvas.save();
+        mAtlasCanvas.clipRect(left, top, left + CELL_WIDTH, top + CELL_HEIGHT);
+        mAtlasCanvas.drawRect(left, top, left + CELL_WIDTH, top + CELL_HEIGHT, mClearPaint);
+        drawMarker(mAtlasCanvas, left + CELL_HEIGHT / 2f, top + CELL_HEIGHT / 2f, badge, number, name);
+        mAtlasCanvas.restore();
+    }
+
+    /**
+     * Draw the marker in cell with its badge centered on x, y.
+     */
+    public void draw(Canvas canvas, int cell, float x, float y) {
+        int left = (cell % COLUMNS) * CELL_WIDTH;
+        int top = (cell / COLUMNS) * CELL_HEIGHT;
+        mSrc.set(left, top, left + CELL_WIDTH, top + CELL_HEIGHT);
+        float dstLeft = x - CELL_HEIGHT / 2f;
+        float dstTop = y - CELL_HEIGHT / 2f;
+        mDst.set(dstLeft, dstTop, dstLeft + CELL_WIDTH, dstTop + CELL_HEIGHT);
+        canvas.drawBitmap(mAtlas, mSrc, mDst, mBitmapPaint);
+    }
+
+    /**
+     * Draw a marker straight to canvas with its badge centered on x, y, for
+     * riders that didn't get a cell.
+     */
+    public void drawMarker(Canvas canvas, float x, float y, int badge, String number, String name) {
+        float badgeLeft = x - BADGE_SIZE / 2f;
+        float badgeTop = y - BADGE_SIZE / 2f;
+        mSrc.set(badge * BADGE_SIZE, 0, (badge + 1) * BADGE_SIZE, BADGE_SIZE);
+        mDst.set(badgeLeft, badgeTop, badgeLeft + BADGE_SIZE, badgeTop + BADGE_SIZE);
+        canvas.drawBitmap(mBadges, mSrc, mDst, mBitmapPaint);
+
+        canvas.drawText(number, x, y + mNumberBaseline, mNumberPaint);
+        if (name != null) {
+            canvas.drawText(name, badgeLeft + BADGE_SIZE + NAME_GAP, y + mNameBaseline, mNamePaint);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.giou.minimapview.view;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.opengl.GLSurfaceView;
+import android.util.AttributeSet;
+import android.util.Log;
+
+import com.giou.minimapview.R;
+
+/**
+ * Description: OpenGL ES 2.0 variant of MiniMapView. The route lives in vertex
+ * buffers on the GPU, so zoom, pan and tilt only redraw, nothing is rasterized
+ * on the cpu.
+ */
+public class MiniMapGLView extends GLSurfaceView {
+
+    private static final String TAG = MiniMapGLView.class.getSimpleName();
+
+    private RouteGLRenderer mRenderer;
+    private RouteLoader mRouteLoader;
+    private MiniMapView.OnRouteLoadListener mOnRouteLoadListener;
+
+    private float mZoom = 1f;
+    private float mPanX;
+    private float mPanY;
+    private float mTilt;
+
+    public MiniMapGLView(Context context) {
+        super(context);
+        init(context);
+    }
+
+    public MiniMapGLView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context);
+    }
+
+    private void init(Context context) {
+        setEGLContextClientVersion(2);
+        mRenderer = new RouteGLRenderer(getResources().getColor(R.color.colorPrimary),
+                Color.WHITE, getResources().getColor(R.color.colorPrimaryDark),
+                getResources().getColor(R.color.colorAccent), 3.5f, 12f);
+        setRenderer(mRenderer);
+        setRenderMode(RENDERMODE_WHEN_DIRTY);
+
+        mRouteLoader = new RouteLoader(context, new RouteLoader.Callback() {
+            @Override
+            public void onLoadProgress(String fileName, float progress) {
+                if (mOnRouteLoadListener != null) {
+                    mOnRouteLoadListener.onLoadProgress(progress);
+                }
+            }
+
+            @Override
+            public void onLoadComplete(String fileName, Route route) {
+                setRoute(route);
+                if (mOnRouteLoadListener != null) {
+                    mOnRouteLoadListener.onLoadComplete(route.getVertexCount());
+                }
+            }
+
+            @Override
+            public void onLoadFailed(String fileName, Exception e) {
+                Log.d(TAG, "load failed : " + e.getLocalizedMessage());
+                if (mOnRouteLoadListener != null) {
+                    mOnRouteLoadListener.onLoadFailed(e);
+                }
+            }
+        });
+    }
+
+    public void setOnRouteLoadListener(MiniMapView.OnRouteLoadListener listener) {
+        mOnRouteLoadListener = listener;
+    }
+
+    /**
+     * Parse fileName on a worker thread and show it once complete, like
+     * MiniMapView.loadObjFileAsync().
+     */
+    public void loadObjFileAsync(String fileName) {
+        mRouteLoader.load(fileName);
+    }
+
+    private void setRoute(Route route) {
+        Log.d(TAG, "route vertices : " + route.getVertexCount());
+        // Uploaded on the next frame, on the GL thread.
+        mRenderer.setRoute(route);
+        requestRender();
+    }
+
+    /**
+     * Scale the route around the origin, 1 draws it in OBJ units.
+     * @param zoom  pixels per OBJ unit, greater than 0
+     */
+    public void setZoom(float zoom) {
+        // Also catches NaN, which would leave the model matrix unusable.
+        if (!(zoom > 0) || Float.isInfinite(zoom)) {
+            throw new IllegalArgumentException("zoom must be a positive number, was " + zoom);
+        }
+        mZoom = zoom;
+        updateCamera();
+    }
+
+    public float getZoom() {
+        return mZoom;
+    }
+
+    /**
+     * Offset the scaled route by panX, panY pixels.
+     */
+    public void setPan(float panX, float panY) {
+        mPanX = panX;
+        mPanY = panY;
+        updateCamera();
+    }
+
+    public float getPanX() {
+        return mPanX;
+    }
+
+    public float getPanY() {
+        return mPanY;
+    }
+
+    /**
+     * Tilt the map back around its horizontal center line, in degrees.
+     */
+    public void setTilt(float tilt) {
+        mTilt = tilt;
+        updateCamera();
+    }
+
+    public float getTilt() {
+        return mTilt;
+    }
+
+    /**
+     * @param positions     x,y,z of every marker, in route coordinates
+     * @param count         number of markers
+     */
+    public void setMarkers(float[] positions, int count) {
+        mRenderer.setMarkers(positions, count);
+        requestRender();
+    }
+
+    private void updateCamera() {
+        mRenderer.setCamera(mZoom, mPanX, mPanY, mTilt);
+        requestRender();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mRouteLoader.close();
+        super.onDetachedFromWindow();
+    }
+}
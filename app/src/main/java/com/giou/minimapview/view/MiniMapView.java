@@ -7,19 +7,20 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Point;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
 
 import com.giou.minimapview.R;
-import com.giou.minimapview.objparser.BuilderInterface;
-import com.giou.minimapview.objparser.ObjectParser;
+import com.giou.minimapview.objparser.FloatArray;
+import com.giou.minimapview.objparser.GeometryBuilder;
+import com.giou.minimapview.objparser.IntArray;
+import com.giou.minimapview.objparser.VertexStream;
+import com.giou.minimapview.utils.FrameScheduler;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
 /**
  * Description:
@@ -31,10 +32,13 @@ public class MiniMapView extends View {
 
     private static final String TAG = MiniMapView.class.getSimpleName();
 
-    private List<Point> allPoints = new ArrayList<>();
+    private static final int MAX_TELEMETRY_RIDERS = 1024;
+
+    private Route mRoute = new Route(new GeometryBuilder());
 
     private Context mContext;
-    private ObjectParser mObjectParser;
+    private RouteLoader mRouteLoader;
+    private OnRouteLoadListener mOnRouteLoadListener;
     private Camera mCamera;
     private Matrix mMatrix;
     private int mCenterX;
@@ -44,6 +48,73 @@ public class MiniMapView extends View {
 
     private Canvas mBackgroundCanvas;
 
+    private Paint mLinePen;
+    // Faces without a material are filled in its color.
+    private Paint mAreaPaint;
+    private int mBackgroundColor;
+
+    private float mZoom = 1f;
+    private float mPanX;
+    private float mPanY;
+
+    // Set whenever the rasterized route in mBackgroundBitmap is out of date.
+    private boolean mRouteDirty = true;
+
+    // Scratch for the segments inside the viewport.
+    private final IntArray mVisibleSegments = new IntArray();
+    private final FloatArray mVisiblePoints = new FloatArray();
+
+    // The route of a load in progress, drawn line by line as they arrive until
+    // the finished route replaces it. Only touched on the ui thread.
+    private VertexStream mStream;
+    private FloatArray mStreamVertices;
+    // The lines as in GeometryBuilder, indexing mStreamVertices.
+    private IntArray mStreamLineStarts;
+    private IntArray mStreamLineIndices;
+    // x0,y0,x1,y1 of the segments of every line, none joins two lines.
+    private FloatArray mStreamPoints;
+    private int mStreamDrawnSegments;
+
+    private RiderOverlay mRiders;
+
+    // Runs while riders are moving between two updates, idle otherwise.
+    private FrameScheduler mFrameScheduler;
+
+    // Rider positions from other threads, drained once per frame.
+    private RiderTelemetry mTelemetry;
+    private long mTelemetryFrameNanos;
+    // Ui thread only.
+    private boolean mAttached;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final Runnable mTelemetryWakeup = new Runnable() {
+        @Override
+        public void run() {
+            // While detached the updates stay signalled, so no more wakeups
+            // are posted until onAttachedToWindow() drains them.
+            if (mAttached) {
+                mFrameScheduler.requestFrame();
+            }
+        }
+    };
+
+    private final RiderTelemetry.OnRiderUpdateListener mOnRiderUpdateListener =
+            new RiderTelemetry.OnRiderUpdateListener() {
+                @Override
+                public void onRiderUpdate(int riderId, float distance) {
+                    mRiders.setDistance(riderId, distance, mTelemetryFrameNanos);
+                }
+            };
+
+    private final VertexStream.OnBatchesAvailableListener mOnBatchesAvailableListener =
+            new VertexStream.OnBatchesAvailableListener() {
+                @Override
+                public void onBatchesAvailable(VertexStream stream) {
+                    // On the parsing thread, draw() drains the stream.
+                    postInvalidateOnAnimation();
+                }
+            };
+
     public MiniMapView(Context context) {
         super(context);
         init(context);
@@ -63,151 +134,378 @@ public class MiniMapView extends View {
         mCenterX = 450 >> 1;
         mCenterY = 540;
 
-        mCamera = new Camera();
-        mMatrix = new Matrix();
-    }
-
-    public void loadObjFile(String fileName) {
-
-        mObjectParser = new ObjectParser(mContext, new BuilderInterface() {
-
-            public void setObjFilename(String filename) {
-
-            }
-
-            public void addVertexGeometric(float x, float y, float z) {
-                Point point = new Point((int)x, (int)y);
-                allPoints.add(point);
+        mLinePen = new Paint();
+        mLinePen.setColor(Color.WHITE);
+        mLinePen.setStrokeWidth(3.5f);
+        mBackgroundColor = getResources().getColor(R.color.colorPrimary);
+
+        mAreaPaint = new Paint();
+        mAreaPaint.setStyle(Paint.Style.FILL);
+        mAreaPaint.setColor(getResources().getColor(R.color.colorPrimaryDark));
+
+        mRiders = new RiderOverlay(getResources());
+        mFrameScheduler = new FrameScheduler(new FrameScheduler.OnFrameListener() {
+            @Override
+            public boolean onFrame(long frameTimeNanos) {
+                if (mTelemetry != null) {
+                    mTelemetryFrameNanos = frameTimeNanos;
+                    mTelemetry.drain(mOnRiderUpdateListener);
+                }
+                boolean animating = mRiders.animate(frameTimeNanos);
+                invalidate();
+                return animating;
             }
+        });
 
-            public void addVertexTexture(float u, float v) {
+        mCamera = new Camera();
+        mMatrix = new Matrix();
+        updateMatrix();
 
+        mRouteLoader = new RouteLoader(context, new RouteLoader.Callback() {
+            @Override
+            public void onLoadProgress(String fileName, float progress) {
+                if (mOnRouteLoadListener != null) {
+                    mOnRouteLoadListener.onLoadProgress(progress);
+                }
             }
 
-            public void addVertexNormal(float x, float y, float z) {
-
+            @Override
+            public void onLoadComplete(String fileName, Route route) {
+                setRoute(route);
+                if (mOnRouteLoadListener != null) {
+                    mOnRouteLoadListener.onLoadComplete(route.getVertexCount());
+                }
             }
 
-            public void addPoints(int values[]) {
-
+            @Override
+            public void onLoadFailed(String fileName, Exception e) {
+                Log.d(TAG, "PaintView allPoints is : " + e.getLocalizedMessage());
+                stopStream();
+                if (mOnRouteLoadListener != null) {
+                    mOnRouteLoadListener.onLoadFailed(e);
+                }
             }
+        });
+    }
 
-            public void addLine(int values[]) {
-
-            }
+    /**
+     * Load callbacks, all called on the ui thread.
+     */
+    public interface OnRouteLoadListener {
+        void onLoadProgress(float progress);
 
-            public void addFace(int vertexIndices[]) {
+        void onLoadComplete(int vertexCount);
 
-            }
+        void onLoadFailed(Exception e);
+    }
 
-            public void addObjectName(String name) {
+    public void setOnRouteLoadListener(OnRouteLoadListener listener) {
+        mOnRouteLoadListener = listener;
+    }
 
-            }
+    /**
+     * Parse fileName on the calling thread, see loadObjFileAsync().
+     */
+    public void loadObjFile(String fileName) {
+        mRouteLoader.cancel();
+        stopStream();
 
-            public void addMapLib(String[] names) {
+        try {
+            setRoute(mRouteLoader.parse(fileName));
+        } catch (Exception e) {
+            Log.d(TAG, "PaintView allPoints is : " + e.getLocalizedMessage());
+        }
+    }
 
-            }
+    /**
+     * Parse fileName on a worker thread, drawing the route as its lines
+     * arrive. A newer load or detaching the view cancels it.
+     */
+    public void loadObjFileAsync(String fileName) {
+        mStream = new VertexStream(mOnBatchesAvailableListener);
+        mStreamVertices = new FloatArray();
+        mStreamLineStarts = new IntArray();
+        mStreamLineStarts.add(0);
+        mStreamLineIndices = new IntArray();
+        mStreamPoints = new FloatArray();
+        mStreamDrawnSegments = 0;
+        mRouteLoader.load(fileName, mStream);
+        invalidateRoute();
+    }
 
-            public void setCurrentGroupNames(String[] names) {
+    private void stopStream() {
+        if (mStream != null) {
+            mStream = null;
+            mStreamVertices = null;
+            mStreamLineStarts = null;
+            mStreamLineIndices = null;
+            mStreamPoints = null;
+            invalidateRoute();
+        }
+    }
 
+    // Take the lines published since the last draw and add their segments to
+    // the streamed route. Vertices no line uses yet aren't drawn, as in the
+    // finished route.
+    private void drainStream() {
+        int firstLine = mStreamLineStarts.size() - 1;
+        mStream.drainTo(mStreamVertices, mStreamLineStarts, mStreamLineIndices);
+        int lineCount = mStreamLineStarts.size() - 1;
+        if (lineCount == firstLine) {
+            return;
+        }
+        float[] vertices = mStreamVertices.array();
+        int[] starts = mStreamLineStarts.array();
+        int[] indices = mStreamLineIndices.array();
+        mStreamPoints.ensureCapacity(mStreamPoints.size()
+                + (starts[lineCount] - starts[firstLine] - (lineCount - firstLine)) * 4);
+        for (int line = firstLine; line < lineCount; line++) {
+            for (int loopi = starts[line] + 1; loopi < starts[line + 1]; loopi++) {
+                int from = indices[loopi - 1] * 3;
+                int to = indices[loopi] * 3;
+                mStreamPoints.add(vertices[from]);
+                mStreamPoints.add(vertices[from + 1]);
+                mStreamPoints.add(vertices[to]);
+                mStreamPoints.add(vertices[to + 1]);
             }
+        }
+    }
 
-            public void setCurrentSmoothingGroup(int groupNumber) {
-
-            }
+    // The route is never modified once published, so draw() can't see a partial route.
+    private void setRoute(Route route) {
+        stopStream();
+        mRoute = route;
+        Log.d(TAG, "PaintView allPoints is : " + mRoute.getVertexCount());
+        invalidateRoute();
+    }
 
-            public void setCurrentUseMap(String name) {
+    /**
+     * Add a rider at the start of the route, or relabel an existing one.
+     * @param number    shown on the badge
+     * @param name      shown next to it, may be null
+     */
+    public void setRider(int id, int number, String name) {
+        setRider(id, number, name, MarkerAtlas.BADGE_RIDER);
+    }
 
-            }
+    /**
+     * @param badge     MarkerAtlas.BADGE_RIDER or BADGE_HIGHLIGHT
+     */
+    public void setRider(int id, int number, String name, int badge) {
+        mRiders.setRider(id, number, name, badge);
+        invalidate();
+    }
 
-            public void setCurrentUseMaterial(String name) {
+    /**
+     * Move rider id to distance along the route, see getRouteLength(). The
+     * rider glides there over the following frames, any number of updates
+     * before the next frame cost one redraw.
+     */
+    public void setRiderDistance(int id, float distance) {
+        if (mRiders.setDistance(id, distance, System.nanoTime())) {
+            mFrameScheduler.requestFrame();
+        }
+    }
 
-            }
+    /**
+     * Where to publish rider distances from any thread at any rate. Only the
+     * latest distance of each rider is applied, once per frame, to riders
+     * added with setRider(). Must be called on the ui thread.
+     */
+    public RiderTelemetry getTelemetry() {
+        if (mTelemetry == null) {
+            mTelemetry = new RiderTelemetry(MAX_TELEMETRY_RIDERS, new RiderTelemetry.OnUpdatesAvailableListener() {
+                @Override
+                public void onUpdatesAvailable(RiderTelemetry telemetry) {
+                    // On the publishing thread, one post until the next drain.
+                    mMainHandler.post(mTelemetryWakeup);
+                }
+            });
+        }
+        return mTelemetry;
+    }
 
-            public void newMtl(String name) {
+    public float getRiderDistance(int id) {
+        return mRiders.getDistance(id);
+    }
 
-            }
+    public void removeRider(int id) {
+        mRiders.removeRider(id);
+        invalidate();
+    }
 
-            public void setXYZ(int type, float x, float y, float z) {
+    public void clearRiders() {
+        mRiders.clear();
+        invalidate();
+    }
 
-            }
+    /**
+     * @return the length of the loaded route in OBJ units
+     */
+    public float getRouteLength() {
+        return mRoute.getProgress().getLength();
+    }
 
-            public void setRGB(int type, float r, float g, float b) {
+    /**
+     * Scale the route around the origin, 1 draws it in OBJ units.
+     * @param zoom  pixels per OBJ unit, greater than 0
+     */
+    public void setZoom(float zoom) {
+        // Also catches NaN, the stroke width and viewport are divided by it.
+        if (!(zoom > 0) || Float.isInfinite(zoom)) {
+            throw new IllegalArgumentException("zoom must be a positive number, was " + zoom);
+        }
+        if (zoom != mZoom) {
+            mZoom = zoom;
+            invalidateRoute();
+        }
+    }
 
-            }
+    public float getZoom() {
+        return mZoom;
+    }
 
-            public void setIllum(int illumModel) {
+    /**
+     * Offset the scaled route by panX, panY pixels.
+     */
+    public void setPan(float panX, float panY) {
+        if (panX != mPanX || panY != mPanY) {
+            mPanX = panX;
+            mPanY = panY;
+            invalidateRoute();
+        }
+    }
 
-            }
+    public float getPanX() {
+        return mPanX;
+    }
 
-            public void setD(boolean halo, float factor) {
+    public float getPanY() {
+        return mPanY;
+    }
 
-            }
+    // Re-rasterize the route on the next draw, other invalidate() calls only blit it.
+    private void invalidateRoute() {
+        mRouteDirty = true;
+        invalidate();
+    }
 
-            public void setNs(float exponent) {
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // Only rasterize what the view can show.
+        if (w > 0 && h > 0 && (w != mBackgroundBitmap.getWidth() || h != mBackgroundBitmap.getHeight())) {
+            mBackgroundBitmap.recycle();
+            mBackgroundBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
+            mBackgroundCanvas.setBitmap(mBackgroundBitmap);
+        }
+        invalidateRoute();
+    }
 
-            }
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        if (mTelemetry != null) {
+            // Picks up what was published while detached and re-arms the wakeup.
+            mFrameScheduler.requestFrame();
+        }
+    }
 
-            public void setSharpness(float value) {
+    @Override
+    protected void onDetachedFromWindow() {
+        mAttached = false;
+        mRouteLoader.close();
+        stopStream();
+        mFrameScheduler.cancel();
+        mMainHandler.removeCallbacks(mTelemetryWakeup);
+        super.onDetachedFromWindow();
+    }
 
-            }
+    @Override
+    public void draw(Canvas canvas) {
+        super.draw(canvas);
 
-            public void setNi(float opticalDensity) {
+        if (mStream != null) {
+            drainStream();
+        }
+        if (mRouteDirty) {
+            renderRoute();
+            mRouteDirty = false;
+        } else if (mStream != null) {
+            // Only the new segments, over what is already rasterized.
+            renderStreamedSegments();
+        }
 
-            }
+        canvas.save();
 
-            public void setMapDecalDispBump(int type, String filename) {
+        canvas.concat(mMatrix);
 
-            }
+        //画到界面上面去
+        canvas.drawBitmap(mBackgroundBitmap, 0, 0, null);
 
-            public void setRefl(int type, String filename) {
+        // Riders move every tick, they are drawn over the cached route bitmap
+        // instead of into it. Distances only mean something on a finished route.
+        if (mStream == null) {
+            mRiders.draw(canvas, mRoute.getProgress(), mZoom, mPanX, mPanY);
+        }
 
-            }
+        canvas.restore();
+    }
 
-            public void doneParsingMaterial() {
+    //画到背景Bitmap去
+    private void renderRoute() {
+        mBackgroundCanvas.drawColor(mBackgroundColor);
 
-            }
+        if (mStream != null) {
+            mStreamDrawnSegments = 0;
+            renderStreamedSegments();
+            return;
+        }
 
-            public void doneParsingObj(String filename) {
-                Log.d(TAG, "PaintView allPoints is : " + allPoints.size());
-            }
-        });
+        mBackgroundCanvas.save();
+        mBackgroundCanvas.translate(mPanX, mPanY);
+        mBackgroundCanvas.scale(mZoom, mZoom);
+        // Keep the stroke width in pixels whatever the zoom.
+        mLinePen.setStrokeWidth(3.5f / mZoom);
+
+        // The viewport in route coordinates, grown by the stroke so edge segments aren't cut.
+        float halfStroke = mLinePen.getStrokeWidth() / 2;
+        float left = -mPanX / mZoom - halfStroke;
+        float top = -mPanY / mZoom - halfStroke;
+        float right = (mBackgroundBitmap.getWidth() - mPanX) / mZoom + halfStroke;
+        float bottom = (mBackgroundBitmap.getHeight() - mPanY) / mZoom + halfStroke;
+
+        // Areas underneath the route lines.
+        mRoute.getAreas().draw(mBackgroundCanvas, mAreaPaint, left, top, right, bottom);
+
+        // Zoomed out, a simplified level looks the same for a fraction of the segments.
+        RouteLod lod = mRoute.getLod();
+        int level = lod.selectLevel(mZoom);
+        lod.getSegments(level).draw(mBackgroundCanvas, mLinePen, left, top, right, bottom, lod.getGrid(level),
+                mVisibleSegments, mVisiblePoints);
+
+        mBackgroundCanvas.restore();
+    }
 
-        try {
-            mObjectParser.parse(fileName);
-        } catch (Exception e) {
-            Log.d(TAG, "PaintView allPoints is : " + e.getLocalizedMessage());
+    // Draw the streamed segments not yet in mBackgroundBitmap.
+    private void renderStreamedSegments() {
+        int segmentCount = mStreamPoints.size() / 4;
+        if (segmentCount == mStreamDrawnSegments) {
+            return;
         }
-    }
 
-    @Override
-    public void draw(Canvas canvas) {
-        super.draw(canvas);
+        mBackgroundCanvas.save();
+        mBackgroundCanvas.translate(mPanX, mPanY);
+        mBackgroundCanvas.scale(mZoom, mZoom);
+        mLinePen.setStrokeWidth(3.5f / mZoom);
+        RouteSegments.drawLines(mBackgroundCanvas, mStreamPoints.array(), mStreamDrawnSegments, segmentCount, mLinePen);
+        mBackgroundCanvas.restore();
 
-        //画到背景Bitmap去
-        Paint linePen = new Paint();
-        linePen.setColor(Color.WHITE);
-        linePen.setStrokeWidth(3.5f);
-
-        mBackgroundCanvas.drawColor(getResources().getColor(R.color.colorPrimary));
-
-        if(MiniMapView.this.allPoints.size() > 1) {
-            Iterator<Point> iter = MiniMapView.this.allPoints.iterator();
-            Point first = null;
-            Point last = null;
-            while(iter.hasNext()) {
-                if(first == null) {
-                    first = iter.next(); //开始
-                }else{
-                    if(last != null){
-                        first = last;
-                    }
-                    last = iter.next();//结束
-                    mBackgroundCanvas.drawLine(first.x, first.y, last.x, last.y, linePen);
-                }
-            }
-        }
+        mStreamDrawnSegments = segmentCount;
+    }
 
+    private void updateMatrix() {
         mCamera.save();
 
 //        mCamera.rotateX(30);
@@ -218,15 +516,6 @@ public class MiniMapView extends View {
 
         mMatrix.preTranslate(-mCenterX, -mCenterY);
         mMatrix.postTranslate(mCenterX, mCenterY);
-
-        canvas.save();
-
-        canvas.concat(mMatrix);
-
-        //画到界面上面去
-        canvas.drawBitmap(mBackgroundBitmap, 0, 0, null);
-
-        canvas.restore();
     }
 
-}
\ No newline at end of file
+}
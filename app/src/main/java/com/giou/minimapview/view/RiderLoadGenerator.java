@@ -0,0 +1,131 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.utils.LanePool;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: Synthetic telemetry for load testing: riders 0 .. riderCount - 1
+ * ride laps of the route at their own steady speed, each publishing its
+ * distance rateHz times a second. The riders are split into a few groups
+ * publishing independently, as positions from the network or sensors would
+ * arrive. They run on the shared interactive lane threads, see LanePool.
+ */
+public class RiderLoadGenerator {
+
+    private final RiderTelemetry mTelemetry;
+    private final int mRiderCount;
+    private final int mRateHz;
+    private final int mGroupCount;
+    private final float mRouteLength;
+
+    private final float[] mDistances;
+    // Route length per second.
+    private final float[] mSpeeds;
+
+    // One per group while running.
+    private ScheduledFuture<?>[] mTicks;
+
+    /**
+     * @param riderCount    at least 1
+     * @param rateHz        updates per rider and second, 1 to 1000000
+     * @param groupCount    groups of riders published by separate tasks, at least 1
+     * @param routeLength   riders start over at 0 after this, see RouteProgress.getLength()
+     * @param lapSeconds    the fastest rider's lap time, the slowest takes twice that
+     */
+    public RiderLoadGenerator(RiderTelemetry telemetry, int riderCount, int rateHz, int groupCount,
+                              float routeLength, float lapSeconds) {
+        if (telemetry == null) {
+            throw new NullPointerException("telemetry == null");
+        }
+        if (riderCount < 1 || groupCount < 1) {
+            throw new IllegalArgumentException("need a rider and a group, was " + riderCount + " riders in "
+                    + groupCount + " groups");
+        }
+        // The tick period is a whole number of microseconds.
+        if (rateHz < 1 || rateHz > TimeUnit.SECONDS.toMicros(1)) {
+            throw new IllegalArgumentException("rateHz must be 1 to 1000000, was " + rateHz);
+        }
+        // Also catch NaN, the distances would never wrap.
+        if (!(routeLength >= 0) || Float.isInfinite(routeLength)) {
+            throw new IllegalArgumentException("routeLength must be a length, was " + routeLength);
+        }
+        if (!(lapSeconds > 0) || Float.isInfinite(lapSeconds)) {
+            throw new IllegalArgumentException("lapSeconds must be a positive number, was " + lapSeconds);
+        }
+        mTelemetry = telemetry;
+        mRiderCount = riderCount;
+        mRateHz = rateHz;
+        mGroupCount = Math.min(groupCount, riderCount);
+        mRouteLength = routeLength;
+
+        mDistances = new float[riderCount];
+        mSpeeds = new float[riderCount];
+        Random random = new Random(riderCount);
+        for (int loopi = 0; loopi < riderCount; loopi++) {
+            mDistances[loopi] = random.nextFloat() * routeLength;
+            mSpeeds[loopi] = routeLength / (lapSeconds * (1 + random.nextFloat()));
+        }
+    }
+
+    public void start() {
+        start(LanePool.getScheduler());
+    }
+
+    /**
+     * Publish on the threads of scheduler instead of the lane threads.
+     */
+    public void start(ScheduledExecutorService scheduler) {
+        if (mTicks != null) {
+            return;
+        }
+        mTicks = new ScheduledFuture<?>[mGroupCount];
+
+        long periodMicros = TimeUnit.SECONDS.toMicros(1) / mRateHz;
+        for (int loopi = 0; loopi < mGroupCount; loopi++) {
+            // Rider i belongs to group i % groupCount.
+            final int first = loopi;
+            mTicks[loopi] = scheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    tick(first);
+                }
+            }, 0, periodMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void tick(int first) {
+        for (int rider = first; rider < mRiderCount; rider += mGroupCount) {
+            float distance = mDistances[rider] + mSpeeds[rider] / mRateHz;
+            if (distance > mRouteLength) {
+                distance -= mRouteLength;
+            }
+            mDistances[rider] = distance;
+            mTelemetry.publish(rider, distance);
+        }
+    }
+
+    public void stop() {
+        if (mTicks != null) {
+            // The threads are shared, only this generator's ticks stop.
+            for (ScheduledFuture<?> tick : mTicks) {
+                tick.cancel(false);
+            }
+            mTicks = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return mTicks != null;
+    }
+
+    /**
+     * @return updates per second the generator aims for
+     */
+    public int getTargetRate() {
+        return mRiderCount * mRateHz;
+    }
+}
@@ -0,0 +1,208 @@
+package com.giou.minimapview.view;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: The riders on the route, each drawn as a numbered badge with its
+ * name next to it, like icon_coach_player.xml. Riders are looked up by id
+ * without boxing and recycled through a pool, and their markers come
+ * pre-rendered from a MarkerAtlas, so moving them every tick and drawing them
+ * every frame allocates nothing. Between two distance updates a rider glides
+ * from the old distance to the new one, see animate().
+ */
+public class RiderOverlay {
+
+    // Updates further apart than this are jumped to instead of animated.
+    private static final long MAX_ANIMATION_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static class Rider {
+        int number;
+        String numberText;
+        String name;
+        int badge;
+        // Along the route in OBJ units, as drawn and as last set.
+        float distance;
+        float targetDistance;
+        // Animating from startDistance at startNanos to targetDistance
+        // durationNanos later.
+        boolean animating;
+        float startDistance;
+        long startNanos;
+        long durationNanos;
+        boolean placed;
+        long lastUpdateNanos;
+        // Cell in the atlas, -1 while the atlas is full.
+        int cell = -1;
+        // The cell doesn't show the current number, name or badge.
+        boolean dirty;
+    }
+
+    private final SparseArray<Rider> mRiders = new SparseArray<>();
+    private final ArrayList<Rider> mPool = new ArrayList<>();
+
+    private final MarkerAtlas mAtlas;
+
+    private final float[] mPosition = new float[2];
+
+    public RiderOverlay(Resources resources) {
+        mAtlas = new MarkerAtlas(resources);
+    }
+
+    /**
+     * Add a rider at the start of the route, or relabel an existing one.
+     * @param badge     MarkerAtlas.BADGE_RIDER or BADGE_HIGHLIGHT
+     */
+    public void setRider(int id, int number, String name, int badge) {
+        Rider rider = mRiders.get(id);
+        if (rider == null) {
+            rider = mPool.isEmpty() ? new Rider() : mPool.remove(mPool.size() - 1);
+            rider.distance = 0;
+            rider.targetDistance = 0;
+            rider.animating = false;
+            rider.placed = false;
+            rider.numberText = null;
+            mRiders.put(id, rider);
+        }
+        if (rider.numberText == null || rider.number != number) {
+            rider.number = number;
+            rider.numberText = Integer.toString(number);
+            rider.dirty = true;
+        }
+        if (rider.name == null ? name != null : !rider.name.equals(name)) {
+            rider.name = name;
+            rider.dirty = true;
+        }
+        if (rider.badge != badge) {
+            rider.badge = badge;
+            rider.dirty = true;
+        }
+    }
+
+    /**
+     * Move rider id towards distance. Updates are expected at a steady rate, the
+     * rider takes as long as since its previous update to get there, so it
+     * arrives about when the next update comes in. The first update, a step
+     * backwards (e.g. a new lap) or a long pause jump straight to distance.
+     * @param distance  along the route in OBJ units, see RouteProgress.getLength()
+     * @param nowNanos  System.nanoTime() of the update
+     * @return false if there is no rider id
+     */
+    public boolean setDistance(int id, float distance, long nowNanos) {
+        Rider rider = mRiders.get(id);
+        if (rider == null) {
+            return false;
+        }
+        long sinceLastUpdate = nowNanos - rider.lastUpdateNanos;
+        if (!rider.placed || distance < rider.targetDistance || sinceLastUpdate <= 0
+                || sinceLastUpdate > MAX_ANIMATION_NANOS) {
+            rider.distance = distance;
+            rider.animating = false;
+        } else {
+            rider.startDistance = rider.distance;
+            rider.startNanos = nowNanos;
+            rider.durationNanos = sinceLastUpdate;
+            rider.animating = true;
+        }
+        rider.targetDistance = distance;
+        rider.placed = true;
+        rider.lastUpdateNanos = nowNanos;
+        return true;
+    }
+
+    /**
+     * @return the distance rider id was last set to, or -1 if there is none
+     */
+    public float getDistance(int id) {
+        Rider rider = mRiders.get(id);
+        return rider == null ? -1 : rider.targetDistance;
+    }
+
+    /**
+     * Advance the riders that are moving to frameTimeNanos.
+     * @return true while any rider is still moving
+     */
+    public boolean animate(long frameTimeNanos) {
+        boolean animating = false;
+        for (int loopi = 0; loopi < mRiders.size(); loopi++) {
+            Rider rider = mRiders.valueAt(loopi);
+            if (!rider.animating) {
+                continue;
+            }
+            long elapsed = Math.max(frameTimeNanos - rider.startNanos, 0);
+            if (elapsed >= rider.durationNanos) {
+                rider.distance = rider.targetDistance;
+                rider.animating = false;
+            } else {
+                float t = (float) elapsed / rider.durationNanos;
+                rider.distance = rider.startDistance + (rider.targetDistance - rider.startDistance) * t;
+                animating = true;
+            }
+        }
+        return animating;
+    }
+
+    public void removeRider(int id) {
+        int index = mRiders.indexOfKey(id);
+        if (index >= 0) {
+            recycle(mRiders.valueAt(index));
+            mRiders.removeAt(index);
+        }
+    }
+
+    public void clear() {
+        for (int loopi = 0; loopi < mRiders.size(); loopi++) {
+            recycle(mRiders.valueAt(loopi));
+        }
+        mRiders.clear();
+    }
+
+    private void recycle(Rider rider) {
+        if (rider.cell >= 0) {
+            mAtlas.release(rider.cell);
+            rider.cell = -1;
+        }
+        rider.numberText = null;
+        rider.name = null;
+        mPool.add(rider);
+    }
+
+    public int size() {
+        return mRiders.size();
+    }
+
+    /**
+     * Draw every rider at its place on the route. Markers keep their pixel size
+     * whatever the zoom, only their positions are transformed.
+     * @param progress  the route the distances refer to
+     */
+    public void draw(Canvas canvas, RouteProgress progress, float zoom, float panX, float panY) {
+        for (int loopi = 0; loopi < mRiders.size(); loopi++) {
+            Rider rider = mRiders.valueAt(loopi);
+            if (!progress.getPosition(rider.distance, mPosition)) {
+                return;
+            }
+            float x = mPosition[0] * zoom + panX;
+            float y = mPosition[1] * zoom + panY;
+
+            if (rider.cell < 0) {
+                // Cells may have been freed since.
+                rider.cell = mAtlas.allocate();
+                rider.dirty = true;
+            }
+            if (rider.cell < 0) {
+                mAtlas.drawMarker(canvas, x, y, rider.badge, rider.numberText, rider.name);
+                continue;
+            }
+            if (rider.dirty) {
+                mAtlas.render(rider.cell, rider.badge, rider.numberText, rider.name);
+                rider.dirty = false;
+            }
+            mAtlas.draw(canvas, rider.cell, x, y);
+        }
+    }
+}
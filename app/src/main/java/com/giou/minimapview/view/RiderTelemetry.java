@@ -0,0 +1,191 @@
+package com.giou.minimapview.view;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description: Takes rider positions from any number of threads at any rate and
+ * hands the ui thread only the latest position of each rider that moved.
+ * Every rider has a slot holding its last distance, and a rider is put on a
+ * ring of changed slots only when its slot wasn't changed already, so the ring
+ * never holds more entries than there are riders and draining it costs at most
+ * one record per rider, however many updates came in. No locks, no objects per
+ * update. The number of riders is fixed when it is created, positions of
+ * riders beyond it are counted as dropped.
+ */
+public class RiderTelemetry {
+
+    /**
+     * Called on a publishing thread when updates arrive and the consumer has
+     * drained everything before, so one wakeup covers any number of updates.
+     */
+    public interface OnUpdatesAvailableListener {
+        void onUpdatesAvailable(RiderTelemetry telemetry);
+    }
+
+    public interface OnRiderUpdateListener {
+        void onRiderUpdate(int riderId, float distance);
+    }
+
+    private static final int EMPTY = 0;
+
+    private final OnUpdatesAvailableListener mListener;
+
+    // Open addressing table of rider ids, slot + 1 so 0 can mean empty.
+    private final AtomicIntegerArray mIdTable;
+    private final int mIdTableMask;
+
+    // Per slot, filled in the order riders first show up.
+    private final AtomicIntegerArray mSlotIds;
+    private final AtomicIntegerArray mDistances;    // Float.floatToRawIntBits()
+    private final AtomicIntegerArray mChanged;      // 1 while on the ring
+    private final AtomicLong mSlotCount = new AtomicLong();
+
+    // Changed slots + 1, 0 for not yet written.
+    private final AtomicIntegerArray mRing;
+    private final int mRingMask;
+    private final AtomicLong mRingTail = new AtomicLong();
+    // Owned by the consumer.
+    private long mRingHead;
+
+    private final AtomicBoolean mSignalled = new AtomicBoolean();
+    private final AtomicLong mPublished = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+
+    /**
+     * @param maxRiders     updates of riders beyond this many are dropped
+     */
+    public RiderTelemetry(int maxRiders, OnUpdatesAvailableListener listener) {
+        mListener = listener;
+        int ringSize = powerOfTwoAtLeast(maxRiders);
+        int idTableSize = ringSize * 2;
+        mIdTable = new AtomicIntegerArray(idTableSize);
+        mIdTableMask = idTableSize - 1;
+        mSlotIds = new AtomicIntegerArray(maxRiders);
+        mDistances = new AtomicIntegerArray(maxRiders);
+        mChanged = new AtomicIntegerArray(maxRiders);
+        mRing = new AtomicIntegerArray(ringSize);
+        mRingMask = ringSize - 1;
+    }
+
+    private static int powerOfTwoAtLeast(int value) {
+        int size = 1;
+        while (size < value) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    public int getMaxRiders() {
+        return mSlotIds.length();
+    }
+
+    /**
+     * Producer side, any thread. Replaces the distance of riderId not yet drained.
+     * @return false if riderId is new and there are maxRiders riders already
+     */
+    public boolean publish(int riderId, float distance) {
+        int slot = slotOf(riderId);
+        if (slot < 0) {
+            mDropped.incrementAndGet();
+            return false;
+        }
+        mDistances.set(slot, Float.floatToRawIntBits(distance));
+        mPublished.incrementAndGet();
+
+        if (mChanged.compareAndSet(slot, 0, 1)) {
+            // At most one entry per slot is on the ring, so it can't be full.
+            long position = mRingTail.getAndIncrement();
+            mRing.set((int) position & mRingMask, slot + 1);
+            if (mListener != null && mSignalled.compareAndSet(false, true)) {
+                mListener.onUpdatesAvailable(this);
+            }
+        }
+        return true;
+    }
+
+    // Find or add the slot of riderId, -1 if all slots are taken.
+    private int slotOf(int riderId) {
+        int index = mix(riderId) & mIdTableMask;
+        while (true) {
+            int entry = mIdTable.get(index);
+            if (entry == EMPTY) {
+                // Claim a slot first, then try to link it to riderId.
+                long slot = mSlotCount.getAndIncrement();
+                if (slot >= mSlotIds.length()) {
+                    mSlotCount.decrementAndGet();
+                    return -1;
+                }
+                // The id is set before the slot is linked, so whoever finds
+                // the link sees it.
+                mSlotIds.set((int) slot, riderId);
+                if (mIdTable.compareAndSet(index, EMPTY, (int) slot + 1)) {
+                    return (int) slot;
+                }
+                // Someone else took this entry, give the slot back if it is
+                // still the last one, otherwise it stays unused.
+                mSlotCount.compareAndSet(slot + 1, slot);
+                entry = mIdTable.get(index);
+            }
+            int slot = entry - 1;
+            if (mSlotIds.get(slot) == riderId) {
+                return slot;
+            }
+            index = (index + 1) & mIdTableMask;
+        }
+    }
+
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Consumer side, one thread. Report the latest distance of every rider
+     * published since the last drain, each once.
+     * @return the number of riders reported
+     */
+    public int drain(OnRiderUpdateListener listener) {
+        mSignalled.set(false);
+
+        // Riders published again while this runs wait for the next drain, so
+        // one drain reports each rider at most once.
+        long end = mRingTail.get();
+        int count = 0;
+        while (mRingHead < end) {
+            int index = (int) mRingHead & mRingMask;
+            int entry = mRing.get(index);
+            if (entry == EMPTY) {
+                // Drained, or the next publisher hasn't written its entry yet,
+                // it is picked up on the next drain.
+                break;
+            }
+            mRing.set(index, EMPTY);
+            mRingHead++;
+
+            int slot = entry - 1;
+            // Clear the mark before reading, so an update racing with this
+            // drain queues the rider again instead of getting lost.
+            mChanged.set(slot, 0);
+            float distance = Float.intBitsToFloat(mDistances.get(slot));
+            listener.onRiderUpdate(mSlotIds.get(slot), distance);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return updates accepted since creation
+     */
+    public long getPublishedCount() {
+        return mPublished.get();
+    }
+
+    /**
+     * @return updates dropped because there were too many riders
+     */
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+}
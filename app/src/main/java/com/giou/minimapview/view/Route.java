@@ -0,0 +1,80 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.GeometryBuilder;
+
+/**
+ * Description: A loaded route, the parsed geometry plus everything derived from
+ * it for drawing. Built once off the ui thread and never modified afterwards.
+ */
+public class Route {
+
+    private final GeometryBuilder mGeometry;
+    private final RoutePolylines mPolylines;
+    private final RouteSegments mSegments;
+    private final RouteAreas mAreas;
+    private final SegmentGrid mSegmentGrid;
+    private final RouteLod mLod;
+    private final RouteProgress mProgress;
+
+    // Only the OpenGL renderer needs it, built on first use on its thread.
+    private RouteMesh mMesh;
+
+    public Route(GeometryBuilder geometry) {
+        mGeometry = geometry;
+        mPolylines = RoutePolylines.of(geometry);
+        mSegments = new RouteSegments(mPolylines);
+        mSegmentGrid = new SegmentGrid(mSegments);
+        mAreas = new RouteAreas(geometry);
+        mLod = new RouteLod(mPolylines, mSegments, mSegmentGrid);
+        mProgress = createProgress(mPolylines);
+    }
+
+    // Riders follow the longest polyline, the course itself on our maps.
+    private static RouteProgress createProgress(RoutePolylines polylines) {
+        int polyline = polylines.getLongestPolyline();
+        if (polyline < 0) {
+            return new RouteProgress(new float[0], 0);
+        }
+        float[] vertices = polylines.copyVertices(polyline);
+        return new RouteProgress(vertices, vertices.length / 3);
+    }
+
+    public GeometryBuilder getGeometry() {
+        return mGeometry;
+    }
+
+    public RoutePolylines getPolylines() {
+        return mPolylines;
+    }
+
+    public RouteSegments getSegments() {
+        return mSegments;
+    }
+
+    public RouteAreas getAreas() {
+        return mAreas;
+    }
+
+    public SegmentGrid getSegmentGrid() {
+        return mSegmentGrid;
+    }
+
+    public RouteLod getLod() {
+        return mLod;
+    }
+
+    public RouteProgress getProgress() {
+        return mProgress;
+    }
+
+    public synchronized RouteMesh getMesh() {
+        if (mMesh == null) {
+            mMesh = new RouteMesh(mGeometry, mPolylines);
+        }
+        return mMesh;
+    }
+
+    public int getVertexCount() {
+        return mGeometry.getVertexCount();
+    }
+}
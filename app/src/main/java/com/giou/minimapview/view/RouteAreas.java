@@ -0,0 +1,188 @@
+package com.giou.minimapview.view;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import com.giou.minimapview.objparser.FloatArray;
+import com.giou.minimapview.objparser.GeometryBuilder;
+import com.giou.minimapview.objparser.IntArray;
+import com.giou.minimapview.objparser.MaterialTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Description: The faces of the route, the venues, zones and buildings of the
+ * map, triangulated once at load time and packed per material into x,y vertex
+ * and index arrays, so each material fills with one Canvas.drawVertices() call
+ * instead of one Path per polygon. Canvas indices are shorts, a material with
+ * more than 65536 vertices is split into several batches.
+ * drawVertices() needs a software canvas, like the route bitmap's.
+ */
+public class RouteAreas {
+
+    static final int MAX_BATCH_VERTICES = 1 << 16;
+
+    private static class Batch {
+        // MaterialTable.NO_MATERIAL for faces before the first usemtl.
+        final int material;
+        final int color;
+        final float[] vertices;
+        final short[] indices;
+        float minX;
+        float minY;
+        float maxX;
+        float maxY;
+
+        Batch(int material, int color, float[] vertices, short[] indices) {
+            this.material = material;
+            this.color = color;
+            this.vertices = vertices;
+            this.indices = indices;
+        }
+    }
+
+    private final Batch[] mBatches;
+    private final int mTriangleCount;
+
+    public RouteAreas(GeometryBuilder geometry) {
+        float[] vertices = geometry.getVertices();
+        int[] faceStarts = geometry.getFaceStarts();
+        int[] faceIndices = geometry.getFaceIndices();
+        int[] faceMaterials = geometry.getFaceMaterials();
+        int faceCount = geometry.getFaceCount();
+        MaterialTable materials = geometry.getMaterials();
+        if (faceCount == 0) {
+            // Plain routes, no need for the per vertex tables below.
+            mBatches = new Batch[0];
+            mTriangleCount = 0;
+            return;
+        }
+
+        // Faces ordered by material, NO_MATERIAL first.
+        int[] materialStarts = new int[materials.size() + 2];
+        for (int face = 0; face < faceCount; face++) {
+            materialStarts[faceMaterials[face] + 2]++;
+        }
+        for (int loopi = 1; loopi < materialStarts.length; loopi++) {
+            materialStarts[loopi] += materialStarts[loopi - 1];
+        }
+        int[] fill = Arrays.copyOf(materialStarts, materialStarts.length);
+        int[] faces = new int[faceCount];
+        for (int face = 0; face < faceCount; face++) {
+            faces[fill[faceMaterials[face] + 1]++] = face;
+        }
+
+        ArrayList<Batch> batches = new ArrayList<>();
+        FaceTriangulator triangulator = new FaceTriangulator();
+        IntArray triangles = new IntArray();
+        // Where each route vertex went in the batch being built, valid while
+        // its stamp is the batch's.
+        int[] batchIndex = new int[geometry.getVertexCount()];
+        int[] batchStamp = new int[geometry.getVertexCount()];
+        int stamp = 0;
+        FloatArray batchVertices = new FloatArray();
+        IntArray batchIndices = new IntArray();
+        int triangleCount = 0;
+
+        for (int material = MaterialTable.NO_MATERIAL; material < materials.size(); material++) {
+            int color = material == MaterialTable.NO_MATERIAL ? 0 : materials.getDiffuseArgb(material);
+            stamp++;
+            for (int loopi = materialStarts[material + 1]; loopi < materialStarts[material + 2]; loopi++) {
+                int face = faces[loopi];
+                triangles.clear();
+                triangleCount += triangulator.triangulate(vertices, faceIndices, faceStarts[face],
+                        faceStarts[face + 1], triangles);
+
+                // A face never spans two batches.
+                if (batchVertices.size() / 2 + triangles.size() > MAX_BATCH_VERTICES) {
+                    batches.add(createBatch(material, color, batchVertices, batchIndices));
+                    batchVertices.clear();
+                    batchIndices.clear();
+                    stamp++;
+                }
+                for (int corner = 0; corner < triangles.size(); corner++) {
+                    int vertex = triangles.get(corner);
+                    if (batchStamp[vertex] != stamp) {
+                        batchStamp[vertex] = stamp;
+                        batchIndex[vertex] = batchVertices.size() / 2;
+                        batchVertices.add(vertices[vertex * 3]);
+                        batchVertices.add(vertices[vertex * 3 + 1]);
+                    }
+                    batchIndices.add(batchIndex[vertex]);
+                }
+            }
+            if (batchIndices.size() > 0) {
+                batches.add(createBatch(material, color, batchVertices, batchIndices));
+                batchVertices.clear();
+                batchIndices.clear();
+            }
+        }
+
+        mBatches = batches.toArray(new Batch[batches.size()]);
+        mTriangleCount = triangleCount;
+    }
+
+    private static Batch createBatch(int material, int color, FloatArray vertices, IntArray indices) {
+        short[] packed = new short[indices.size()];
+        for (int loopi = 0; loopi < packed.length; loopi++) {
+            // Up to 65535, read back unsigned.
+            packed[loopi] = (short) indices.get(loopi);
+        }
+        Batch batch = new Batch(material, color, vertices.toArray(), packed);
+        batch.minX = batch.minY = Float.MAX_VALUE;
+        batch.maxX = batch.maxY = -Float.MAX_VALUE;
+        for (int loopi = 0; loopi < batch.vertices.length; loopi += 2) {
+            batch.minX = Math.min(batch.minX, batch.vertices[loopi]);
+            batch.minY = Math.min(batch.minY, batch.vertices[loopi + 1]);
+            batch.maxX = Math.max(batch.maxX, batch.vertices[loopi]);
+            batch.maxY = Math.max(batch.maxY, batch.vertices[loopi + 1]);
+        }
+        return batch;
+    }
+
+    public int getTriangleCount() {
+        return mTriangleCount;
+    }
+
+    public int getBatchCount() {
+        return mBatches.length;
+    }
+
+    public int getBatchMaterial(int batch) {
+        return mBatches[batch].material;
+    }
+
+    /**
+     * @return the x,y of the vertices of batch
+     */
+    public float[] getBatchVertices(int batch) {
+        return mBatches[batch].vertices;
+    }
+
+    /**
+     * @return three indices into getBatchVertices() per triangle, unsigned
+     */
+    public short[] getBatchIndices(int batch) {
+        return mBatches[batch].indices;
+    }
+
+    /**
+     * Fill the batches that may show in the rectangle, in route coordinates,
+     * each in the diffuse color of its material.
+     * @param paint     a fill paint, its color is used for faces without a
+     *                  material and changed for the others
+     */
+    public void draw(Canvas canvas, Paint paint, float left, float top, float right, float bottom) {
+        int defaultColor = paint.getColor();
+        for (Batch batch : mBatches) {
+            if (batch.maxX < left || batch.minX > right || batch.maxY < top || batch.minY > bottom) {
+                continue;
+            }
+            paint.setColor(batch.material == MaterialTable.NO_MATERIAL ? defaultColor : batch.color);
+            canvas.drawVertices(Canvas.VertexMode.TRIANGLES, batch.vertices.length, batch.vertices, 0,
+                    null, 0, null, 0, batch.indices, 0, batch.indices.length, paint);
+        }
+        paint.setColor(defaultColor);
+    }
+}
@@ -0,0 +1,291 @@
+package com.giou.minimapview.view;
+
+import android.graphics.Color;
+import android.opengl.GLES20;
+import android.opengl.GLSurfaceView;
+import android.opengl.Matrix;
+import android.util.Log;
+
+import java.nio.FloatBuffer;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Description: OpenGL ES 2.0 renderer for MiniMapGLView. The route is uploaded
+ * into vertex buffers once per load, every frame only sets the camera and issues
+ * a few draw calls, so tilting and zooming cost next to nothing.
+ */
+public class RouteGLRenderer implements GLSurfaceView.Renderer {
+
+    private static final String TAG = RouteGLRenderer.class.getSimpleName();
+
+    private static final String VERTEX_SHADER =
+            "uniform mat4 uMvp;\n" +
+            "uniform float uPointSize;\n" +
+            "attribute vec3 aPosition;\n" +
+            "void main() {\n" +
+            "    gl_Position = uMvp * vec4(aPosition, 1.0);\n" +
+            "    gl_PointSize = uPointSize;\n" +
+            "}\n";
+
+    private static final String FRAGMENT_SHADER =
+            "precision mediump float;\n" +
+            "uniform vec4 uColor;\n" +
+            "void main() {\n" +
+            "    gl_FragColor = uColor;\n" +
+            "}\n";
+
+    private static final float FIELD_OF_VIEW = 45f;
+
+    private static final int BUFFER_LINES       = 0;
+    private static final int BUFFER_TRIANGLES   = 1;
+    private static final int BUFFER_MARKERS     = 2;
+
+    private final float[] mBackgroundColor;
+    private final float[] mRouteColor;
+    private final float[] mFaceColor;
+    private final float[] mMarkerColor;
+    private final float mLineWidth;
+    private final float mMarkerSize;
+
+    private final float[] mProjection = new float[16];
+    private final float[] mView = new float[16];
+    private final float[] mModel = new float[16];
+    private final float[] mViewProjection = new float[16];
+    private final float[] mMvp = new float[16];
+
+    private int mProgram;
+    private int mPositionHandle;
+    private int mMvpHandle;
+    private int mColorHandle;
+    private int mPointSizeHandle;
+    private final int[] mBuffers = new int[3];
+
+    private int mWidth;
+    private int mHeight;
+
+    private int mLineVertexCount;
+    private int mTriangleVertexCount;
+    private int mMarkerVertexCount;
+    private FloatBuffer mMarkerBuffer = RouteMesh.allocate(0);
+
+    // Shared with the ui thread, guarded by this.
+    private Route mRoute;
+    private boolean mRouteChanged;
+    private float mZoom = 1f;
+    private float mPanX;
+    private float mPanY;
+    private float mTilt;
+    private float[] mMarkers = new float[0];
+    private int mMarkerCount;
+    private boolean mMarkersChanged;
+
+    // Frame copies of the shared state.
+    private float mFrameZoom;
+    private float mFramePanX;
+    private float mFramePanY;
+    private float mFrameTilt;
+
+    public RouteGLRenderer(int backgroundColor, int routeColor, int faceColor, int markerColor,
+                           float lineWidth, float markerSize) {
+        mBackgroundColor = toGlColor(backgroundColor);
+        mRouteColor = toGlColor(routeColor);
+        mFaceColor = toGlColor(faceColor);
+        mMarkerColor = toGlColor(markerColor);
+        mLineWidth = lineWidth;
+        mMarkerSize = markerSize;
+    }
+
+    public synchronized void setRoute(Route route) {
+        mRoute = route;
+        mRouteChanged = true;
+    }
+
+    public synchronized void setCamera(float zoom, float panX, float panY, float tilt) {
+        mZoom = zoom;
+        mPanX = panX;
+        mPanY = panY;
+        mTilt = tilt;
+    }
+
+    /**
+     * @param positions     x,y,z of every marker, in route coordinates
+     * @param count         number of markers
+     */
+    public synchronized void setMarkers(float[] positions, int count) {
+        if (mMarkers.length < count * 3) {
+            mMarkers = new float[count * 3];
+        }
+        System.arraycopy(positions, 0, mMarkers, 0, count * 3);
+        mMarkerCount = count;
+        mMarkersChanged = true;
+    }
+
+    @Override
+    public void onSurfaceCreated(GL10 unused, EGLConfig config) {
+        mProgram = createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        mPositionHandle = GLES20.glGetAttribLocation(mProgram, "aPosition");
+        mMvpHandle = GLES20.glGetUniformLocation(mProgram, "uMvp");
+        mColorHandle = GLES20.glGetUniformLocation(mProgram, "uColor");
+        mPointSizeHandle = GLES20.glGetUniformLocation(mProgram, "uPointSize");
+
+        GLES20.glGenBuffers(mBuffers.length, mBuffers, 0);
+        GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+
+        // A new context has lost the old buffers.
+        synchronized (this) {
+            mRouteChanged = true;
+            mMarkersChanged = true;
+        }
+    }
+
+    @Override
+    public void onSurfaceChanged(GL10 unused, int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        GLES20.glViewport(0, 0, width, height);
+
+        // Far enough back that at tilt 0 one route unit at zoom 1 is one pixel.
+        float distance = cameraDistance();
+        Matrix.perspectiveM(mProjection, 0, FIELD_OF_VIEW, (float) width / Math.max(height, 1),
+                distance / 10f, distance * 10f);
+        // Looking down +z with y pointing down, like the Canvas coordinates.
+        Matrix.setLookAtM(mView, 0, width / 2f, height / 2f, -distance,
+                width / 2f, height / 2f, 0f, 0f, -1f, 0f);
+        Matrix.multiplyMM(mViewProjection, 0, mProjection, 0, mView, 0);
+    }
+
+    @Override
+    public void onDrawFrame(GL10 unused) {
+        Route route = null;
+        boolean markersChanged;
+        synchronized (this) {
+            if (mRouteChanged) {
+                route = mRoute;
+                mRouteChanged = false;
+            }
+            markersChanged = mMarkersChanged;
+            if (markersChanged) {
+                if (mMarkerBuffer.capacity() < mMarkerCount * 3) {
+                    mMarkerBuffer = RouteMesh.allocate(mMarkerCount * 3);
+                }
+                mMarkerBuffer.clear();
+                mMarkerBuffer.put(mMarkers, 0, mMarkerCount * 3);
+                mMarkerBuffer.flip();
+                mMarkersChanged = false;
+            }
+            mFrameZoom = mZoom;
+            mFramePanX = mPanX;
+            mFramePanY = mPanY;
+            mFrameTilt = mTilt;
+        }
+        if (route != null) {
+            uploadRoute(route.getMesh());
+        }
+        if (markersChanged) {
+            mMarkerVertexCount = mMarkerBuffer.remaining() / RouteMesh.FLOATS_PER_VERTEX;
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mBuffers[BUFFER_MARKERS]);
+            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mMarkerBuffer.remaining() * RouteMesh.BYTES_PER_FLOAT,
+                    mMarkerBuffer, GLES20.GL_DYNAMIC_DRAW);
+        }
+
+        GLES20.glClearColor(mBackgroundColor[0], mBackgroundColor[1], mBackgroundColor[2], mBackgroundColor[3]);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+
+        updateModel();
+        Matrix.multiplyMM(mMvp, 0, mViewProjection, 0, mModel, 0);
+
+        GLES20.glUseProgram(mProgram);
+        GLES20.glUniformMatrix4fv(mMvpHandle, 1, false, mMvp, 0);
+        GLES20.glUniform1f(mPointSizeHandle, mMarkerSize);
+        GLES20.glEnableVertexAttribArray(mPositionHandle);
+
+        drawBuffer(BUFFER_TRIANGLES, GLES20.GL_TRIANGLES, mTriangleVertexCount, mFaceColor);
+        GLES20.glLineWidth(mLineWidth);
+        drawBuffer(BUFFER_LINES, GLES20.GL_LINES, mLineVertexCount, mRouteColor);
+        drawBuffer(BUFFER_MARKERS, GLES20.GL_POINTS, mMarkerVertexCount, mMarkerColor);
+
+        GLES20.glDisableVertexAttribArray(mPositionHandle);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
+
+    private void uploadRoute(RouteMesh mesh) {
+        FloatBuffer lines = mesh.getLineVertices();
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mBuffers[BUFFER_LINES]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, lines.remaining() * RouteMesh.BYTES_PER_FLOAT,
+                lines, GLES20.GL_STATIC_DRAW);
+        mLineVertexCount = mesh.getLineVertexCount();
+
+        FloatBuffer triangles = mesh.getTriangleVertices();
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mBuffers[BUFFER_TRIANGLES]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, triangles.remaining() * RouteMesh.BYTES_PER_FLOAT,
+                triangles, GLES20.GL_STATIC_DRAW);
+        mTriangleVertexCount = mesh.getTriangleVertexCount();
+    }
+
+    private void drawBuffer(int buffer, int mode, int vertexCount, float[] color) {
+        if (vertexCount == 0) {
+            return;
+        }
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mBuffers[buffer]);
+        GLES20.glVertexAttribPointer(mPositionHandle, RouteMesh.FLOATS_PER_VERTEX, GLES20.GL_FLOAT, false,
+                RouteMesh.FLOATS_PER_VERTEX * RouteMesh.BYTES_PER_FLOAT, 0);
+        GLES20.glUniform4fv(mColorHandle, 1, color, 0);
+        GLES20.glDrawArrays(mode, 0, vertexCount);
+    }
+
+    // Route units to pixels like the Canvas path (scale by zoom, then pan), then
+    // tilted back around the horizontal center line of the view.
+    private void updateModel() {
+        float centerX = mWidth / 2f;
+        float centerY = mHeight / 2f;
+        Matrix.setIdentityM(mModel, 0);
+        Matrix.translateM(mModel, 0, centerX, centerY, 0f);
+        Matrix.rotateM(mModel, 0, mFrameTilt, 1f, 0f, 0f);
+        Matrix.translateM(mModel, 0, -centerX, -centerY, 0f);
+        Matrix.translateM(mModel, 0, mFramePanX, mFramePanY, 0f);
+        // Route z is height, towards the camera.
+        Matrix.scaleM(mModel, 0, mFrameZoom, mFrameZoom, -mFrameZoom);
+    }
+
+    private float cameraDistance() {
+        return (mHeight / 2f) / (float) Math.tan(Math.toRadians(FIELD_OF_VIEW / 2f));
+    }
+
+    private static int createProgram(String vertexSource, String fragmentSource) {
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, loadShader(GLES20.GL_VERTEX_SHADER, vertexSource));
+        GLES20.glAttachShader(program, loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource));
+        GLES20.glLinkProgram(program);
+
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] == 0) {
+            Log.e(TAG, "link failed: " + GLES20.glGetProgramInfoLog(program));
+        }
+        return program;
+    }
+
+    private static int loadShader(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            Log.e(TAG, "compile failed: " + GLES20.glGetShaderInfoLog(shader));
+        }
+        return shader;
+    }
+
+    private static float[] toGlColor(int color) {
+        return new float[] {
+                Color.red(color) / 255f,
+                Color.green(color) / 255f,
+                Color.blue(color) / 255f,
+                Color.alpha(color) / 255f
+        };
+    }
+}
@@ -0,0 +1,278 @@
+package com.giou.minimapview.view;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Message;
+
+import com.giou.minimapview.objparser.AssetSource;
+import com.giou.minimapview.objparser.FileSource;
+import com.giou.minimapview.objparser.GeometryBuilder;
+import com.giou.minimapview.objparser.ObjSource;
+import com.giou.minimapview.objparser.ObjectParser;
+import com.giou.minimapview.objparser.StreamingGeometryBuilder;
+import com.giou.minimapview.objparser.VertexStream;
+import com.giou.minimapview.utils.AndroidChannel;
+import com.giou.minimapview.utils.LanePool;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Description: Parses routes and builds their drawing structures on a
+ * background lane, see LanePool, and posts progress and the finished route
+ * back to the ui thread.
+ */
+public class RouteLoader {
+
+    /**
+     * All callbacks arrive on the ui thread, and never for a load that was
+     * cancelled or replaced by a newer one.
+     */
+    public interface Callback {
+        void onLoadProgress(String fileName, float progress);
+
+        void onLoadComplete(String fileName, Route route);
+
+        void onLoadFailed(String fileName, Exception e);
+    }
+
+    private static final int MSG_LOAD       = 0;
+    private static final int MSG_PROGRESS   = 1;
+    private static final int MSG_COMPLETE   = 2;
+    private static final int MSG_FAILED     = 3;
+
+    private final Context mContext;
+    private final Callback mCallback;
+
+    private AndroidChannel mAndroidChannel;
+    private AndroidChannel.WorkerLane mLoadLane;
+
+    // Read on the lane, which must not touch mAndroidChannel while close() runs.
+    // Its send methods turn into no-ops once it is closed.
+    private volatile AndroidChannel mToUI;
+
+    // Bumped on the ui thread for every load or cancel, results of older loads are dropped.
+    private volatile int mGeneration = 0;
+
+    // The parser of the latest load, set on the ui thread before the load is
+    // queued so a cancel reaches it even before the lane picks it up.
+    private ObjectParser mParser;
+
+
+    public RouteLoader(Context context, Callback callback) {
+        mContext = context;
+        mCallback = callback;
+    }
+
+    /**
+     * Start loading fileName on the background lane, cancelling any load in progress.
+     * Must be called on the ui thread.
+     */
+    public void load(String fileName) {
+        load(fileName, null);
+    }
+
+    /**
+     * Like load(String), also publishing the vertices to stream while parsing so
+     * the route can be drawn before it is complete.
+     * @param stream    null to only get the finished route
+     */
+    public void load(String fileName, VertexStream stream) {
+        cancelRunning();
+
+        if (mAndroidChannel == null) {
+            openChannel();
+        }
+        mParser = createParser();
+        // A load still waiting for the lane is stale, replace it where it sits.
+        mLoadLane.coalesce(MSG_LOAD, mGeneration, 0, new LoadRequest(fileName, stream, mParser), null);
+    }
+
+    /**
+     * Cancel the load in progress, if any. Must be called on the ui thread.
+     */
+    public void cancel() {
+        cancelRunning();
+        if (mLoadLane != null) {
+            mLoadLane.remove(MSG_LOAD);
+        }
+    }
+
+    // Stop the parse in progress and drop its results. A load still waiting
+    // for the lane is left for load() to coalesce into.
+    private void cancelRunning() {
+        mGeneration++;
+
+        // A parser that hasn't started yet stays cancelled, its parse throws
+        // as soon as it starts.
+        if (mParser != null) {
+            mParser.cancel();
+            mParser = null;
+        }
+        if (mAndroidChannel != null) {
+            mAndroidChannel.removeAllUIMessages();
+        }
+    }
+
+    /**
+     * Cancel and close the lane, a later load() opens a new one.
+     */
+    public void close() {
+        cancel();
+
+        if (mAndroidChannel != null) {
+            // Closes mLoadLane too.
+            mAndroidChannel.close();
+            mAndroidChannel = null;
+            mLoadLane = null;
+        }
+    }
+
+    /**
+     * Parse fileName on the calling thread.
+     */
+    public Route parse(String fileName) throws IOException {
+        return parse(fileName, createParser(), null, null);
+    }
+
+    private ObjectParser createParser() {
+        ObjectParser parser = new ObjectParser(null);
+        parser.setCacheDir(mContext.getCacheDir());
+        // Big files are parsed in chunks on the shared background threads, the
+        // lane's own among them. Chunks no other thread has started yet are
+        // parsed on this one.
+        parser.setExecutor(LanePool.getExecutor(LanePool.PRIORITY_BACKGROUND));
+        return parser;
+    }
+
+    private Route parse(String fileName, ObjectParser parser, VertexStream stream,
+                        ObjectParser.OnProgressListener progressListener) throws IOException {
+        ObjSource source = openSource(fileName);
+        parser.setOnProgressListener(progressListener);
+
+        GeometryBuilder geometry;
+        if (stream != null) {
+            // Counting the vertices first reads the whole file before the first
+            // batch could be published, growing the buffers is cheaper than that.
+            geometry = new StreamingGeometryBuilder(stream);
+        } else {
+            geometry = new GeometryBuilder(parser.countVertices(source));
+        }
+        parser.setBuilder(geometry);
+        parser.parse(source);
+        return new Route(geometry);
+    }
+
+    // Absolute paths are files, anything else is an asset.
+    private ObjSource openSource(String fileName) {
+        if (fileName.startsWith(File.separator)) {
+            return new FileSource(new File(fileName));
+        }
+        // Assets change with the app only, its update time stamps them without
+        // reading them.
+        try {
+            long lastUpdateTime = mContext.getPackageManager()
+                    .getPackageInfo(mContext.getPackageName(), 0).lastUpdateTime;
+            return new AssetSource(mContext.getAssets(), fileName, lastUpdateTime);
+        } catch (PackageManager.NameNotFoundException e) {
+            return new AssetSource(mContext.getAssets(), fileName);
+        }
+    }
+
+    private void openChannel() {
+        mAndroidChannel = new AndroidChannel(new AndroidChannel.UiCallback() {
+            @Override
+            public boolean handleUiMessage(Message msg) {
+                if (msg.arg1 != mGeneration) {
+                    return true;
+                }
+                LoadResult result = (LoadResult) msg.obj;
+                switch (msg.what) {
+                    case MSG_PROGRESS:
+                        mCallback.onLoadProgress(result.fileName, result.progress);
+                        break;
+                    case MSG_COMPLETE:
+                        mParser = null;
+                        mCallback.onLoadComplete(result.fileName, result.route);
+                        break;
+                    case MSG_FAILED:
+                        mParser = null;
+                        mCallback.onLoadFailed(result.fileName, result.exception);
+                        break;
+                }
+                return true;
+            }
+        });
+        mToUI = mAndroidChannel;
+        mLoadLane = mAndroidChannel.openLane("route-loader", LanePool.PRIORITY_BACKGROUND,
+                new AndroidChannel.WorkerCallback() {
+                    @Override
+                    public boolean handleWorkerMessage(Message msg) {
+                        if (msg.what == MSG_LOAD) {
+                            load((LoadRequest) msg.obj, msg.arg1);
+                        }
+                        return true;
+                    }
+                });
+    }
+
+    // Runs on the lane, the route's segments, grid, areas and levels of
+    // detail are built here too.
+    private void load(LoadRequest request, final int generation) {
+        if (generation != mGeneration) {
+            return;
+        }
+        final String fileName = request.fileName;
+        final AndroidChannel toUI = mToUI;
+
+        LoadResult result = new LoadResult(fileName);
+        try {
+            result.route = parse(fileName, request.parser, request.stream, new ObjectParser.OnProgressListener() {
+
+                int lastPercent = -1;
+
+                @Override
+                public void onProgress(long bytesRead, long totalBytes) {
+                    if (totalBytes <= 0) {
+                        return;
+                    }
+                    int percent = (int) (Math.min(bytesRead, totalBytes) * 100 / totalBytes);
+                    if (percent != lastPercent) {
+                        lastPercent = percent;
+                        LoadResult progress = new LoadResult(fileName);
+                        progress.progress = percent / 100f;
+                        // Only the latest progress matters to a busy ui thread.
+                        toUI.coalesceToUI(MSG_PROGRESS, generation, 0, progress);
+                    }
+                }
+            });
+            toUI.sendToUI(MSG_COMPLETE, generation, 0, result);
+        } catch (Exception e) {
+            result.exception = e;
+            toUI.sendToUI(MSG_FAILED, generation, 0, result);
+        }
+    }
+
+    private static class LoadRequest {
+        final String fileName;
+        final VertexStream stream;
+        final ObjectParser parser;
+
+        LoadRequest(String fileName, VertexStream stream, ObjectParser parser) {
+            this.fileName = fileName;
+            this.stream = stream;
+            this.parser = parser;
+        }
+    }
+
+    private static class LoadResult {
+        final String fileName;
+        float progress;
+        Route route;
+        Exception exception;
+
+        LoadResult(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+}
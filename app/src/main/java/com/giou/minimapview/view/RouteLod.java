@@ -0,0 +1,175 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.FloatArray;
+import com.giou.minimapview.objparser.IntArray;
+
+import java.util.ArrayList;
+
+/**
+ * Description: Level of detail pyramid of the route polylines. Level 0 is the full
+ * route, every further level is a Douglas-Peucker simplification of each
+ * polyline with a four times larger tolerance, each with its own segments and
+ * grid. The levels share the vertices, they only keep fewer indices.
+ */
+public class RouteLod {
+
+    private static final float FINEST_TOLERANCE = 0.25f;
+    private static final float LEVEL_STEP = 4f;
+
+    // Levels simpler than this are not worth a separate copy.
+    private static final int MIN_LEVEL_VERTICES = 16;
+
+    private final float[] mTolerances;
+    private final RouteSegments[] mSegments;
+    private final SegmentGrid[] mGrids;
+
+    /**
+     * @param polylines     the route
+     * @param segments      the full detail segments, reused as level 0
+     * @param grid          the grid over segments
+     */
+    public RouteLod(RoutePolylines polylines, RouteSegments segments, SegmentGrid grid) {
+        float[] vertices = polylines.getVertices();
+        int[] starts = polylines.getStarts();
+        int[] indices = polylines.getIndices();
+        float[] importance = new float[polylines.getIndexCount()];
+        for (int polyline = 0; polyline < polylines.getPolylineCount(); polyline++) {
+            computeImportance(vertices, indices, starts[polyline], starts[polyline + 1], importance);
+        }
+
+        FloatArray tolerances = new FloatArray();
+        ArrayList<RouteSegments> levelSegments = new ArrayList<>();
+        ArrayList<SegmentGrid> levelGrids = new ArrayList<>();
+        tolerances.add(0);
+        levelSegments.add(segments);
+        levelGrids.add(grid);
+
+        // Every polyline keeps its two ends at any tolerance.
+        int minCount = Math.max(MIN_LEVEL_VERTICES, 2 * polylines.getPolylineCount());
+        int previousCount = importance.length;
+        for (float tolerance = FINEST_TOLERANCE; previousCount > minCount; tolerance *= LEVEL_STEP) {
+            int keptCount = 0;
+            for (float value : importance) {
+                if (value > tolerance) {
+                    keptCount++;
+                }
+            }
+            if (keptCount == previousCount) {
+                // Nothing dropped at this tolerance, try the next one.
+                continue;
+            }
+            RouteSegments simplified = new RouteSegments(polylines.simplify(importance, tolerance));
+            tolerances.add(tolerance);
+            levelSegments.add(simplified);
+            levelGrids.add(new SegmentGrid(simplified));
+            previousCount = keptCount;
+        }
+
+        mTolerances = tolerances.toArray();
+        mSegments = levelSegments.toArray(new RouteSegments[levelSegments.size()]);
+        mGrids = levelGrids.toArray(new SegmentGrid[levelGrids.size()]);
+    }
+
+    public int getLevelCount() {
+        return mTolerances.length;
+    }
+
+    /**
+     * @return the largest distance, in route units, between a level and the full route
+     */
+    public float getTolerance(int level) {
+        return mTolerances[level];
+    }
+
+    public RouteSegments getSegments(int level) {
+        return mSegments[level];
+    }
+
+    public SegmentGrid getGrid(int level) {
+        return mGrids[level];
+    }
+
+    /**
+     * @param zoom  pixels per route unit
+     * @return the coarsest level that stays within one pixel of the full route
+     */
+    public int selectLevel(float zoom) {
+        int level = 0;
+        while (level + 1 < mTolerances.length && mTolerances[level + 1] * zoom < 1f) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * One Douglas-Peucker pass over the polyline indices[first .. end) that
+     * records, for every index, the largest tolerance its vertex survives.
+     * Capping a vertex by the value of the split that produced it keeps the
+     * levels nested: whatever a coarse level keeps, every finer level keeps too.
+     * @param importance    receives the values at first .. end
+     */
+    static void computeImportance(float[] vertices, int[] indices, int first, int end, float[] importance) {
+        if (end == first) {
+            return;
+        }
+        importance[first] = Float.MAX_VALUE;
+        importance[end - 1] = Float.MAX_VALUE;
+
+        // Explicit stack of (first, last, cap), a recursion could overflow on long routes.
+        IntArray ranges = new IntArray();
+        FloatArray caps = new FloatArray();
+        ranges.add(first);
+        ranges.add(end - 1);
+        caps.add(Float.MAX_VALUE);
+
+        while (caps.size() > 0) {
+            int last = ranges.get(ranges.size() - 1);
+            int from = ranges.get(ranges.size() - 2);
+            float cap = caps.get(caps.size() - 1);
+            ranges.setSize(ranges.size() - 2);
+            caps.setSize(caps.size() - 1);
+
+            if (last - from < 2) {
+                continue;
+            }
+
+            int farthest = from + 1;
+            float maxDistance = -1;
+            for (int loopi = from + 1; loopi < last; loopi++) {
+                float distance = distanceToSegment(vertices, indices[loopi], indices[from], indices[last]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = loopi;
+                }
+            }
+
+            float value = Math.min(maxDistance, cap);
+            importance[farthest] = value;
+            ranges.add(from);
+            ranges.add(farthest);
+            caps.add(value);
+            ranges.add(farthest);
+            ranges.add(last);
+            caps.add(value);
+        }
+    }
+
+    private static float distanceToSegment(float[] vertices, int point, int first, int last) {
+        float px = vertices[point * 3];
+        float py = vertices[point * 3 + 1];
+        float ax = vertices[first * 3];
+        float ay = vertices[first * 3 + 1];
+        float dx = vertices[last * 3] - ax;
+        float dy = vertices[last * 3 + 1] - ay;
+
+        float lengthSquared = dx * dx + dy * dy;
+        float t = 0;
+        if (lengthSquared > 0) {
+            t = ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+            t = Math.max(0, Math.min(1, t));
+        }
+        float ex = ax + t * dx - px;
+        float ey = ay + t * dy - py;
+        return (float) Math.sqrt(ex * ex + ey * ey);
+    }
+}
@@ -0,0 +1,90 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.GeometryBuilder;
+import com.giou.minimapview.objparser.IntArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Description: Route geometry laid out for OpenGL ES vertex buffers: the route
+ * polylines as GL_LINES endpoint pairs and the faces, ear clipped, as a
+ * GL_TRIANGLES list, x,y,z per vertex. The buffers are direct and in native
+ * order, flipped and ready for glVertexAttribPointer. Route builds it on the
+ * GL thread the first time the renderer asks, the canvas view never needs one.
+ */
+public class RouteMesh {
+
+    public static final int FLOATS_PER_VERTEX = 3;
+    public static final int BYTES_PER_FLOAT = 4;
+
+    private final FloatBuffer mLineVertices;
+    private final int mLineVertexCount;
+
+    private final FloatBuffer mTriangleVertices;
+    private final int mTriangleVertexCount;
+
+    public RouteMesh(GeometryBuilder geometry) {
+        this(geometry, RoutePolylines.of(geometry));
+    }
+
+    /**
+     * @param polylines     the lines of geometry, as the Canvas path draws them
+     */
+    public RouteMesh(GeometryBuilder geometry, RoutePolylines polylines) {
+        float[] vertices = geometry.getVertices();
+
+        int[] starts = polylines.getStarts();
+        int[] indices = polylines.getIndices();
+        mLineVertexCount = polylines.getSegmentCount() * 2;
+        mLineVertices = allocate(mLineVertexCount * FLOATS_PER_VERTEX);
+        for (int polyline = 0; polyline < polylines.getPolylineCount(); polyline++) {
+            for (int loopi = starts[polyline] + 1; loopi < starts[polyline + 1]; loopi++) {
+                mLineVertices.put(vertices, indices[loopi - 1] * 3, 3);
+                mLineVertices.put(vertices, indices[loopi] * 3, 3);
+            }
+        }
+        mLineVertices.flip();
+
+        // Ear clip every face, a fan would spill out of concave ones.
+        int[] faceStarts = geometry.getFaceStarts();
+        int[] faceIndices = geometry.getFaceIndices();
+        FaceTriangulator triangulator = new FaceTriangulator();
+        IntArray triangles = new IntArray();
+        for (int face = 0; face < geometry.getFaceCount(); face++) {
+            triangulator.triangulate(vertices, faceIndices, faceStarts[face], faceStarts[face + 1], triangles);
+        }
+        mTriangleVertexCount = triangles.size();
+        mTriangleVertices = allocate(mTriangleVertexCount * FLOATS_PER_VERTEX);
+        for (int loopi = 0; loopi < triangles.size(); loopi++) {
+            mTriangleVertices.put(vertices, triangles.get(loopi) * 3, 3);
+        }
+        mTriangleVertices.flip();
+    }
+
+    public FloatBuffer getLineVertices() {
+        return mLineVertices;
+    }
+
+    public int getLineVertexCount() {
+        return mLineVertexCount;
+    }
+
+    public FloatBuffer getTriangleVertices() {
+        return mTriangleVertices;
+    }
+
+    public int getTriangleVertexCount() {
+        return mTriangleVertexCount;
+    }
+
+    /**
+     * A direct, native order buffer, what glBufferData() wants.
+     */
+    static FloatBuffer allocate(int floatCount) {
+        return ByteBuffer.allocateDirect(floatCount * BYTES_PER_FLOAT)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+}
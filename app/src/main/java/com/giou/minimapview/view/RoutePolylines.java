@@ -0,0 +1,212 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.GeometryBuilder;
+import com.giou.minimapview.objparser.IntArray;
+import com.giou.minimapview.objparser.MaterialTable;
+
+/**
+ * Description: The route as separate polylines indexing into one shared vertex
+ * array, grouped by the objects (o and g) of the OBJ file, so unrelated shapes
+ * are never joined and each object can be culled on its own. Simplified levels
+ * share the vertices and only drop indices. Keeps the arrays it is given and
+ * never changes them, so the ui thread can draw one level while another is
+ * built from the same vertices.
+ */
+public class RoutePolylines {
+
+    private final float[] mVertices;
+    private final int mVertexCount;
+
+    // Vertices of polyline p are mIndices[mStarts[p] .. mStarts[p + 1]).
+    private final int[] mStarts;
+    private final int[] mIndices;
+    private final int mPolylineCount;
+    // Material id per polyline and diffuse argb per material id.
+    private final int[] mMaterials;
+    private final int[] mMaterialColors;
+
+    // Polylines of object o are [mObjectStarts[o], mObjectStarts[o + 1]).
+    private final int[] mObjectStarts;
+    private final String[] mObjectNames;
+
+    /**
+     * @param starts        polylineCount + 1 offsets into indices
+     * @param materials     material id of every polyline, MaterialTable.NO_MATERIAL for none
+     * @param materialColors    argb of every material id
+     * @param objectStarts  objectCount + 1 polyline indices
+     */
+    public RoutePolylines(float[] vertices, int vertexCount, int[] starts, int[] indices, int polylineCount,
+                          int[] materials, int[] materialColors, int[] objectStarts, String[] objectNames) {
+        mVertices = vertices;
+        mVertexCount = vertexCount;
+        mStarts = starts;
+        mIndices = indices;
+        mPolylineCount = polylineCount;
+        mMaterials = materials;
+        mMaterialColors = materialColors;
+        mObjectStarts = objectStarts;
+        mObjectNames = objectNames;
+    }
+
+    /**
+     * The l elements of geometry, by object. Files with neither lines nor faces
+     * are plain vertex lists, those are chained in order into one polyline as
+     * they always were.
+     */
+    public static RoutePolylines of(GeometryBuilder geometry) {
+        float[] vertices = geometry.getVertices();
+        int vertexCount = geometry.getVertexCount();
+        MaterialTable materials = geometry.getMaterials();
+        int[] materialColors = new int[materials.size()];
+        for (int material = 0; material < materialColors.length; material++) {
+            materialColors[material] = materials.getDiffuseArgb(material);
+        }
+
+        if (geometry.getLineCount() == 0 && geometry.getFaceCount() == 0) {
+            int[] indices = new int[vertexCount];
+            for (int loopi = 0; loopi < vertexCount; loopi++) {
+                indices[loopi] = loopi;
+            }
+            int polylineCount = vertexCount >= 2 ? 1 : 0;
+            return new RoutePolylines(vertices, vertexCount, new int[] {0, vertexCount}, indices, polylineCount,
+                    new int[] {MaterialTable.NO_MATERIAL}, materialColors, new int[] {0, polylineCount},
+                    new String[] {null});
+        }
+
+        // Objects that only have faces keep an empty range, so object numbers
+        // match the geometry.
+        int objectCount = geometry.getObjectCount();
+        int[] objectStarts = new int[objectCount + 1];
+        String[] objectNames = new String[objectCount];
+        for (int object = 0; object < objectCount; object++) {
+            objectStarts[object] = geometry.getObjectFirstLine(object);
+            objectNames[object] = geometry.getObjectName(object);
+        }
+        objectStarts[objectCount] = geometry.getLineCount();
+        return new RoutePolylines(vertices, vertexCount, geometry.getLineStarts(), geometry.getLineIndices(),
+                geometry.getLineCount(), geometry.getLineMaterials(), materialColors, objectStarts, objectNames);
+    }
+
+    public float[] getVertices() {
+        return mVertices;
+    }
+
+    public int getVertexCount() {
+        return mVertexCount;
+    }
+
+    public int getPolylineCount() {
+        return mPolylineCount;
+    }
+
+    /**
+     * Offsets into getIndices(), getPolylineCount() + 1 of them.
+     */
+    public int[] getStarts() {
+        return mStarts;
+    }
+
+    public int[] getIndices() {
+        return mIndices;
+    }
+
+    /**
+     * @return the total number of indices, valid in getIndices()
+     */
+    public int getIndexCount() {
+        return mStarts[mPolylineCount];
+    }
+
+    /**
+     * @return the segments of all polylines together
+     */
+    public int getSegmentCount() {
+        return getIndexCount() - mPolylineCount;
+    }
+
+    /**
+     * @return the usemtl material id of polyline, MaterialTable.NO_MATERIAL for none
+     */
+    public int getMaterial(int polyline) {
+        return mMaterials[polyline];
+    }
+
+    /**
+     * @return the diffuse argb of material, see MaterialTable.getDiffuseArgb()
+     */
+    public int getMaterialColor(int material) {
+        return mMaterialColors[material];
+    }
+
+    public int getObjectCount() {
+        return mObjectNames.length;
+    }
+
+    /**
+     * @return the o or g name of object, null before the first one
+     */
+    public String getObjectName(int object) {
+        return mObjectNames[object];
+    }
+
+    /**
+     * Polyline indices, getObjectCount() + 1 of them.
+     */
+    public int[] getObjectStarts() {
+        return mObjectStarts;
+    }
+
+    /**
+     * @return the polyline with the longest arc length, -1 if there is none
+     */
+    public int getLongestPolyline() {
+        int longest = -1;
+        double longestLength = -1;
+        for (int polyline = 0; polyline < mPolylineCount; polyline++) {
+            double length = 0;
+            for (int loopi = mStarts[polyline] + 1; loopi < mStarts[polyline + 1]; loopi++) {
+                int from = mIndices[loopi - 1] * 3;
+                int to = mIndices[loopi] * 3;
+                float dx = mVertices[to] - mVertices[from];
+                float dy = mVertices[to + 1] - mVertices[from + 1];
+                length += Math.sqrt(dx * dx + dy * dy);
+            }
+            if (length > longestLength) {
+                longestLength = length;
+                longest = polyline;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * @return the x,y,z of the vertices of polyline, in order
+     */
+    public float[] copyVertices(int polyline) {
+        int first = mStarts[polyline];
+        float[] copy = new float[(mStarts[polyline + 1] - first) * 3];
+        for (int loopi = 0; loopi < copy.length; loopi += 3) {
+            System.arraycopy(mVertices, mIndices[first + loopi / 3] * 3, copy, loopi, 3);
+        }
+        return copy;
+    }
+
+    /**
+     * The same polylines without the vertices of importance tolerance or less.
+     * @param importance    per index, see RouteLod.computeImportance()
+     */
+    public RoutePolylines simplify(float[] importance, float tolerance) {
+        int[] starts = new int[mPolylineCount + 1];
+        IntArray kept = new IntArray(getIndexCount());
+        for (int polyline = 0; polyline < mPolylineCount; polyline++) {
+            for (int loopi = mStarts[polyline]; loopi < mStarts[polyline + 1]; loopi++) {
+                if (importance[loopi] > tolerance) {
+                    kept.add(mIndices[loopi]);
+                }
+            }
+            starts[polyline + 1] = kept.size();
+        }
+        return new RoutePolylines(mVertices, mVertexCount, starts, kept.toArray(), mPolylineCount,
+                mMaterials, mMaterialColors, mObjectStarts, mObjectNames);
+    }
+}
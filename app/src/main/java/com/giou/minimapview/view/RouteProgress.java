@@ -0,0 +1,85 @@
+package com.giou.minimapview.view;
+
+import java.util.Arrays;
+
+/**
+ * Description: Maps a distance along the route polyline to an x,y position. The
+ * cumulative arc length up to every vertex is computed once, a lookup is then a
+ * binary search for the segment plus a linear interpolation inside it.
+ * Distances are measured in x,y only, as the map draws the route. Keeps the
+ * vertex array it is given, it must not change afterwards.
+ */
+public class RouteProgress {
+
+    private final float[] mVertices;
+    private final int mVertexCount;
+
+    // mDistances[i] is the length of the route from vertex 0 to vertex i.
+    private final float[] mDistances;
+
+    /**
+     * @param vertices      interleaved x,y,z of the route polyline, kept, not copied
+     * @param vertexCount   number of vertices
+     */
+    public RouteProgress(float[] vertices, int vertexCount) {
+        mVertices = vertices;
+        mVertexCount = vertexCount;
+        mDistances = new float[Math.max(vertexCount, 1)];
+
+        // Summed in double, a long route would lose the short segments in float.
+        double distance = 0;
+        for (int loopi = 1; loopi < vertexCount; loopi++) {
+            int from = (loopi - 1) * 3;
+            float dx = vertices[from + 3] - vertices[from];
+            float dy = vertices[from + 4] - vertices[from + 1];
+            distance += Math.sqrt(dx * dx + dy * dy);
+            mDistances[loopi] = (float) distance;
+        }
+    }
+
+    /**
+     * @return the length of the whole route in OBJ units
+     */
+    public float getLength() {
+        return mDistances[mDistances.length - 1];
+    }
+
+    /**
+     * Position at distance along the route, clamped to its ends.
+     * @param out   receives x at out[0] and y at out[1]
+     * @return false if the route has no vertices, out is left alone then
+     */
+    public boolean getPosition(float distance, float[] out) {
+        if (mVertexCount == 0) {
+            return false;
+        }
+        if (mVertexCount == 1 || distance <= 0) {
+            out[0] = mVertices[0];
+            out[1] = mVertices[1];
+            return true;
+        }
+        if (distance >= getLength()) {
+            int last = (mVertexCount - 1) * 3;
+            out[0] = mVertices[last];
+            out[1] = mVertices[last + 1];
+            return true;
+        }
+
+        // The segment [vertex, vertex + 1] that contains distance.
+        int vertex = Arrays.binarySearch(mDistances, 0, mVertexCount, distance);
+        if (vertex < 0) {
+            vertex = -vertex - 2;
+        }
+        // Zero length segments repeat a distance, binarySearch() may land on any of them.
+        while (vertex + 1 < mVertexCount - 1 && mDistances[vertex + 1] <= distance) {
+            vertex++;
+        }
+
+        int from = vertex * 3;
+        float segmentLength = mDistances[vertex + 1] - mDistances[vertex];
+        float t = segmentLength > 0 ? (distance - mDistances[vertex]) / segmentLength : 0;
+        out[0] = mVertices[from] + (mVertices[from + 3] - mVertices[from]) * t;
+        out[1] = mVertices[from + 1] + (mVertices[from + 4] - mVertices[from + 1]) * t;
+        return true;
+    }
+}
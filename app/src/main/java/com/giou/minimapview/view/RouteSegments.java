@@ -0,0 +1,280 @@
+package com.giou.minimapview.view;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import com.giou.minimapview.objparser.FloatArray;
+import com.giou.minimapview.objparser.IntArray;
+import com.giou.minimapview.objparser.MaterialTable;
+
+import java.util.Arrays;
+
+/**
+ * Description: The route polylines packed as x0,y0,x1,y1 segment endpoints, so
+ * they can be stroked with a few Canvas.drawLines() calls instead of one
+ * drawLine() per segment. The segments of an object are one range, with the
+ * bounding box of the object kept next to it for culling. Consecutive segments
+ * of the same material are a run, stroked in the material's diffuse color.
+ */
+public class RouteSegments {
+
+    // Segments per drawLines() call, keeps each native call and the paths the
+    // hardware renderer tessellates for it at a bounded size.
+    static final int MAX_SEGMENTS_PER_CALL = 4096;
+
+    // Objects crossing the viewport edge with more segments than this are
+    // narrowed down through the grid, smaller ones are drawn whole.
+    static final int MIN_GRID_SEGMENTS = 256;
+
+    private final float[] mPoints;
+    private final int mSegmentCount;
+
+    // Segments of object o are [mObjectStarts[o], mObjectStarts[o + 1]).
+    private final int[] mObjectStarts;
+    // minX,minY,maxX,maxY per object.
+    private final float[] mObjectBounds;
+
+    // Segments of run r are [mRunStarts[r], mRunStarts[r + 1]), no run is
+    // empty. Runs without a material use the paint's own color.
+    private final int[] mRunStarts;
+    private final int[] mRunMaterials;
+    private final int[] mRunColors;
+
+    // Objects draw() left to the grid, only touched on the ui thread.
+    private final boolean[] mClipped;
+
+    public RouteSegments(RoutePolylines polylines) {
+        float[] vertices = polylines.getVertices();
+        int[] starts = polylines.getStarts();
+        int[] indices = polylines.getIndices();
+        int[] polylineObjectStarts = polylines.getObjectStarts();
+        int objectCount = polylines.getObjectCount();
+
+        mSegmentCount = polylines.getSegmentCount();
+        mPoints = new float[mSegmentCount * 4];
+        mObjectStarts = new int[objectCount + 1];
+        mObjectBounds = new float[objectCount * 4];
+        mClipped = new boolean[objectCount];
+        IntArray runStarts = new IntArray();
+        IntArray runMaterials = new IntArray();
+
+        int out = 0;
+        for (int object = 0; object < objectCount; object++) {
+            mObjectStarts[object] = out / 4;
+            float minX = Float.MAX_VALUE;
+            float minY = Float.MAX_VALUE;
+            float maxX = -Float.MAX_VALUE;
+            float maxY = -Float.MAX_VALUE;
+            for (int polyline = polylineObjectStarts[object]; polyline < polylineObjectStarts[object + 1]; polyline++) {
+                int material = polylines.getMaterial(polyline);
+                if (starts[polyline + 1] - starts[polyline] >= 2 && (runMaterials.size() == 0
+                        || runMaterials.get(runMaterials.size() - 1) != material)) {
+                    runStarts.add(out / 4);
+                    runMaterials.add(material);
+                }
+                for (int loopi = starts[polyline] + 1; loopi < starts[polyline + 1]; loopi++) {
+                    int from = indices[loopi - 1] * 3;
+                    int to = indices[loopi] * 3;
+                    mPoints[out++] = vertices[from];
+                    mPoints[out++] = vertices[from + 1];
+                    mPoints[out++] = vertices[to];
+                    mPoints[out++] = vertices[to + 1];
+                    minX = Math.min(minX, Math.min(vertices[from], vertices[to]));
+                    minY = Math.min(minY, Math.min(vertices[from + 1], vertices[to + 1]));
+                    maxX = Math.max(maxX, Math.max(vertices[from], vertices[to]));
+                    maxY = Math.max(maxY, Math.max(vertices[from + 1], vertices[to + 1]));
+                }
+            }
+            int box = object * 4;
+            mObjectBounds[box] = minX;
+            mObjectBounds[box + 1] = minY;
+            mObjectBounds[box + 2] = maxX;
+            mObjectBounds[box + 3] = maxY;
+        }
+        mObjectStarts[objectCount] = out / 4;
+
+        runStarts.add(out / 4);
+        mRunStarts = runStarts.toArray();
+        mRunMaterials = runMaterials.toArray();
+        mRunColors = new int[mRunMaterials.length];
+        for (int run = 0; run < mRunColors.length; run++) {
+            if (mRunMaterials[run] != MaterialTable.NO_MATERIAL) {
+                mRunColors[run] = polylines.getMaterialColor(mRunMaterials[run]);
+            }
+        }
+    }
+
+    public int getSegmentCount() {
+        return mSegmentCount;
+    }
+
+    /**
+     * @return x0,y0,x1,y1 for every segment
+     */
+    public float[] getPoints() {
+        return mPoints;
+    }
+
+    public int getObjectCount() {
+        return mObjectStarts.length - 1;
+    }
+
+    /**
+     * Segment indices, getObjectCount() + 1 of them.
+     */
+    public int[] getObjectStarts() {
+        return mObjectStarts;
+    }
+
+    /**
+     * @return minX,minY,maxX,maxY of every object, empty objects have min > max
+     */
+    public float[] getObjectBounds() {
+        return mObjectBounds;
+    }
+
+    /**
+     * @return the material id of segment, MaterialTable.NO_MATERIAL for none
+     */
+    public int getMaterial(int segment) {
+        return mRunMaterials[runOf(segment)];
+    }
+
+    public void draw(Canvas canvas, Paint paint) {
+        int defaultColor = paint.getColor();
+        drawRange(canvas, paint, defaultColor, 0, mSegmentCount);
+        paint.setColor(defaultColor);
+    }
+
+    /**
+     * Draw only the listed segments.
+     * @param segments  segment indices, e.g. from SegmentGrid.query()
+     * @param scratch   reused buffer the endpoints are gathered into
+     */
+    public void draw(Canvas canvas, Paint paint, IntArray segments, FloatArray scratch) {
+        if (segments.size() == mSegmentCount) {
+            draw(canvas, paint);
+            return;
+        }
+        int defaultColor = paint.getColor();
+        drawGathered(canvas, paint, defaultColor, segments, scratch, false);
+        paint.setColor(defaultColor);
+    }
+
+    /**
+     * Draw the segments that may show in the rectangle, in route coordinates.
+     * Objects whose bounding box misses it are skipped and objects inside it
+     * are drawn as whole ranges. Only the large objects crossing its edge are
+     * narrowed down to their segments through grid. Ui thread only.
+     * @param grid      the grid over these segments
+     * @param scratchSegments, scratchPoints    reused buffers
+     */
+    public void draw(Canvas canvas, Paint paint, float left, float top, float right, float bottom,
+                     SegmentGrid grid, IntArray scratchSegments, FloatArray scratchPoints) {
+        int defaultColor = paint.getColor();
+        boolean useGrid = false;
+        for (int object = 0; object < mClipped.length; object++) {
+            int first = mObjectStarts[object];
+            int end = mObjectStarts[object + 1];
+            int box = object * 4;
+            float minX = mObjectBounds[box];
+            float minY = mObjectBounds[box + 1];
+            float maxX = mObjectBounds[box + 2];
+            float maxY = mObjectBounds[box + 3];
+            if (first == end || maxX < left || minX > right || maxY < top || minY > bottom) {
+                continue;
+            }
+            boolean inside = minX >= left && maxX <= right && minY >= top && maxY <= bottom;
+            if (inside || end - first <= MIN_GRID_SEGMENTS) {
+                drawRange(canvas, paint, defaultColor, first, end);
+            } else {
+                mClipped[object] = true;
+                useGrid = true;
+            }
+        }
+        if (useGrid) {
+            grid.query(left, top, right, bottom, scratchSegments);
+            drawGathered(canvas, paint, defaultColor, scratchSegments, scratchPoints, true);
+            Arrays.fill(mClipped, false);
+        }
+        paint.setColor(defaultColor);
+    }
+
+    // Segments [first, end), one drawLines() batch per run.
+    private void drawRange(Canvas canvas, Paint paint, int defaultColor, int first, int end) {
+        for (int run = runOf(first); first < end; run++) {
+            int runEnd = Math.min(end, mRunStarts[run + 1]);
+            paint.setColor(colorOf(run, defaultColor));
+            drawLines(canvas, mPoints, first, runEnd, paint);
+            first = runEnd;
+        }
+    }
+
+    // The listed segments gathered into scratch, flushed whenever the run
+    // changes. With several runs the list is sorted first, so each run is
+    // gathered once.
+    private void drawGathered(Canvas canvas, Paint paint, int defaultColor, IntArray segments,
+                              FloatArray scratch, boolean clippedOnly) {
+        if (mRunMaterials.length > 1) {
+            Arrays.sort(segments.array(), 0, segments.size());
+        }
+        scratch.clear();
+        scratch.ensureCapacity(segments.size() * 4);
+        int run = -1;
+        int count = 0;
+        for (int loopi = 0; loopi < segments.size(); loopi++) {
+            int segment = segments.get(loopi);
+            if (clippedOnly && !mClipped[objectOf(segment)]) {
+                continue;
+            }
+            if (run < 0 || segment >= mRunStarts[run + 1]) {
+                if (count > 0) {
+                    paint.setColor(colorOf(run, defaultColor));
+                    drawLines(canvas, scratch.array(), 0, count, paint);
+                    scratch.clear();
+                    count = 0;
+                }
+                run = runOf(segment);
+            }
+            scratch.addAll(mPoints, segment * 4, 4);
+            count++;
+        }
+        if (count > 0) {
+            paint.setColor(colorOf(run, defaultColor));
+            drawLines(canvas, scratch.array(), 0, count, paint);
+        }
+    }
+
+    private int colorOf(int run, int defaultColor) {
+        return mRunMaterials[run] == MaterialTable.NO_MATERIAL ? defaultColor : mRunColors[run];
+    }
+
+    // The run segment belongs to, runs are never empty.
+    private int runOf(int segment) {
+        int run = Arrays.binarySearch(mRunStarts, 0, mRunMaterials.length, segment);
+        return run < 0 ? -run - 2 : run;
+    }
+
+    // The object segment belongs to, the last one starting at or before it.
+    private int objectOf(int segment) {
+        int object = Arrays.binarySearch(mObjectStarts, segment);
+        if (object < 0) {
+            return -object - 2;
+        }
+        // Empty objects share their start with the next one.
+        while (mObjectStarts[object + 1] == segment) {
+            object++;
+        }
+        return object;
+    }
+
+    /**
+     * Draw segments [fromSegment, toSegment) of points, packed x0,y0,x1,y1.
+     */
+    static void drawLines(Canvas canvas, float[] points, int fromSegment, int toSegment, Paint paint) {
+        for (int first = fromSegment; first < toSegment; first += MAX_SEGMENTS_PER_CALL) {
+            int count = Math.min(MAX_SEGMENTS_PER_CALL, toSegment - first);
+            canvas.drawLines(points, first * 4, count * 4, paint);
+        }
+    }
+}
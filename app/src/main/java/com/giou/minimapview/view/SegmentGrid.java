@@ -0,0 +1,185 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Description: Uniform grid over the bounding boxes of the route segments, to
+ * find the segments intersecting the viewport without walking the whole route.
+ */
+public class SegmentGrid {
+
+    // Aim for about this many segments per cell.
+    private static final int SEGMENTS_PER_CELL = 4;
+    private static final int MAX_CELLS = 1 << 20;
+
+    private final float[] mPoints;
+    private final int mSegmentCount;
+
+    private final float mMinX;
+    private final float mMinY;
+    private final float mMaxX;
+    private final float mMaxY;
+    private final float mCellSize;
+    private final int mColumns;
+    private final int mRows;
+
+    // Segments of cell c are mCellSegments[mCellStart[c] .. mCellStart[c + 1]).
+    private final int[] mCellStart;
+    private final int[] mCellSegments;
+
+    // Query scratch, a segment is reported once per query even when it spans cells.
+    private final int[] mVisited;
+    private int mQueryStamp;
+
+    public SegmentGrid(RouteSegments segments) {
+        mPoints = segments.getPoints();
+        mSegmentCount = segments.getSegmentCount();
+        mVisited = new int[mSegmentCount];
+
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int loopi = 0; loopi < mSegmentCount * 4; loopi += 2) {
+            minX = Math.min(minX, mPoints[loopi]);
+            minY = Math.min(minY, mPoints[loopi + 1]);
+            maxX = Math.max(maxX, mPoints[loopi]);
+            maxY = Math.max(maxY, mPoints[loopi + 1]);
+        }
+        if (mSegmentCount == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        mMinX = minX;
+        mMinY = minY;
+        mMaxX = maxX;
+        mMaxY = maxY;
+
+        float width = maxX - minX;
+        float height = maxY - minY;
+        int targetCells = Math.min(Math.max(mSegmentCount / SEGMENTS_PER_CELL, 1), MAX_CELLS);
+        float cellSize = (float) Math.sqrt(Math.max(width * height, 0) / targetCells);
+        // A straight horizontal or vertical route has no area, split its length instead.
+        if (!(cellSize > 0)) {
+            cellSize = Math.max(width, height) / targetCells;
+        }
+        if (!(cellSize > 0)) {
+            cellSize = 1;
+        }
+        mCellSize = cellSize;
+        mColumns = Math.min((int) (width / cellSize) + 1, MAX_CELLS);
+        mRows = Math.min((int) (height / cellSize) + 1, MAX_CELLS / mColumns);
+
+        // Count, then fill, so the cells end up in two flat arrays.
+        mCellStart = new int[mColumns * mRows + 1];
+        for (int segment = 0; segment < mSegmentCount; segment++) {
+            int offset = segment * 4;
+            int column0 = column(Math.min(mPoints[offset], mPoints[offset + 2]));
+            int column1 = column(Math.max(mPoints[offset], mPoints[offset + 2]));
+            int row0 = row(Math.min(mPoints[offset + 1], mPoints[offset + 3]));
+            int row1 = row(Math.max(mPoints[offset + 1], mPoints[offset + 3]));
+            for (int row = row0; row <= row1; row++) {
+                for (int column = column0; column <= column1; column++) {
+                    mCellStart[row * mColumns + column + 1]++;
+                }
+            }
+        }
+        for (int cell = 0; cell < mColumns * mRows; cell++) {
+            mCellStart[cell + 1] += mCellStart[cell];
+        }
+
+        mCellSegments = new int[mCellStart[mColumns * mRows]];
+        int[] fill = new int[mColumns * mRows];
+        for (int segment = 0; segment < mSegmentCount; segment++) {
+            int offset = segment * 4;
+            int column0 = column(Math.min(mPoints[offset], mPoints[offset + 2]));
+            int column1 = column(Math.max(mPoints[offset], mPoints[offset + 2]));
+            int row0 = row(Math.min(mPoints[offset + 1], mPoints[offset + 3]));
+            int row1 = row(Math.max(mPoints[offset + 1], mPoints[offset + 3]));
+            for (int row = row0; row <= row1; row++) {
+                for (int column = column0; column <= column1; column++) {
+                    int cell = row * mColumns + column;
+                    mCellSegments[mCellStart[cell] + fill[cell]++] = segment;
+                }
+            }
+        }
+    }
+
+    public int getSegmentCount() {
+        return mSegmentCount;
+    }
+
+    public float getMinX() {
+        return mMinX;
+    }
+
+    public float getMinY() {
+        return mMinY;
+    }
+
+    public float getMaxX() {
+        return mMaxX;
+    }
+
+    public float getMaxY() {
+        return mMaxY;
+    }
+
+    /**
+     * Collect the segments whose bounding box intersects the rectangle, in route
+     * coordinates. Not thread safe, query from the ui thread only.
+     * @param out   cleared, then filled with segment indices
+     * @return the number of segments found
+     */
+    public int query(float left, float top, float right, float bottom, IntArray out) {
+        out.clear();
+        if (mSegmentCount == 0 || right < mMinX || left > mMaxX || bottom < mMinY || top > mMaxY) {
+            return 0;
+        }
+
+        if (++mQueryStamp == 0) {
+            // Wrapped around, forget all old stamps.
+            Arrays.fill(mVisited, 0);
+            mQueryStamp = 1;
+        }
+
+        int column0 = column(left);
+        int column1 = column(right);
+        int row0 = row(top);
+        int row1 = row(bottom);
+        for (int row = row0; row <= row1; row++) {
+            for (int column = column0; column <= column1; column++) {
+                int cell = row * mColumns + column;
+                for (int loopi = mCellStart[cell]; loopi < mCellStart[cell + 1]; loopi++) {
+                    int segment = mCellSegments[loopi];
+                    if (mVisited[segment] == mQueryStamp) {
+                        continue;
+                    }
+                    mVisited[segment] = mQueryStamp;
+
+                    int offset = segment * 4;
+                    float x0 = mPoints[offset];
+                    float y0 = mPoints[offset + 1];
+                    float x1 = mPoints[offset + 2];
+                    float y1 = mPoints[offset + 3];
+                    if (Math.max(x0, x1) >= left && Math.min(x0, x1) <= right
+                            && Math.max(y0, y1) >= top && Math.min(y0, y1) <= bottom) {
+                        out.add(segment);
+                    }
+                }
+            }
+        }
+        return out.size();
+    }
+
+    private int column(float x) {
+        int column = (int) ((x - mMinX) / mCellSize);
+        return Math.max(0, Math.min(column, mColumns - 1));
+    }
+
+    private int row(float y) {
+        int row = (int) ((y - mMinY) / mCellSize);
+        return Math.max(0, Math.min(row, mRows - 1));
+    }
+}
@@ -0,0 +1,100 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.IntArray;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ear clipping of FaceTriangulator, checked on the host.
+ */
+public class FaceTriangulatorTest {
+
+    // An L, concave at vertex 3, counterclockwise seen from +z.
+    private static final float[] L_SHAPE = {
+            0, 0, 0,  2, 0, 0,  2, 1, 0,  1, 1, 0,  1, 2, 0,  0, 2, 0
+    };
+
+    private static int[] sequence(int count) {
+        int[] indices = new int[count];
+        for (int loopi = 0; loopi < count; loopi++) {
+            indices[loopi] = loopi;
+        }
+        return indices;
+    }
+
+    private static int[] reversed(int[] indices) {
+        int[] reversed = new int[indices.length];
+        for (int loopi = 0; loopi < indices.length; loopi++) {
+            reversed[loopi] = indices[indices.length - 1 - loopi];
+        }
+        return reversed;
+    }
+
+    // Twice the signed area of triangle t in the plane of axes x and y.
+    private static float area(float[] vertices, IntArray triangles, int t, int x, int y) {
+        int a = triangles.get(t * 3) * 3;
+        int b = triangles.get(t * 3 + 1) * 3;
+        int c = triangles.get(t * 3 + 2) * 3;
+        return (vertices[b + x] - vertices[a + x]) * (vertices[c + y] - vertices[a + y])
+                - (vertices[b + y] - vertices[a + y]) * (vertices[c + x] - vertices[a + x]);
+    }
+
+    @Test
+    public void convexFacesAreFannedFromTheFirstVertex() throws Exception {
+        float[] square = {0, 0, 0,  1, 0, 0,  1, 1, 0,  0, 1, 0};
+        IntArray triangles = new IntArray();
+
+        assertEquals(2, new FaceTriangulator().triangulate(square, sequence(4), 0, 4, triangles));
+        assertArrayEquals(new int[] {0, 1, 2,  0, 2, 3}, triangles.toArray());
+    }
+
+    @Test
+    public void concaveFacesStayInsideTheirOutline() throws Exception {
+        FaceTriangulator triangulator = new FaceTriangulator();
+        for (int[] face : new int[][] {sequence(6), reversed(sequence(6))}) {
+            IntArray triangles = new IntArray();
+            assertEquals(4, triangulator.triangulate(L_SHAPE, face, 0, 6, triangles));
+
+            // Same winding as the face, and together exactly the L's area of 3.
+            float sign = face[1] == 1 ? 1 : -1;
+            float total = 0;
+            for (int t = 0; t < 4; t++) {
+                float area = area(L_SHAPE, triangles, t, 0, 1) * sign;
+                assertTrue("triangle " + t + " flipped", area > 0);
+                total += area / 2;
+            }
+            assertEquals(3f, total, 1e-6f);
+        }
+    }
+
+    @Test
+    public void wallsAreClippedInTheirOwnPlane() throws Exception {
+        // The L stood up in the x,z plane.
+        float[] wall = new float[L_SHAPE.length];
+        for (int loopi = 0; loopi < L_SHAPE.length; loopi += 3) {
+            wall[loopi] = L_SHAPE[loopi];
+            wall[loopi + 2] = L_SHAPE[loopi + 1];
+        }
+        IntArray triangles = new IntArray();
+        assertEquals(4, new FaceTriangulator().triangulate(wall, sequence(6), 0, 6, triangles));
+
+        float total = 0;
+        for (int t = 0; t < 4; t++) {
+            total += Math.abs(area(wall, triangles, t, 0, 2)) / 2;
+        }
+        assertEquals(3f, total, 1e-6f);
+    }
+
+    @Test
+    public void facesOfAnOffsetAreClipped() throws Exception {
+        int[] indices = {9, 9, 0, 1, 2, 3, 4, 5, 9};
+        IntArray triangles = new IntArray();
+
+        assertEquals(4, new FaceTriangulator().triangulate(L_SHAPE, indices, 2, 8, triangles));
+        for (int loopi = 0; loopi < triangles.size(); loopi++) {
+            assertTrue(triangles.get(loopi) < 6);
+        }
+    }
+}
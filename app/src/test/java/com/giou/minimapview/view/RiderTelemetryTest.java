@@ -0,0 +1,180 @@
+package com.giou.minimapview.view;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Coalescing and thread safety of RiderTelemetry, checked on the host.
+ */
+public class RiderTelemetryTest {
+
+    /**
+     * Keeps the last distance drained for every rider id.
+     */
+    private static class LastDistances implements RiderTelemetry.OnRiderUpdateListener {
+        final float[] distances;
+        final int[] counts;
+
+        LastDistances(int riderCount) {
+            distances = new float[riderCount];
+            counts = new int[riderCount];
+        }
+
+        @Override
+        public void onRiderUpdate(int riderId, float distance) {
+            distances[riderId] = distance;
+            counts[riderId]++;
+        }
+    }
+
+    @Test
+    public void lastWriteWinsPerRider() throws Exception {
+        final AtomicInteger wakeups = new AtomicInteger();
+        RiderTelemetry telemetry = new RiderTelemetry(4, new RiderTelemetry.OnUpdatesAvailableListener() {
+            @Override
+            public void onUpdatesAvailable(RiderTelemetry telemetry) {
+                wakeups.incrementAndGet();
+            }
+        });
+
+        for (int loopi = 1; loopi <= 100; loopi++) {
+            telemetry.publish(0, loopi);
+            telemetry.publish(3, -loopi);
+        }
+        assertEquals(1, wakeups.get());
+
+        LastDistances last = new LastDistances(4);
+        assertEquals(2, telemetry.drain(last));
+        assertEquals(100f, last.distances[0], 0f);
+        assertEquals(-100f, last.distances[3], 0f);
+        assertEquals(1, last.counts[0]);
+        assertEquals(1, last.counts[3]);
+        assertEquals(0, telemetry.drain(last));
+
+        telemetry.publish(3, 7);
+        assertEquals(2, wakeups.get());
+        assertEquals(1, telemetry.drain(last));
+        assertEquals(7f, last.distances[3], 0f);
+        assertEquals(200 + 1, telemetry.getPublishedCount());
+    }
+
+    @Test
+    public void ridersBeyondCapacityAreDropped() throws Exception {
+        RiderTelemetry telemetry = new RiderTelemetry(2, null);
+
+        assertTrue(telemetry.publish(10, 1));
+        assertTrue(telemetry.publish(20, 2));
+        assertFalse(telemetry.publish(30, 3));
+        assertTrue(telemetry.publish(10, 4));
+        assertEquals(1, telemetry.getDroppedCount());
+
+        final int[] seen = new int[2];
+        assertEquals(2, telemetry.drain(new RiderTelemetry.OnRiderUpdateListener() {
+            @Override
+            public void onRiderUpdate(int riderId, float distance) {
+                if (riderId == 10) {
+                    seen[0] = (int) distance;
+                } else if (riderId == 20) {
+                    seen[1] = (int) distance;
+                } else {
+                    fail("unexpected rider " + riderId);
+                }
+            }
+        }));
+        assertArrayEquals(new int[] {4, 2}, seen);
+    }
+
+    @Test
+    public void concurrentPublishersEndOnTheirLastDistance() throws Exception {
+        final int riderCount = 300;
+        final int threadCount = 4;
+        final int updatesPerRider = 2000;
+        final RiderTelemetry telemetry = new RiderTelemetry(riderCount, null);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+
+        for (int loopi = 0; loopi < threadCount; loopi++) {
+            final int first = loopi;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int update = 1; update <= updatesPerRider; update++) {
+                        for (int rider = first; rider < riderCount; rider += threadCount) {
+                            telemetry.publish(rider, update);
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        // Drain while publishing, as the ui thread would every frame.
+        LastDistances last = new LastDistances(riderCount);
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            assertTrue(telemetry.drain(last) <= riderCount);
+        }
+        telemetry.drain(last);
+
+        for (int rider = 0; rider < riderCount; rider++) {
+            assertEquals("rider " + rider, updatesPerRider, last.distances[rider], 0f);
+        }
+        assertEquals((long) riderCount * updatesPerRider, telemetry.getPublishedCount());
+        assertEquals(0, telemetry.getDroppedCount());
+    }
+
+    @Test
+    public void loadGeneratorPublishesEveryRider() throws Exception {
+        RiderTelemetry telemetry = new RiderTelemetry(64, null);
+        RiderLoadGenerator generator = new RiderLoadGenerator(telemetry, 50, 50, 3, 1000f, 10f);
+        // The lane threads set android thread priorities, not available here.
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        generator.start(scheduler);
+        try {
+            LastDistances last = new LastDistances(50);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            boolean allSeen = false;
+            while (!allSeen && System.nanoTime() < deadline) {
+                Thread.sleep(16);
+                telemetry.drain(last);
+                allSeen = true;
+                for (int count : last.counts) {
+                    allSeen &= count > 0;
+                }
+            }
+            assertTrue(allSeen);
+            for (float distance : last.distances) {
+                assertTrue(distance >= 0 && distance <= 1000f);
+            }
+        } finally {
+            generator.stop();
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void loadGeneratorRejectsBadArguments() {
+        RiderTelemetry telemetry = new RiderTelemetry(64, null);
+        float[][] bad = {
+                // riders, rate, groups, route length, lap seconds
+                {0, 20, 1, 100, 10}, {10, 0, 1, 100, 10}, {10, -5, 1, 100, 10}, {10, 2000000, 1, 100, 10},
+                {10, 20, 0, 100, 10}, {10, 20, 1, -1, 10}, {10, 20, 1, Float.NaN, 10},
+                {10, 20, 1, Float.POSITIVE_INFINITY, 10}, {10, 20, 1, 100, 0}, {10, 20, 1, 100, Float.NaN},
+        };
+        for (float[] args : bad) {
+            try {
+                new RiderLoadGenerator(telemetry, (int) args[0], (int) args[1], (int) args[2], args[3], args[4]);
+                fail("accepted " + Arrays.toString(args));
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        // A route of one vertex has no length, its riders stay put.
+        assertFalse(new RiderLoadGenerator(telemetry, 10, 20, 1, 0f, 10f).isRunning());
+    }
+}
@@ -0,0 +1,63 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.BuilderInterface;
+import com.giou.minimapview.objparser.GeometryBuilder;
+import com.giou.minimapview.objparser.MaterialTable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Packing of the faces into per material batches, checked on the host.
+ */
+public class RouteAreasTest {
+
+    private static final int E = BuilderInterface.EMPTY_VERTEX_VALUE;
+
+    private static int[] face(int... vertices) {
+        int[] values = new int[vertices.length * 3];
+        for (int loopi = 0; loopi < vertices.length; loopi++) {
+            values[loopi * 3] = vertices[loopi];
+            values[loopi * 3 + 1] = E;
+            values[loopi * 3 + 2] = E;
+        }
+        return values;
+    }
+
+    @Test
+    public void facesAreBatchedPerMaterial() throws Exception {
+        GeometryBuilder geometry = new GeometryBuilder();
+        geometry.addVertexGeometric(0, 0, 0);
+        geometry.addVertexGeometric(1, 0, 0);
+        geometry.addVertexGeometric(1, 1, 0);
+        geometry.addVertexGeometric(0, 1, 0);
+        geometry.addFace(face(1, 2, 3));
+        geometry.setCurrentUseMaterial("grass");
+        geometry.addFace(face(1, 2, 3, 4));
+        geometry.setCurrentUseMaterial(null);
+        geometry.addFace(face(1, 3, 4));
+
+        RouteAreas areas = new RouteAreas(geometry);
+
+        assertEquals(4, areas.getTriangleCount());
+        assertEquals(2, areas.getBatchCount());
+
+        assertEquals(MaterialTable.NO_MATERIAL, areas.getBatchMaterial(0));
+        // Vertices shared by faces of a batch are stored once.
+        assertEquals(4 * 2, areas.getBatchVertices(0).length);
+        assertEquals(6, areas.getBatchIndices(0).length);
+
+        assertEquals(geometry.getMaterials().getId("grass"), areas.getBatchMaterial(1));
+        assertArrayEquals(new float[] {0, 0,  1, 0,  1, 1,  0, 1}, areas.getBatchVertices(1), 0f);
+        assertArrayEquals(new short[] {0, 1, 2,  0, 2, 3}, areas.getBatchIndices(1));
+    }
+
+    @Test
+    public void routeWithoutFacesHasNoBatches() throws Exception {
+        RouteAreas areas = new RouteAreas(new GeometryBuilder());
+
+        assertEquals(0, areas.getBatchCount());
+        assertEquals(0, areas.getTriangleCount());
+    }
+}
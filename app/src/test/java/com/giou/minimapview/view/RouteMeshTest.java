@@ -0,0 +1,93 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.BuilderInterface;
+import com.giou.minimapview.objparser.GeometryBuilder;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Vertex buffer layout of RouteMesh, checked on the host without a GL context.
+ */
+public class RouteMeshTest {
+
+    private static final int E = BuilderInterface.EMPTY_VERTEX_VALUE;
+
+    private static GeometryBuilder square() {
+        GeometryBuilder geometry = new GeometryBuilder();
+        geometry.addVertexGeometric(0, 0, 0);
+        geometry.addVertexGeometric(1, 0, 0);
+        geometry.addVertexGeometric(1, 1, 0);
+        geometry.addVertexGeometric(0, 1, 2);
+        return geometry;
+    }
+
+    private static float[] toArray(FloatBuffer buffer) {
+        float[] values = new float[buffer.remaining()];
+        buffer.duplicate().get(values);
+        return values;
+    }
+
+    @Test
+    public void routeIsChainedIntoLinePairs() throws Exception {
+        RouteMesh mesh = new RouteMesh(square());
+
+        assertEquals(6, mesh.getLineVertexCount());
+        assertArrayEquals(new float[] {
+                0, 0, 0,  1, 0, 0,
+                1, 0, 0,  1, 1, 0,
+                1, 1, 0,  0, 1, 2
+        }, toArray(mesh.getLineVertices()), 0f);
+        assertEquals(0, mesh.getTriangleVertexCount());
+    }
+
+    @Test
+    public void facesAreFanTriangulated() throws Exception {
+        GeometryBuilder geometry = square();
+        geometry.addFace(new int[] {1, E, E, 2, E, E, 3, E, E, 4, E, E});
+
+        RouteMesh mesh = new RouteMesh(geometry);
+
+        assertEquals(6, mesh.getTriangleVertexCount());
+        assertArrayEquals(new float[] {
+                0, 0, 0,  1, 0, 0,  1, 1, 0,
+                0, 0, 0,  1, 1, 0,  0, 1, 2
+        }, toArray(mesh.getTriangleVertices()), 0f);
+    }
+
+    @Test
+    public void negativeFaceIndicesCountFromTheEnd() throws Exception {
+        GeometryBuilder geometry = square();
+        geometry.addFace(new int[] {-3, E, E, -2, E, E, -1, E, E});
+
+        RouteMesh mesh = new RouteMesh(geometry);
+
+        assertEquals(3, mesh.getTriangleVertexCount());
+        assertArrayEquals(new float[] {
+                1, 0, 0,  1, 1, 0,  0, 1, 2
+        }, toArray(mesh.getTriangleVertices()), 0f);
+    }
+
+    @Test
+    public void degenerateFacesAreDropped() throws Exception {
+        GeometryBuilder geometry = square();
+        geometry.addFace(new int[] {1, E, E, 2, E, E});
+        geometry.addFace(new int[] {1, E, E, 2, E, E, 99, E, E});
+
+        RouteMesh mesh = new RouteMesh(geometry);
+
+        assertEquals(0, mesh.getTriangleVertexCount());
+        assertEquals(0, toArray(mesh.getTriangleVertices()).length);
+    }
+
+    @Test
+    public void emptyRouteHasNoVertices() throws Exception {
+        RouteMesh mesh = new RouteMesh(new GeometryBuilder());
+
+        assertEquals(0, mesh.getLineVertexCount());
+        assertEquals(0, mesh.getTriangleVertexCount());
+    }
+}
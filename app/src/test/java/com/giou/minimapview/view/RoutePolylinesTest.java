@@ -0,0 +1,142 @@
+package com.giou.minimapview.view;
+
+import com.giou.minimapview.objparser.ByteArraySource;
+import com.giou.minimapview.objparser.GeometryBuilder;
+import com.giou.minimapview.objparser.MaterialTable;
+import com.giou.minimapview.objparser.ObjectParser;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Polylines and objects built from the l, o and g elements, checked on the host.
+ */
+public class RoutePolylinesTest {
+
+    private static final String TWO_SHAPES = ""
+            + "v 0 0 0\nv 1 0 0\nv 2 0 0\nv 5 5 0\nv 6 5 0\n"
+            + "g Line001\n"
+            + "l 1 2 3\n"
+            + "o track\n"
+            + "g Line002\n"
+            + "l -2 -1\n";
+
+    @Rule
+    public TemporaryFolder mCacheDir = new TemporaryFolder();
+
+    private static GeometryBuilder parse(String obj, File cacheDir) throws Exception {
+        GeometryBuilder geometry = new GeometryBuilder();
+        ObjectParser parser = new ObjectParser(geometry);
+        parser.setCacheDir(cacheDir);
+        parser.parse(new ByteArraySource("route.obj", obj.getBytes(Charset.forName("UTF-8"))));
+        return geometry;
+    }
+
+    private static int[] indices(RoutePolylines polylines, int polyline) {
+        int[] starts = polylines.getStarts();
+        return Arrays.copyOfRange(polylines.getIndices(), starts[polyline], starts[polyline + 1]);
+    }
+
+    @Test
+    public void shapesAreNotJoined() throws Exception {
+        RoutePolylines polylines = RoutePolylines.of(parse(TWO_SHAPES, null));
+
+        assertEquals(2, polylines.getPolylineCount());
+        assertArrayEquals(new int[] {0, 1, 2}, indices(polylines, 0));
+        assertArrayEquals(new int[] {3, 4}, indices(polylines, 1));
+        assertEquals(3, polylines.getSegmentCount());
+
+        // The o right before the g starts no object of its own.
+        assertEquals(2, polylines.getObjectCount());
+        assertEquals("Line001", polylines.getObjectName(0));
+        assertEquals("Line002", polylines.getObjectName(1));
+        assertArrayEquals(new int[] {0, 1, 2}, polylines.getObjectStarts());
+    }
+
+    @Test
+    public void segmentsKeepObjectRangesAndBounds() throws Exception {
+        RouteSegments segments = new RouteSegments(RoutePolylines.of(parse(TWO_SHAPES, null)));
+
+        assertEquals(3, segments.getSegmentCount());
+        assertArrayEquals(new int[] {0, 2, 3}, segments.getObjectStarts());
+        assertArrayEquals(new float[] {0, 0, 2, 0,  5, 5, 6, 5}, segments.getObjectBounds(), 0f);
+    }
+
+    @Test
+    public void plainVertexListIsChained() throws Exception {
+        RoutePolylines polylines = RoutePolylines.of(parse("v 0 0 0\nv 1 0 0\nv 1 1 0\n", null));
+
+        assertEquals(1, polylines.getPolylineCount());
+        assertArrayEquals(new int[] {0, 1, 2}, indices(polylines, 0));
+        assertEquals(1, polylines.getObjectCount());
+        assertNull(polylines.getObjectName(0));
+    }
+
+    @Test
+    public void cachedRouteKeepsItsObjects() throws Exception {
+        File cacheDir = mCacheDir.getRoot();
+        GeometryBuilder parsed = parse(TWO_SHAPES, cacheDir);
+        assertEquals(1, cacheDir.list().length);
+        GeometryBuilder replayed = parse(TWO_SHAPES, cacheDir);
+
+        assertEquals(parsed.getObjectCount(), replayed.getObjectCount());
+        for (int object = 0; object < parsed.getObjectCount(); object++) {
+            assertEquals(parsed.getObjectName(object), replayed.getObjectName(object));
+            assertEquals(parsed.getObjectFirstLine(object), replayed.getObjectFirstLine(object));
+        }
+        RoutePolylines polylines = RoutePolylines.of(replayed);
+        assertArrayEquals(new int[] {0, 1, 2}, indices(polylines, 0));
+        assertArrayEquals(new int[] {3, 4}, indices(polylines, 1));
+    }
+
+    @Test
+    public void segmentsKeepTheMaterialOfTheirLine() throws Exception {
+        GeometryBuilder geometry = parse(""
+                + "v 0 0 0\nv 1 0 0\nv 2 0 0\nv 5 5 0\nv 6 5 0\n"
+                + "l 1 2\n"
+                + "usemtl climb\n"
+                + "l 2 3\n"
+                + "l 4 5\n"
+                + "usemtl flat\n"
+                + "l 1 4\n", null);
+        int climb = geometry.getMaterials().getId("climb");
+        int flat = geometry.getMaterials().getId("flat");
+
+        RoutePolylines polylines = RoutePolylines.of(geometry);
+        assertEquals(MaterialTable.NO_MATERIAL, polylines.getMaterial(0));
+        assertEquals(climb, polylines.getMaterial(1));
+        assertEquals(climb, polylines.getMaterial(2));
+        assertEquals(flat, polylines.getMaterial(3));
+        assertEquals(geometry.getMaterials().getDiffuseArgb(flat), polylines.getMaterialColor(flat));
+
+        RouteSegments segments = new RouteSegments(polylines);
+        assertEquals(MaterialTable.NO_MATERIAL, segments.getMaterial(0));
+        assertEquals(climb, segments.getMaterial(1));
+        assertEquals(climb, segments.getMaterial(2));
+        assertEquals(flat, segments.getMaterial(3));
+    }
+
+    @Test
+    public void simplifyKeepsEveryPolylineEnd() throws Exception {
+        RoutePolylines polylines = RoutePolylines.of(parse(TWO_SHAPES, null));
+        float[] importance = new float[polylines.getIndexCount()];
+        int[] starts = polylines.getStarts();
+        for (int polyline = 0; polyline < polylines.getPolylineCount(); polyline++) {
+            RouteLod.computeImportance(polylines.getVertices(), polylines.getIndices(), starts[polyline],
+                    starts[polyline + 1], importance);
+        }
+
+        // Vertex 1 lies on the line from 0 to 2.
+        RoutePolylines simplified = polylines.simplify(importance, 0.25f);
+        assertEquals(2, simplified.getPolylineCount());
+        assertArrayEquals(new int[] {0, 2}, indices(simplified, 0));
+        assertArrayEquals(new int[] {3, 4}, indices(simplified, 1));
+    }
+}
@@ -0,0 +1,94 @@
+package com.giou.minimapview.view;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Distance to position lookups of RouteProgress, checked on the host.
+ */
+public class RouteProgressTest {
+
+    private static final float[] L_SHAPE = {
+            0, 0, 0,
+            3, 0, 0,
+            3, 0, 0,    // zero length segment
+            3, 4, 0,
+    };
+
+    private static float[] position(RouteProgress progress, float distance) {
+        float[] out = new float[2];
+        assertTrue(progress.getPosition(distance, out));
+        return out;
+    }
+
+    @Test
+    public void interpolatesAlongSegments() throws Exception {
+        RouteProgress progress = new RouteProgress(L_SHAPE, 4);
+
+        assertEquals(7f, progress.getLength(), 0f);
+        assertArrayEquals(new float[] {0, 0}, position(progress, 0), 0f);
+        assertArrayEquals(new float[] {1.5f, 0}, position(progress, 1.5f), 1e-6f);
+        assertArrayEquals(new float[] {3, 0}, position(progress, 3), 1e-6f);
+        assertArrayEquals(new float[] {3, 1}, position(progress, 4), 1e-6f);
+        assertArrayEquals(new float[] {3, 4}, position(progress, 7), 0f);
+    }
+
+    @Test
+    public void clampsToRouteEnds() throws Exception {
+        RouteProgress progress = new RouteProgress(L_SHAPE, 4);
+
+        assertArrayEquals(new float[] {0, 0}, position(progress, -5), 0f);
+        assertArrayEquals(new float[] {3, 4}, position(progress, 100), 0f);
+    }
+
+    @Test
+    public void emptyAndSingleVertexRoutes() throws Exception {
+        float[] out = {-1, -1};
+        RouteProgress empty = new RouteProgress(new float[0], 0);
+        assertEquals(0f, empty.getLength(), 0f);
+        assertFalse(empty.getPosition(1, out));
+        assertArrayEquals(new float[] {-1, -1}, out, 0f);
+
+        RouteProgress single = new RouteProgress(new float[] {2, 5, 0}, 1);
+        assertArrayEquals(new float[] {2, 5}, position(single, 1), 0f);
+    }
+
+    @Test
+    public void matchesLinearScan() throws Exception {
+        Random random = new Random(18);
+        int vertexCount = 2000;
+        float[] vertices = new float[vertexCount * 3];
+        for (int loopi = 3; loopi < vertices.length; loopi += 3) {
+            // Some repeated vertices, as exported routes have.
+            boolean repeat = random.nextInt(10) == 0;
+            vertices[loopi] = vertices[loopi - 3] + (repeat ? 0 : random.nextFloat() * 10 - 5);
+            vertices[loopi + 1] = vertices[loopi - 2] + (repeat ? 0 : random.nextFloat() * 10 - 5);
+        }
+        RouteProgress progress = new RouteProgress(vertices, vertexCount);
+
+        for (int loopi = 0; loopi < 10000; loopi++) {
+            float distance = random.nextFloat() * progress.getLength();
+
+            // Walk the segments for the expected position.
+            float walked = 0;
+            float[] expected = null;
+            for (int segment = 0; segment < vertexCount - 1 && expected == null; segment++) {
+                int from = segment * 3;
+                float dx = vertices[from + 3] - vertices[from];
+                float dy = vertices[from + 4] - vertices[from + 1];
+                float length = (float) Math.sqrt(dx * dx + dy * dy);
+                if (length > 0 && walked + length >= distance) {
+                    float t = (distance - walked) / length;
+                    expected = new float[] {vertices[from] + dx * t, vertices[from + 1] + dy * t};
+                }
+                walked += length;
+            }
+
+            assertNotNull(expected);
+            assertArrayEquals(expected, position(progress, distance), 0.05f);
+        }
+    }
+}
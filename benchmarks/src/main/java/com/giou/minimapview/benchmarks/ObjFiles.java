@@ -0,0 +1,93 @@
+package com.giou.minimapview.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Description: OBJ inputs for the benchmarks. Synthetic routes are written once
+ * to the temp directory and reused by later runs.
+ */
+public class ObjFiles {
+
+    public static final String BIKE = "bike";
+
+    /**
+     * @param route     "bike", or a vertex count with an optional "-faces" suffix,
+     *                  like "100000" or "100000-faces"
+     * @return the absolute path of the file
+     */
+    public static String resolve(String route) throws IOException {
+        if (BIKE.equals(route)) {
+            return bike().getAbsolutePath();
+        }
+        boolean faces = route.endsWith("-faces");
+        int vertexCount = Integer.parseInt(faces ? route.substring(0, route.length() - "-faces".length()) : route);
+        return synthetic(vertexCount, faces).getAbsolutePath();
+    }
+
+    public static File bike() throws IOException {
+        String assets = System.getProperty("benchmarks.assets", "../app/src/main/assets");
+        File file = new File(assets, "multiPerson/bike.obj");
+        if (!file.isFile()) {
+            throw new IOException("missing " + file + ", set -Dbenchmarks.assets");
+        }
+        return file;
+    }
+
+    /**
+     * A random walk route of vertexCount vertices in the shape of the exported
+     * tracks, optionally covered by a strip of v/vt/vn triangles.
+     */
+    public static File synthetic(int vertexCount, boolean faces) throws IOException {
+        File file = new File(System.getProperty("java.io.tmpdir"),
+                "minimap-bench-" + vertexCount + (faces ? "-faces" : "") + ".obj");
+        if (file.isFile()) {
+            return file;
+        }
+
+        File tmpFile = new File(file.getPath() + ".tmp");
+        Random random = new Random(vertexCount);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), "US-ASCII"));
+        try {
+            writer.write("# synthetic route, " + vertexCount + " vertices\n");
+            writer.write("g Line001\n");
+            float x = 0;
+            float y = 0;
+            float heading = 0;
+            for (int loopi = 0; loopi < vertexCount; loopi++) {
+                heading += (random.nextFloat() - 0.5f) * 0.2f;
+                x += (float) Math.cos(heading) * 1.5f;
+                y += (float) Math.sin(heading) * 1.5f;
+                writer.write(String.format(Locale.US, "v %.4f %.4f %.4f\n", x, y, random.nextFloat()));
+            }
+            if (faces) {
+                for (int loopi = 1; loopi <= vertexCount; loopi++) {
+                    writer.write(String.format(Locale.US, "vt %.4f %.4f\n", random.nextFloat(), random.nextFloat()));
+                }
+                writer.write("vn 0.0000 0.0000 1.0000\n");
+                for (int loopi = 1; loopi + 2 <= vertexCount; loopi++) {
+                    writer.write("f " + loopi + "/" + loopi + "/1 "
+                            + (loopi + 1) + "/" + (loopi + 1) + "/1 "
+                            + (loopi + 2) + "/" + (loopi + 2) + "/1\n");
+                }
+            }
+            writer.write("l");
+            for (int loopi = -vertexCount; loopi < 0; loopi++) {
+                writer.write(" " + loopi);
+            }
+            writer.write("\n");
+        } finally {
+            writer.close();
+        }
+        if (!tmpFile.renameTo(file)) {
+            throw new IOException("could not create " + file);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,99 @@
+package com.giou.minimapview.benchmarks;
+
+import com.giou.minimapview.objparser.ByteArraySource;
+import com.giou.minimapview.objparser.FileSource;
+import com.giou.minimapview.objparser.GeometryBuilder;
+import com.giou.minimapview.objparser.ObjSource;
+import com.giou.minimapview.objparser.ObjectParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Description: End to end load of a route, the way RouteLoader does it without
+ * the route cache, from a mapped file and from bytes already in memory, and in
+ * parallel chunks on a pool of one thread per core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectParserBenchmark {
+
+    @Param({"bike", "10000", "10000-faces", "100000", "100000-faces", "1000000", "1000000-faces"})
+    public String route;
+
+    private ObjSource mFileSource;
+    private ObjSource mMemorySource;
+    private ExecutorService mPool;
+
+    @Setup
+    public void setUp() throws IOException {
+        File file = new File(ObjFiles.resolve(route));
+        mFileSource = new FileSource(file);
+
+        byte[] data = new byte[(int) file.length()];
+        DataInputStream inputStream = new DataInputStream(new FileInputStream(file));
+        try {
+            inputStream.readFully(data);
+        } finally {
+            inputStream.close();
+        }
+        mMemorySource = new ByteArraySource(route, data);
+        mPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        // Keep the per parse INFO lines out of the results.
+        Logger.getLogger(ObjectParser.class.getName()).setLevel(Level.WARNING);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Benchmark
+    public GeometryBuilder parse() throws IOException {
+        return load(mFileSource, null);
+    }
+
+    @Benchmark
+    public GeometryBuilder parseInMemory() throws IOException {
+        return load(mMemorySource, null);
+    }
+
+    @Benchmark
+    public GeometryBuilder parseParallel() throws IOException {
+        return load(mFileSource, mPool);
+    }
+
+    private static GeometryBuilder load(ObjSource source, Executor executor) throws IOException {
+        ObjectParser parser = new ObjectParser(null);
+        parser.setExecutor(executor);
+        GeometryBuilder geometry = new GeometryBuilder(parser.countVertices(source));
+        parser.setBuilder(geometry);
+        parser.parse(source);
+        return geometry;
+    }
+}
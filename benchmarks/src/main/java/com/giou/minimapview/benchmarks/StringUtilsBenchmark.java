@@ -0,0 +1,121 @@
+package com.giou.minimapview.benchmarks;
+
+import com.giou.minimapview.objparser.ObjTokenizer;
+import com.giou.minimapview.objparser.StringUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: Per line cost of the StringUtils helpers the parser was built on,
+ * next to the ObjTokenizer that replaced them for vertices. Every op is one line
+ * taken from the synthetic 100000 vertex route with faces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringUtilsBenchmark {
+
+    private static final int LINES = 1024;
+
+    private String[] mVertexLines;
+    private String[] mFaceLines;
+    private String[] mGroupLines;
+
+    private final ObjTokenizer mTokenizer = new ObjTokenizer();
+
+    @Setup
+    public void setUp() throws IOException {
+        ArrayList<String> vertexLines = new ArrayList<>();
+        ArrayList<String> faceLines = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(ObjFiles.synthetic(100000, true)), "US-ASCII"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null
+                    && (vertexLines.size() < LINES || faceLines.size() < LINES)) {
+                if (line.startsWith("v ") && vertexLines.size() < LINES) {
+                    vertexLines.add(line);
+                } else if (line.startsWith("f ") && faceLines.size() < LINES) {
+                    // parseListVerticeNTuples() expects the keyword already stripped.
+                    faceLines.add(line.substring(2).trim());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        mVertexLines = vertexLines.toArray(new String[vertexLines.size()]);
+        mFaceLines = faceLines.toArray(new String[faceLines.size()]);
+        mGroupLines = new String[LINES];
+        for (int loopi = 0; loopi < LINES; loopi++) {
+            mGroupLines[loopi] = "Line" + loopi + " route track_" + (loopi % 7);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parseFloatList(Blackhole blackhole) {
+        for (String line : mVertexLines) {
+            blackhole.consume(StringUtils.parseFloatList(3, line, 1));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void tokenizerFloats(Blackhole blackhole) {
+        for (String line : mVertexLines) {
+            mTokenizer.reset(line);
+            mTokenizer.skip(1);
+            blackhole.consume(mTokenizer.nextFloat());
+            blackhole.consume(mTokenizer.nextFloat());
+            blackhole.consume(mTokenizer.nextFloat());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parseListVerticeNTuples(Blackhole blackhole) {
+        for (String line : mFaceLines) {
+            blackhole.consume(StringUtils.parseListVerticeNTuples(line, 3));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void tokenizerVertexTuples(Blackhole blackhole) {
+        for (String line : mFaceLines) {
+            mTokenizer.reset(line);
+            blackhole.consume(mTokenizer.nextVertexTuples(3));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parseWhitespaceList(Blackhole blackhole) {
+        for (String line : mGroupLines) {
+            blackhole.consume(StringUtils.parseWhitespaceList(line));
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.giou.minimapview.objparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Description: Records builder callbacks in order, to replay them into the real
+ * builder later. Chunks parsed in parallel each fill one, and replaying them in
+ * chunk order gives the builder exactly the calls a sequential parse makes, so
+ * vertex numbering and negative indices come out the same.
+ */
+class BuilderLog implements BuilderInterface {
+
+    private static final int OP_VERTEX_GEOMETRIC    = 0;
+    private static final int OP_VERTEX_TEXTURE      = 1;
+    private static final int OP_VERTEX_NORMAL       = 2;
+    private static final int OP_POINTS              = 3;
+    private static final int OP_LINE                = 4;
+    private static final int OP_FACE                = 5;
+    private static final int OP_OBJECT_NAME         = 6;
+    private static final int OP_MAP_LIB             = 7;
+    private static final int OP_GROUP_NAMES         = 8;
+    private static final int OP_SMOOTHING_GROUP     = 9;
+    private static final int OP_USE_MAP             = 10;
+    private static final int OP_USE_MATERIAL        = 11;
+    private static final int OP_NEW_MTL             = 12;
+    private static final int OP_XYZ                 = 13;
+    private static final int OP_RGB                 = 14;
+    private static final int OP_ILLUM               = 15;
+    private static final int OP_D                   = 16;
+    private static final int OP_NS                  = 17;
+    private static final int OP_SHARPNESS           = 18;
+    private static final int OP_NI                  = 19;
+    private static final int OP_MAP_DECAL_DISP_BUMP = 20;
+    private static final int OP_REFL                = 21;
+    private static final int OP_DONE_MATERIAL       = 22;
+
+    // Runs of the same callback are stored once with a count, the arguments of
+    // every call go to the typed streams in call order.
+    private final IntArray mOps = new IntArray();
+    private final IntArray mOpCounts = new IntArray();
+    private final FloatArray mFloats = new FloatArray();
+    private final IntArray mInts = new IntArray();
+    private final ArrayList<Object> mObjects = new ArrayList<>();
+
+    private void op(int op) {
+        int last = mOps.size() - 1;
+        if (last >= 0 && mOps.get(last) == op) {
+            mOpCounts.array()[last]++;
+        } else {
+            mOps.add(op);
+            mOpCounts.add(1);
+        }
+    }
+
+    // Length first, -1 for null.
+    private void ints(int values[]) {
+        if (values == null) {
+            mInts.add(-1);
+            return;
+        }
+        mInts.add(values.length);
+        mInts.addAll(values, 0, values.length);
+    }
+
+    /**
+     * Make every recorded call on target, in the original order.
+     */
+    public void replay(BuilderInterface target) {
+        float[] floats = mFloats.array();
+        int[] ints = mInts.array();
+        int floatPos = 0;
+        int intPos = 0;
+        int objectPos = 0;
+
+        for (int loopi = 0; loopi < mOps.size(); loopi++) {
+            int op = mOps.get(loopi);
+            for (int count = mOpCounts.get(loopi); count > 0; count--) {
+                switch (op) {
+                    case OP_VERTEX_GEOMETRIC:
+                        target.addVertexGeometric(floats[floatPos], floats[floatPos + 1], floats[floatPos + 2]);
+                        floatPos += 3;
+                        break;
+                    case OP_VERTEX_TEXTURE:
+                        target.addVertexTexture(floats[floatPos], floats[floatPos + 1]);
+                        floatPos += 2;
+                        break;
+                    case OP_VERTEX_NORMAL:
+                        target.addVertexNormal(floats[floatPos], floats[floatPos + 1], floats[floatPos + 2]);
+                        floatPos += 3;
+                        break;
+                    case OP_POINTS:
+                    case OP_LINE:
+                    case OP_FACE: {
+                        int length = ints[intPos++];
+                        int values[] = null;
+                        if (length >= 0) {
+                            values = Arrays.copyOfRange(ints, intPos, intPos + length);
+                            intPos += length;
+                        }
+                        if (op == OP_POINTS) {
+                            target.addPoints(values);
+                        } else if (op == OP_LINE) {
+                            target.addLine(values);
+                        } else {
+                            target.addFace(values);
+                        }
+                        break;
+                    }
+                    case OP_OBJECT_NAME:
+                        target.addObjectName((String) mObjects.get(objectPos++));
+                        break;
+                    case OP_MAP_LIB:
+                        target.addMapLib((String[]) mObjects.get(objectPos++));
+                        break;
+                    case OP_GROUP_NAMES:
+                        target.setCurrentGroupNames((String[]) mObjects.get(objectPos++));
+                        break;
+                    case OP_SMOOTHING_GROUP:
+                        target.setCurrentSmoothingGroup(ints[intPos++]);
+                        break;
+                    case OP_USE_MAP:
+                        target.setCurrentUseMap((String) mObjects.get(objectPos++));
+                        break;
+                    case OP_USE_MATERIAL:
+                        target.setCurrentUseMaterial((String) mObjects.get(objectPos++));
+                        break;
+                    case OP_NEW_MTL:
+                        target.newMtl((String) mObjects.get(objectPos++));
+                        break;
+                    case OP_XYZ:
+                        target.setXYZ(ints[intPos++], floats[floatPos], floats[floatPos + 1], floats[floatPos + 2]);
+                        floatPos += 3;
+                        break;
+                    case OP_RGB:
+                        target.setRGB(ints[intPos++], floats[floatPos], floats[floatPos + 1], floats[floatPos + 2]);
+                        floatPos += 3;
+                        break;
+                    case OP_ILLUM:
+                        target.setIllum(ints[intPos++]);
+                        break;
+                    case OP_D:
+                        target.setD(ints[intPos++] != 0, floats[floatPos++]);
+                        break;
+                    case OP_NS:
+                        target.setNs(floats[floatPos++]);
+                        break;
+                    case OP_SHARPNESS:
+                        target.setSharpness(floats[floatPos++]);
+                        break;
+                    case OP_NI:
+                        target.setNi(floats[floatPos++]);
+                        break;
+                    case OP_MAP_DECAL_DISP_BUMP:
+                        target.setMapDecalDispBump(ints[intPos++], (String) mObjects.get(objectPos++));
+                        break;
+                    case OP_REFL:
+                        target.setRefl(ints[intPos++], (String) mObjects.get(objectPos++));
+                        break;
+                    case OP_DONE_MATERIAL:
+                        target.doneParsingMaterial();
+                        break;
+                }
+            }
+        }
+    }
+
+    public void setObjFilename(String filename) {
+        // Only the parser owning the whole file reports the filename.
+    }
+
+    public void addVertexGeometric(float x, float y, float z) {
+        op(OP_VERTEX_GEOMETRIC);
+        mFloats.add(x, y, z);
+    }
+
+    public void addVertexTexture(float u, float v) {
+        op(OP_VERTEX_TEXTURE);
+        mFloats.add(u);
+        mFloats.add(v);
+    }
+
+    public void addVertexNormal(float x, float y, float z) {
+        op(OP_VERTEX_NORMAL);
+        mFloats.add(x, y, z);
+    }
+
+    public void addPoints(int values[]) {
+        op(OP_POINTS);
+        ints(values);
+    }
+
+    public void addLine(int values[]) {
+        op(OP_LINE);
+        ints(values);
+    }
+
+    public void addFace(int vertexIndices[]) {
+        op(OP_FACE);
+        ints(vertexIndices);
+    }
+
+    public void addObjectName(String name) {
+        op(OP_OBJECT_NAME);
+        mObjects.add(name);
+    }
+
+    public void addMapLib(String[] names) {
+        op(OP_MAP_LIB);
+        mObjects.add(names);
+    }
+
+    public void setCurrentGroupNames(String[] names) {
+        op(OP_GROUP_NAMES);
+        mObjects.add(names);
+    }
+
+    public void setCurrentSmoothingGroup(int groupNumber) {
+        op(OP_SMOOTHING_GROUP);
+        mInts.add(groupNumber);
+    }
+
+    public void setCurrentUseMap(String name) {
+        op(OP_USE_MAP);
+        mObjects.add(name);
+    }
+
+    public void setCurrentUseMaterial(String name) {
+        op(OP_USE_MATERIAL);
+        mObjects.add(name);
+    }
+
+    public void newMtl(String name) {
+        op(OP_NEW_MTL);
+        mObjects.add(name);
+    }
+
+    public void setXYZ(int type, float x, float y, float z) {
+        op(OP_XYZ);
+        mInts.add(type);
+        mFloats.add(x, y, z);
+    }
+
+    public void setRGB(int type, float r, float g, float b) {
+        op(OP_RGB);
+        mInts.add(type);
+        mFloats.add(r, g, b);
+    }
+
+    public void setIllum(int illumModel) {
+        op(OP_ILLUM);
+        mInts.add(illumModel);
+    }
+
+    public void setD(boolean halo, float factor) {
+        op(OP_D);
+        mInts.add(halo ? 1 : 0);
+        mFloats.add(factor);
+    }
+
+    public void setNs(float exponent) {
+        op(OP_NS);
+        mFloats.add(exponent);
+    }
+
+    public void setSharpness(float value) {
+        op(OP_SHARPNESS);
+        mFloats.add(value);
+    }
+
+    public void setNi(float opticalDensity) {
+        op(OP_NI);
+        mFloats.add(opticalDensity);
+    }
+
+    public void setMapDecalDispBump(int type, String filename) {
+        op(OP_MAP_DECAL_DISP_BUMP);
+        mInts.add(type);
+        mObjects.add(filename);
+    }
+
+    public void setRefl(int type, String filename) {
+        op(OP_REFL);
+        mInts.add(type);
+        mObjects.add(filename);
+    }
+
+    public void doneParsingMaterial() {
+        op(OP_DONE_MATERIAL);
+    }
+
+    public void doneParsingObj(String filename) {
+        // Only the parser owning the whole file finishes it.
+    }
+}
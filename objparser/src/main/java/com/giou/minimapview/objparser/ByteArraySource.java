@@ -0,0 +1,61 @@
+package com.giou.minimapview.objparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Description: OBJ content already in memory. The array is not copied.
+ */
+public class ByteArraySource implements ObjSource {
+
+    private final String mName;
+    private final byte[] mData;
+    private final int mOffset;
+    private final int mLength;
+
+    public ByteArraySource(String name, byte[] data) {
+        this(name, data, 0, data.length);
+    }
+
+    /**
+     * @param name      name of the route, used as its cache key
+     * @param data      the OBJ content, must not change while in use
+     */
+    public ByteArraySource(String name, byte[] data, int offset, int length) {
+        mName = name;
+        mData = data;
+        mOffset = offset;
+        mLength = length;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public long getLength() {
+        return mLength;
+    }
+
+    @Override
+    public long getStamp() {
+        return RouteCache.checksum(ByteBuffer.wrap(mData, mOffset, mLength));
+    }
+
+    @Override
+    public void readLines(ObjLineReader reader, ObjLineReader.LineHandler handler) throws IOException {
+        reader.readBuffer(ByteBuffer.wrap(mData, mOffset, mLength), handler);
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+        return ByteBuffer.wrap(mData, mOffset, mLength);
+    }
+
+    @Override
+    public ObjSource resolve(String name) {
+        // In memory content has no directory to find its MTL files in.
+        return null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.giou.minimapview.objparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Description: OBJ content in a ByteBuffer, e.g. a region of a file mapped by
+ * the caller or a direct buffer received over the network. The bytes from the
+ * buffer position to its limit are read, the buffer itself is never moved.
+ */
+public class ByteBufferSource implements ObjSource {
+
+    private final String mName;
+    private final ByteBuffer mBuffer;
+
+    /**
+     * @param name      name of the route, used as its cache key
+     * @param buffer    the OBJ content, must not change while in use
+     */
+    public ByteBufferSource(String name, ByteBuffer buffer) {
+        mName = name;
+        mBuffer = buffer;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public long getLength() {
+        return mBuffer.remaining();
+    }
+
+    @Override
+    public long getStamp() {
+        return RouteCache.checksum(mBuffer);
+    }
+
+    @Override
+    public void readLines(ObjLineReader reader, ObjLineReader.LineHandler handler) throws IOException {
+        reader.readBuffer(mBuffer.duplicate(), handler);
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+        return mBuffer.duplicate();
+    }
+
+    @Override
+    public ObjSource resolve(String name) {
+        // In memory content has no directory to find its MTL files in.
+        return null;
+    }
+}
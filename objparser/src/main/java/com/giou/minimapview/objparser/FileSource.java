@@ -0,0 +1,68 @@
+package com.giou.minimapview.objparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Description: OBJ file on disk, read memory mapped.
+ */
+public class FileSource implements ObjSource {
+
+    private final File mFile;
+
+    public FileSource(File file) {
+        mFile = file;
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    @Override
+    public String getName() {
+        return mFile.getAbsolutePath();
+    }
+
+    @Override
+    public long getLength() {
+        return mFile.length();
+    }
+
+    @Override
+    public long getStamp() {
+        return mFile.lastModified();
+    }
+
+    @Override
+    public void readLines(ObjLineReader reader, ObjLineReader.LineHandler handler) throws IOException {
+        reader.readMapped(mFile, handler);
+    }
+
+    @Override
+    public ObjSource resolve(String name) {
+        File file = new File(name);
+        if (!file.isAbsolute()) {
+            file = new File(mFile.getAbsoluteFile().getParentFile(), name);
+        }
+        return new FileSource(file);
+    }
+
+    @Override
+    public ByteBuffer getBuffer() throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                // Too big for one buffer, read it as a stream of mapped windows.
+                return null;
+            }
+            // The mapping stays valid after the file is closed.
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.giou.minimapview.objparser;
+
+import java.util.Arrays;
+
+/**
+ * Description: Growable array of primitive floats.
+ */
+public class FloatArray {
+
+    private float[] mValues;
+    private int mSize;
+
+    public FloatArray() {
+        this(16);
+    }
+
+    public FloatArray(int capacity) {
+        mValues = new float[Math.max(capacity, 1)];
+    }
+
+    public void add(float value) {
+        if (mSize == mValues.length) {
+            grow(mSize + 1);
+        }
+        mValues[mSize++] = value;
+    }
+
+    public void add(float x, float y, float z) {
+        if (mSize + 3 > mValues.length) {
+            grow(mSize + 3);
+        }
+        mValues[mSize++] = x;
+        mValues[mSize++] = y;
+        mValues[mSize++] = z;
+    }
+
+    public void addAll(float[] values, int offset, int count) {
+        if (mSize + count > mValues.length) {
+            grow(mSize + count);
+        }
+        System.arraycopy(values, offset, mValues, mSize, count);
+        mSize += count;
+    }
+
+    public float get(int index) {
+        return mValues[index];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Set the size after the backing array was filled directly, see ensureCapacity().
+     */
+    public void setSize(int size) {
+        ensureCapacity(size);
+        mSize = size;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > mValues.length) {
+            mValues = Arrays.copyOf(mValues, capacity);
+        }
+    }
+
+    /**
+     * The backing array, valid in [0, size()) until the next add.
+     */
+    public float[] array() {
+        return mValues;
+    }
+
+    public float[] toArray() {
+        return Arrays.copyOf(mValues, mSize);
+    }
+
+    private void grow(int minCapacity) {
+        mValues = Arrays.copyOf(mValues, Math.max(minCapacity, mValues.length + (mValues.length >> 1)));
+    }
+}
@@ -0,0 +1,335 @@
+package com.giou.minimapview.objparser;
+
+import java.util.ArrayList;
+
+/**
+ * Description: Collects the geometric vertices into one growable float[] with
+ * x,y,z interleaved, the lines and faces as 0-based vertex indices, a material
+ * id per face, the objects (o and g) they belong to, and the materials, no
+ * object is allocated per vertex. Subclass it to pick up more of the
+ * BuilderInterface callbacks.
+ */
+public class GeometryBuilder implements BuilderInterface {
+
+    private final FloatArray mVertices;
+
+    // Vertices of face f are mFaceIndices[mFaceStarts[f] .. mFaceStarts[f + 1]).
+    private final IntArray mFaceStarts = new IntArray();
+    private final IntArray mFaceIndices = new IntArray();
+    private final IntArray mFaceMaterials = new IntArray();
+
+    // Vertices of line l are mLineIndices[mLineStarts[l] .. mLineStarts[l + 1]).
+    private final IntArray mLineStarts = new IntArray();
+    private final IntArray mLineIndices = new IntArray();
+    private final IntArray mLineMaterials = new IntArray();
+
+    // Object o holds the lines and faces from its first ones up to the first
+    // ones of object o + 1. An o or g statement starts an object once a line
+    // or face follows it, so empty ones never show up.
+    private final ArrayList<String> mObjectNames = new ArrayList<>();
+    private final IntArray mObjectFirstLines = new IntArray();
+    private final IntArray mObjectFirstFaces = new IntArray();
+    private String mCurrentObjectName;
+    private boolean mObjectNamed;
+
+    private final MaterialTable mMaterials = new MaterialTable();
+    // Material of the next elements (usemtl) and material being defined (newmtl).
+    private int mCurrentMaterial = MaterialTable.NO_MATERIAL;
+    private int mEditedMaterial = MaterialTable.NO_MATERIAL;
+
+    public GeometryBuilder() {
+        this(0);
+    }
+
+    /**
+     * @param expectedVertexCount   pre-size the buffer, see ObjectParser.countVertices()
+     */
+    public GeometryBuilder(int expectedVertexCount) {
+        mVertices = new FloatArray(Math.max(expectedVertexCount, 16) * 3);
+        mFaceStarts.add(0);
+        mLineStarts.add(0);
+    }
+
+    public int getVertexCount() {
+        return mVertices.size() / 3;
+    }
+
+    /**
+     * The interleaved x,y,z backing array, valid for getVertexCount() * 3 floats.
+     */
+    public float[] getVertices() {
+        return mVertices.array();
+    }
+
+    public int getFaceCount() {
+        return mFaceStarts.size() - 1;
+    }
+
+    /**
+     * Offsets into getFaceIndices(), getFaceCount() + 1 of them.
+     */
+    public int[] getFaceStarts() {
+        return mFaceStarts.array();
+    }
+
+    /**
+     * 0-based vertex indices of all faces, valid up to the last face start.
+     */
+    public int[] getFaceIndices() {
+        return mFaceIndices.array();
+    }
+
+    /**
+     * Material id of every face, MaterialTable.NO_MATERIAL before the first usemtl.
+     */
+    public int[] getFaceMaterials() {
+        return mFaceMaterials.array();
+    }
+
+    public int getLineCount() {
+        return mLineStarts.size() - 1;
+    }
+
+    /**
+     * Offsets into getLineIndices(), getLineCount() + 1 of them.
+     */
+    public int[] getLineStarts() {
+        return mLineStarts.array();
+    }
+
+    /**
+     * 0-based vertex indices of all lines, valid up to the last line start.
+     */
+    public int[] getLineIndices() {
+        return mLineIndices.array();
+    }
+
+    /**
+     * Material id of every line, MaterialTable.NO_MATERIAL before the first usemtl.
+     */
+    public int[] getLineMaterials() {
+        return mLineMaterials.array();
+    }
+
+    public int getObjectCount() {
+        return mObjectNames.size();
+    }
+
+    /**
+     * @return the o name or the g names of object, null for the elements before
+     *         the first o or g
+     */
+    public String getObjectName(int object) {
+        return mObjectNames.get(object);
+    }
+
+    public int getObjectFirstLine(int object) {
+        return mObjectFirstLines.get(object);
+    }
+
+    /**
+     * @return one past the last line of object
+     */
+    public int getObjectLineEnd(int object) {
+        return object + 1 < getObjectCount() ? mObjectFirstLines.get(object + 1) : getLineCount();
+    }
+
+    public int getObjectFirstFace(int object) {
+        return mObjectFirstFaces.get(object);
+    }
+
+    /**
+     * @return one past the last face of object
+     */
+    public int getObjectFaceEnd(int object) {
+        return object + 1 < getObjectCount() ? mObjectFirstFaces.get(object + 1) : getFaceCount();
+    }
+
+    public MaterialTable getMaterials() {
+        return mMaterials;
+    }
+
+    /**
+     * Turn an OBJ vertex reference, 1-based or negative relative to the last
+     * vertex, into a 0-based index, or -1 if it's out of range.
+     */
+    protected int resolveVertex(int index) {
+        int vertexCount = getVertexCount();
+        int resolved = index < 0 ? vertexCount + index : index - 1;
+        return (resolved >= 0 && resolved < vertexCount) ? resolved : -1;
+    }
+
+    // Called before a line or face is added.
+    private void beginElement() {
+        if (mObjectNamed || mObjectNames.isEmpty()) {
+            mObjectNames.add(mCurrentObjectName);
+            mObjectFirstLines.add(getLineCount());
+            mObjectFirstFaces.add(getFaceCount());
+            mObjectNamed = false;
+        }
+    }
+
+    private void setCurrentObjectName(String name) {
+        mCurrentObjectName = name;
+        mObjectNamed = true;
+    }
+
+    public void setObjFilename(String filename) {
+
+    }
+
+    public void addVertexGeometric(float x, float y, float z) {
+        mVertices.add(x, y, z);
+    }
+
+    public void addVertexTexture(float u, float v) {
+
+    }
+
+    public void addVertexNormal(float x, float y, float z) {
+
+    }
+
+    public void addPoints(int values[]) {
+
+    }
+
+    public void addLine(int values[]) {
+        if (values == null) {
+            return;
+        }
+        int start = mLineIndices.size();
+        // Tuples are v/vt, only the geometric vertex is kept.
+        for (int loopi = 0; loopi < values.length; loopi += 2) {
+            int vertex = resolveVertex(values[loopi]);
+            if (vertex >= 0) {
+                mLineIndices.add(vertex);
+            }
+        }
+        if (mLineIndices.size() - start < 2) {
+            mLineIndices.setSize(start);
+            return;
+        }
+        int end = mLineIndices.size();
+        beginElement();
+        mLineStarts.add(end);
+        mLineMaterials.add(mCurrentMaterial);
+    }
+
+    public void addFace(int vertexIndices[]) {
+        if (vertexIndices == null) {
+            return;
+        }
+        int start = mFaceIndices.size();
+        // Tuples are v/vt/vn, only the geometric vertex is kept.
+        for (int loopi = 0; loopi < vertexIndices.length; loopi += 3) {
+            int vertex = resolveVertex(vertexIndices[loopi]);
+            if (vertex >= 0) {
+                mFaceIndices.add(vertex);
+            }
+        }
+        if (mFaceIndices.size() - start < 3) {
+            // Degenerate or broken face.
+            mFaceIndices.setSize(start);
+            return;
+        }
+        beginElement();
+        mFaceStarts.add(mFaceIndices.size());
+        mFaceMaterials.add(mCurrentMaterial);
+    }
+
+    public void addObjectName(String name) {
+        setCurrentObjectName(name);
+    }
+
+    public void addMapLib(String[] names) {
+
+    }
+
+    public void setCurrentGroupNames(String[] names) {
+        if (names == null || names.length == 0) {
+            setCurrentObjectName(null);
+            return;
+        }
+        StringBuilder name = new StringBuilder(names[0]);
+        for (int loopi = 1; loopi < names.length; loopi++) {
+            name.append(' ').append(names[loopi]);
+        }
+        setCurrentObjectName(name.toString());
+    }
+
+    public void setCurrentSmoothingGroup(int groupNumber) {
+
+    }
+
+    public void setCurrentUseMap(String name) {
+
+    }
+
+    public void setCurrentUseMaterial(String name) {
+        // A name missing from the MTL files still gets an id of its own.
+        mCurrentMaterial = name == null ? MaterialTable.NO_MATERIAL : mMaterials.intern(name);
+    }
+
+    public void newMtl(String name) {
+        mEditedMaterial = mMaterials.intern(name);
+    }
+
+    public void setXYZ(int type, float x, float y, float z) {
+
+    }
+
+    public void setRGB(int type, float r, float g, float b) {
+        if (mEditedMaterial != MaterialTable.NO_MATERIAL) {
+            mMaterials.setColor(mEditedMaterial, type, r, g, b);
+        }
+    }
+
+    public void setIllum(int illumModel) {
+        if (mEditedMaterial != MaterialTable.NO_MATERIAL) {
+            mMaterials.setIllum(mEditedMaterial, illumModel);
+        }
+    }
+
+    public void setD(boolean halo, float factor) {
+        if (mEditedMaterial != MaterialTable.NO_MATERIAL) {
+            mMaterials.setDissolve(mEditedMaterial, factor);
+        }
+    }
+
+    public void setNs(float exponent) {
+        if (mEditedMaterial != MaterialTable.NO_MATERIAL) {
+            mMaterials.setShininess(mEditedMaterial, exponent);
+        }
+    }
+
+    public void setSharpness(float value) {
+        if (mEditedMaterial != MaterialTable.NO_MATERIAL) {
+            mMaterials.setSharpness(mEditedMaterial, value);
+        }
+    }
+
+    public void setNi(float opticalDensity) {
+        if (mEditedMaterial != MaterialTable.NO_MATERIAL) {
+            mMaterials.setOpticalDensity(mEditedMaterial, opticalDensity);
+        }
+    }
+
+    public void setMapDecalDispBump(int type, String filename) {
+        if (mEditedMaterial != MaterialTable.NO_MATERIAL) {
+            mMaterials.setMap(mEditedMaterial, type, filename);
+        }
+    }
+
+    public void setRefl(int type, String filename) {
+
+    }
+
+    public void doneParsingMaterial() {
+        mEditedMaterial = MaterialTable.NO_MATERIAL;
+    }
+
+    public void doneParsingObj(String filename) {
+
+    }
+}
@@ -0,0 +1,76 @@
+package com.giou.minimapview.objparser;
+
+import java.util.Arrays;
+
+/**
+ * Description: Growable array of primitive ints.
+ */
+public class IntArray {
+
+    private int[] mValues;
+    private int mSize;
+
+    public IntArray() {
+        this(16);
+    }
+
+    public IntArray(int capacity) {
+        mValues = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int value) {
+        if (mSize == mValues.length) {
+            grow(mSize + 1);
+        }
+        mValues[mSize++] = value;
+    }
+
+    public void addAll(int[] values, int offset, int count) {
+        if (mSize + count > mValues.length) {
+            grow(mSize + count);
+        }
+        System.arraycopy(values, offset, mValues, mSize, count);
+        mSize += count;
+    }
+
+    public int get(int index) {
+        return mValues[index];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Set the size after the backing array was filled directly, see ensureCapacity().
+     */
+    public void setSize(int size) {
+        ensureCapacity(size);
+        mSize = size;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > mValues.length) {
+            mValues = Arrays.copyOf(mValues, capacity);
+        }
+    }
+
+    /**
+     * The backing array, valid in [0, size()) until the next add.
+     */
+    public int[] array() {
+        return mValues;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(mValues, mSize);
+    }
+
+    private void grow(int minCapacity) {
+        mValues = Arrays.copyOf(mValues, Math.max(minCapacity, mValues.length + (mValues.length >> 1)));
+    }
+}
@@ -0,0 +1,179 @@
+package com.giou.minimapview.objparser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Description: Materials of a route indexed by a small int id. The name is
+ * looked up once per usemtl line, faces and segments then only carry the id,
+ * and every property lives in one primitive array per kind.
+ */
+public class MaterialTable {
+
+    public static final int NO_MATERIAL = -1;
+
+    // Values for materials the MTL file doesn't set, as most OBJ viewers use.
+    private static final float DEFAULT_AMBIENT = 0.2f;
+    private static final float DEFAULT_DIFFUSE = 0.8f;
+    private static final float DEFAULT_SPECULAR = 1.0f;
+
+    private static final int COLOR_TYPES = 4;   // BuilderInterface.MTL_KA .. MTL_TF
+    private static final int MAP_TYPES = 8;     // BuilderInterface.MTL_MAP_KA .. MTL_BUMP
+
+    private final ArrayList<String> mNames = new ArrayList<>();
+    private final HashMap<String, Integer> mIds = new HashMap<>();
+
+    // r,g,b of every color type for every material.
+    private final FloatArray mColors = new FloatArray();
+    private final FloatArray mDissolve = new FloatArray();
+    private final FloatArray mShininess = new FloatArray();
+    private final FloatArray mSharpness = new FloatArray();
+    private final FloatArray mOpticalDensity = new FloatArray();
+    private final IntArray mIllum = new IntArray();
+    private final ArrayList<String> mMaps = new ArrayList<>();
+
+    public int size() {
+        return mNames.size();
+    }
+
+    public String getName(int id) {
+        return mNames.get(id);
+    }
+
+    /**
+     * @return the id of name, or NO_MATERIAL if there is no such material
+     */
+    public int getId(String name) {
+        Integer id = mIds.get(name);
+        return id == null ? NO_MATERIAL : id;
+    }
+
+    /**
+     * @return the id of name, adding a material with default properties first
+     *         if there is none yet
+     */
+    public int intern(String name) {
+        Integer id = mIds.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = mNames.size();
+        mNames.add(name);
+        mIds.put(name, newId);
+        for (int type = 0; type < COLOR_TYPES; type++) {
+            float value = defaultColor(type);
+            mColors.add(value, value, value);
+        }
+        mDissolve.add(1f);
+        mShininess.add(0f);
+        mSharpness.add(60f);
+        mOpticalDensity.add(1f);
+        mIllum.add(1);
+        for (int loopi = 0; loopi < MAP_TYPES; loopi++) {
+            mMaps.add(null);
+        }
+        return newId;
+    }
+
+    private static float defaultColor(int type) {
+        switch (type) {
+            case BuilderInterface.MTL_KA:
+                return DEFAULT_AMBIENT;
+            case BuilderInterface.MTL_KD:
+                return DEFAULT_DIFFUSE;
+            case BuilderInterface.MTL_KS:
+                return DEFAULT_SPECULAR;
+            default:
+                return 1f;
+        }
+    }
+
+    /**
+     * @param type  one of BuilderInterface.MTL_KA, MTL_KD, MTL_KS or MTL_TF
+     */
+    public void setColor(int id, int type, float r, float g, float b) {
+        int offset = (id * COLOR_TYPES + type) * 3;
+        float[] colors = mColors.array();
+        colors[offset] = r;
+        colors[offset + 1] = g;
+        colors[offset + 2] = b;
+    }
+
+    /**
+     * @return component 0, 1 or 2 (r, g or b) of a color of material id
+     */
+    public float getColor(int id, int type, int component) {
+        return mColors.get((id * COLOR_TYPES + type) * 3 + component);
+    }
+
+    /**
+     * The diffuse color with the dissolve as alpha, packed like android.graphics.Color.
+     */
+    public int getDiffuseArgb(int id) {
+        int offset = (id * COLOR_TYPES + BuilderInterface.MTL_KD) * 3;
+        float[] colors = mColors.array();
+        return (toByte(mDissolve.get(id)) << 24)
+                | (toByte(colors[offset]) << 16)
+                | (toByte(colors[offset + 1]) << 8)
+                | toByte(colors[offset + 2]);
+    }
+
+    private static int toByte(float value) {
+        return Math.round(Math.max(0f, Math.min(1f, value)) * 255f);
+    }
+
+    public void setDissolve(int id, float dissolve) {
+        mDissolve.array()[id] = dissolve;
+    }
+
+    public float getDissolve(int id) {
+        return mDissolve.get(id);
+    }
+
+    public void setShininess(int id, float exponent) {
+        mShininess.array()[id] = exponent;
+    }
+
+    public float getShininess(int id) {
+        return mShininess.get(id);
+    }
+
+    public void setSharpness(int id, float sharpness) {
+        mSharpness.array()[id] = sharpness;
+    }
+
+    public float getSharpness(int id) {
+        return mSharpness.get(id);
+    }
+
+    public void setOpticalDensity(int id, float opticalDensity) {
+        mOpticalDensity.array()[id] = opticalDensity;
+    }
+
+    public float getOpticalDensity(int id) {
+        return mOpticalDensity.get(id);
+    }
+
+    public void setIllum(int id, int illumModel) {
+        mIllum.array()[id] = illumModel;
+    }
+
+    public int getIllum(int id) {
+        return mIllum.get(id);
+    }
+
+    /**
+     * @param type  one of BuilderInterface.MTL_MAP_KA .. MTL_BUMP
+     */
+    public void setMap(int id, int type, String filename) {
+        mMaps.set(id * MAP_TYPES + type, filename);
+    }
+
+    /**
+     * @return the texture file name, or null if the material has none of that type
+     */
+    public String getMap(int id, int type) {
+        return mMaps.get(id * MAP_TYPES + type);
+    }
+}
@@ -0,0 +1,208 @@
+package com.giou.minimapview.objparser;
+
+import java.nio.charset.Charset;
+
+/**
+ * Description: Float and int parsing straight from byte or char ranges. The
+ * decimal forms exporters write ("-12.5", "0.103027343750", "1.3e-06") take an
+ * exact fast path, anything else is handed to Float.parseFloat and
+ * Integer.parseInt, so the results are always the same as theirs, bit for bit.
+ */
+public final class NumberParser {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    // Mantissas above 2^53 can not be represented exactly in a double.
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // Powers of ten that are exactly representable as doubles.
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+            1e21, 1e22
+    };
+    private static final int MAX_EXACT_EXPONENT = 22;
+
+    // Ints of up to nine digits can't overflow.
+    private static final int MAX_FAST_INT_DIGITS = 9;
+
+    // Where the char entry points narrow their text to, grown for longer numbers.
+    private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[32];
+        }
+    };
+
+    private NumberParser() {
+    }
+
+    /**
+     * Same as Float.parseFloat() on the ISO-8859-1 text in buf[start, end).
+     * @throws NumberFormatException if it is not a float
+     */
+    public static float parseFloat(byte[] buf, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        boolean overflow = false;
+
+        int digitsStart = pos;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            if (mantissa < MAX_EXACT_MANTISSA) {
+                mantissa = mantissa * 10 + (buf[pos] - '0');
+            } else {
+                overflow = true;
+            }
+            pos++;
+        }
+        int digits = pos - digitsStart;
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            int fractionStart = pos;
+            while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+                if (mantissa < MAX_EXACT_MANTISSA) {
+                    mantissa = mantissa * 10 + (buf[pos] - '0');
+                    exponent--;
+                } else {
+                    overflow = true;
+                }
+                pos++;
+            }
+            digits += pos - fractionStart;
+        }
+        if (digits > 0 && pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+                negativeExponent = buf[pos] == '-';
+                pos++;
+            }
+            int exponentStart = pos;
+            int explicitExponent = 0;
+            while (pos < end && buf[pos] >= '0' && buf[pos] <= '9' && explicitExponent < 10000) {
+                explicitExponent = explicitExponent * 10 + (buf[pos] - '0');
+                pos++;
+            }
+            if (pos == exponentStart) {
+                return slowParseFloat(buf, start, end);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (digits == 0 || pos != end || overflow) {
+            return slowParseFloat(buf, start, end);
+        }
+        float result = toFloat(mantissa, exponent);
+        if (Float.isNaN(result)) {
+            return slowParseFloat(buf, start, end);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Same as Float.parseFloat() on the text in chars[start, end).
+     * @throws NumberFormatException if it is not a float
+     */
+    public static float parseFloat(char[] chars, int start, int end) {
+        byte[] bytes = narrow(chars, start, end);
+        if (bytes == null) {
+            return Float.parseFloat(new String(chars, start, end - start));
+        }
+        return parseFloat(bytes, 0, end - start);
+    }
+
+    /**
+     * mantissa * 10^exponent correctly rounded to float, or NaN if that can't
+     * be done exactly without the slow path.
+     */
+    private static float toFloat(long mantissa, int exponent) {
+        if (mantissa > MAX_EXACT_MANTISSA || exponent < -MAX_EXACT_EXPONENT || exponent > MAX_EXACT_EXPONENT) {
+            return Float.NaN;
+        }
+
+        // Both operands are exact, so the division/multiplication is correctly
+        // rounded to double.
+        double value = exponent < 0
+                ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+
+        // Rounding that double to float again is only wrong when it landed
+        // exactly halfway between two floats. All values here are normal
+        // floats, 1e-22 and 2^53 * 1e22 are well inside the float range.
+        if ((Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L) {
+            return Float.NaN;
+        }
+        return (float) value;
+    }
+
+    private static float slowParseFloat(byte[] buf, int start, int end) {
+        return Float.parseFloat(new String(buf, start, end - start, ISO_8859_1));
+    }
+
+    /**
+     * Same as Integer.parseInt() on the ISO-8859-1 text in buf[start, end).
+     * @throws NumberFormatException if it is not an int
+     */
+    public static int parseInt(byte[] buf, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+        if (pos == end || end - pos > MAX_FAST_INT_DIGITS) {
+            return Integer.parseInt(new String(buf, start, end - start, ISO_8859_1));
+        }
+        int value = 0;
+        while (pos < end) {
+            int digit = buf[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(new String(buf, start, end - start, ISO_8859_1));
+            }
+            value = value * 10 + digit;
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Same as Integer.parseInt() on the text in chars[start, end).
+     * @throws NumberFormatException if it is not an int
+     */
+    public static int parseInt(char[] chars, int start, int end) {
+        byte[] bytes = narrow(chars, start, end);
+        if (bytes == null) {
+            // Integer.parseInt also takes digits of other scripts.
+            return Integer.parseInt(new String(chars, start, end - start));
+        }
+        return parseInt(bytes, 0, end - start);
+    }
+
+    /**
+     * chars[start, end) as ISO-8859-1 bytes from index 0 of this thread's
+     * scratch buffer, so the char entry points share the byte parsers and
+     * their slow paths see the same text. Null if a char doesn't fit a byte.
+     */
+    private static byte[] narrow(char[] chars, int start, int end) {
+        byte[] bytes = SCRATCH.get();
+        if (bytes.length < end - start) {
+            bytes = new byte[end - start];
+            SCRATCH.set(bytes);
+        }
+        for (int loopi = start; loopi < end; loopi++) {
+            char c = chars[loopi];
+            if (c > 0xFF) {
+                return null;
+            }
+            bytes[loopi - start] = (byte) c;
+        }
+        return bytes;
+    }
+}
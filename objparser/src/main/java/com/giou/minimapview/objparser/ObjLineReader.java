@@ -0,0 +1,120 @@
+package com.giou.minimapview.objparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Description: Splits OBJ/MTL input into lines of raw bytes. Files are memory
+ * mapped, nothing is decoded to UTF-16 and no String is created per line.
+ */
+public class ObjLineReader {
+
+    public interface LineHandler {
+        /**
+         * Called for every line, the bytes [start, end) exclude the '\n'
+         * and are only valid during the call.
+         */
+        void handleLine(byte[] buf, int start, int end) throws IOException;
+    }
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Map big files piecewise to stay clear of the 2GB limit and address space pressure.
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+    private byte[] mChunk = new byte[CHUNK_SIZE];
+
+    // Bytes of an unfinished line carried over to the front of mChunk.
+    private int mCarry;
+
+    /**
+     * Memory map file and feed it to handler line by line.
+     */
+    public void readMapped(File file, LineHandler handler) throws IOException {
+        mCarry = 0;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            for (long offset = 0; offset < size; offset += MAP_WINDOW) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(MAP_WINDOW, size - offset));
+                feed(mapped, handler);
+            }
+            finish(handler);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Feed the remaining bytes of buffer to handler line by line. The buffer
+     * position is advanced to its limit.
+     */
+    public void readBuffer(ByteBuffer buffer, LineHandler handler) throws IOException {
+        mCarry = 0;
+        feed(buffer, handler);
+        finish(handler);
+    }
+
+    /**
+     * Feed the stream to handler line by line, the stream is closed afterwards.
+     */
+    public void readStream(InputStream inputStream, LineHandler handler) throws IOException {
+        mCarry = 0;
+        try {
+            int count;
+            while ((count = inputStream.read(mChunk, mCarry, mChunk.length - mCarry)) != -1) {
+                consume(mCarry + count, handler);
+            }
+            finish(handler);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private void feed(ByteBuffer buffer, LineHandler handler) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = Math.min(buffer.remaining(), mChunk.length - mCarry);
+            buffer.get(mChunk, mCarry, count);
+            consume(mCarry + count, handler);
+        }
+    }
+
+    // Hand every complete line in mChunk[0, length) to the handler and move the
+    // unfinished tail to the front of the chunk.
+    private void consume(int length, LineHandler handler) throws IOException {
+        byte[] chunk = mChunk;
+        int lineStart = 0;
+        // The carried bytes are known not to contain a newline.
+        for (int pos = mCarry; pos < length; pos++) {
+            if (chunk[pos] == '\n') {
+                handler.handleLine(chunk, lineStart, pos);
+                lineStart = pos + 1;
+            }
+        }
+
+        mCarry = length - lineStart;
+        if (mCarry > 0 && lineStart > 0) {
+            System.arraycopy(chunk, lineStart, chunk, 0, mCarry);
+        }
+        if (mCarry == chunk.length) {
+            // A single line longer than the chunk.
+            byte[] grown = new byte[chunk.length << 1];
+            System.arraycopy(chunk, 0, grown, 0, mCarry);
+            mChunk = grown;
+        }
+    }
+
+    private void finish(LineHandler handler) throws IOException {
+        if (mCarry > 0) {
+            handler.handleLine(mChunk, 0, mCarry);
+            mCarry = 0;
+        }
+    }
+}
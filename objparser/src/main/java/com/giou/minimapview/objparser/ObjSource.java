@@ -0,0 +1,47 @@
+package com.giou.minimapview.objparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Description: Where ObjectParser reads an OBJ file from: a file, an Android
+ * asset, a mapped buffer or bytes already in memory.
+ */
+public interface ObjSource {
+
+    /**
+     * Name passed to the builder, also the key of the route cache file.
+     */
+    String getName();
+
+    /**
+     * @return the size in bytes, or -1 if unknown
+     */
+    long getLength() throws IOException;
+
+    /**
+     * Value that changes whenever the content does, like a modification time
+     * or a checksum. Together with the length it decides if a cached route is
+     * still current.
+     */
+    long getStamp() throws IOException;
+
+    /**
+     * Feed the whole source to handler line by line.
+     */
+    void readLines(ObjLineReader reader, ObjLineReader.LineHandler handler) throws IOException;
+
+    /**
+     * The whole content for random access, what parsing in parallel chunks needs.
+     * @return the bytes between position and limit of a new buffer, or null if
+     *         the source can only be read as a stream
+     */
+    ByteBuffer getBuffer() throws IOException;
+
+    /**
+     * A source next to this one, for the MTL files an OBJ file refers to.
+     * @param name  file name relative to this source
+     * @return the source, or null if this source has no place to look in
+     */
+    ObjSource resolve(String name);
+}
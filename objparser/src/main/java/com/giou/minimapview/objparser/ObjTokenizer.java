@@ -0,0 +1,239 @@
+package com.giou.minimapview.objparser;
+
+import java.nio.charset.Charset;
+
+/**
+ * Description: Cursor based tokenizer that reads floats and v/vt/vn index tuples
+ * straight out of a reused byte window, without per-token objects or boxing.
+ */
+public class ObjTokenizer {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private byte[] mLineBuffer = new byte[256];
+
+    private byte[] mBuf;
+    private int mLineStart;
+    private int mPos;
+    private int mLimit;
+
+    private int[] mTuples = new int[48];
+    private int mTupleCount;
+
+    /**
+     * Point the tokenizer at a line of text. The characters are copied into a
+     * reused buffer, OBJ being plain ASCII.
+     * @param line  the line to tokenize
+     */
+    public void reset(String line) {
+        int length = line.length();
+        if (mLineBuffer.length < length) {
+            mLineBuffer = new byte[Math.max(length, mLineBuffer.length << 1)];
+        }
+        for (int loopi = 0; loopi < length; loopi++) {
+            mLineBuffer[loopi] = (byte) line.charAt(loopi);
+        }
+        reset(mLineBuffer, 0, length);
+    }
+
+    /**
+     * Point the tokenizer at the bytes [start, end) of buf, the buffer is not copied.
+     * Leading and trailing whitespace is trimmed like String.trim() does.
+     */
+    public void reset(byte[] buf, int start, int end) {
+        mBuf = buf;
+        mPos = start;
+        mLimit = end;
+        while (mPos < mLimit && isWhitespace(mBuf[mPos])) {
+            mPos++;
+        }
+        while (mLimit > mPos && isWhitespace(mBuf[mLimit - 1])) {
+            mLimit--;
+        }
+        mLineStart = mPos;
+    }
+
+    public boolean isEmpty() {
+        return mPos >= mLimit;
+    }
+
+    /**
+     * @return true if the bytes at the cursor match keyword
+     */
+    public boolean startsWith(String keyword) {
+        int length = keyword.length();
+        if (mLimit - mPos < length) {
+            return false;
+        }
+        for (int loopi = 0; loopi < length; loopi++) {
+            if (mBuf[mPos + loopi] != keyword.charAt(loopi)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the length of the token at the cursor, without consuming it
+     */
+    public int tokenLength() {
+        skipWhiteSpace();
+        return tokenEnd(mPos) - mPos;
+    }
+
+    /**
+     * @return the byte offset bytes after the cursor, or 0 past the end of the line
+     */
+    public byte byteAt(int offset) {
+        return mPos + offset < mLimit ? mBuf[mPos + offset] : 0;
+    }
+
+    /**
+     * Consume the next token if it is exactly word, so "d" does not match "disp".
+     * @return true if it matched
+     */
+    public boolean nextTokenEquals(String word) {
+        skipWhiteSpace();
+        int end = tokenEnd(mPos);
+        int length = word.length();
+        if (end - mPos != length) {
+            return false;
+        }
+        for (int loopi = 0; loopi < length; loopi++) {
+            if (mBuf[mPos + loopi] != word.charAt(loopi)) {
+                return false;
+            }
+        }
+        mPos = end;
+        return true;
+    }
+
+    /**
+     * Skip count bytes, typically the keyword at the start of the line.
+     */
+    public void skip(int count) {
+        mPos = Math.min(mPos + count, mLimit);
+    }
+
+    /**
+     * @return true if there is another token left on the line
+     */
+    public boolean hasNext() {
+        skipWhiteSpace();
+        return mPos < mLimit;
+    }
+
+    /**
+     * @return the rest of the line, trimmed, or an empty string
+     */
+    public String rest() {
+        skipWhiteSpace();
+        return new String(mBuf, mPos, mLimit - mPos, ISO_8859_1);
+    }
+
+    /**
+     * @return the whole trimmed line, for log messages
+     */
+    public String line() {
+        return new String(mBuf, mLineStart, mLimit - mLineStart, ISO_8859_1);
+    }
+
+    /**
+     * Parse the next whitespace separated float, a missing value reads as 0.
+     */
+    public float nextFloat() {
+        skipWhiteSpace();
+        if (mPos >= mLimit) {
+            return 0f;
+        }
+        int start = mPos;
+        int end = tokenEnd(start);
+        mPos = end;
+        return NumberParser.parseFloat(mBuf, start, end);
+    }
+
+    /**
+     * Parse the next whitespace separated int, a missing value reads as 0.
+     */
+    public int nextInt() {
+        skipWhiteSpace();
+        if (mPos >= mLimit) {
+            return 0;
+        }
+        int start = mPos;
+        int end = tokenEnd(start);
+        mPos = end;
+        return NumberParser.parseInt(mBuf, start, end);
+    }
+
+    /**
+     * Parse all whitespace separated vertex tuples on the rest of the line,
+     * e.g. "11/4/1 12//2 13". Every tuple is padded with
+     * BuilderInterface.EMPTY_VERTEX_VALUE up to expectedValuesPerTuple values,
+     * and empty fields read as EMPTY_VERTEX_VALUE as well.
+     * @return the number of ints stored, read them back with tuples()
+     */
+    public int nextVertexTuples(int expectedValuesPerTuple) {
+        mTupleCount = 0;
+        while (hasNext()) {
+            int end = tokenEnd(mPos);
+            int found = 0;
+            int itemStart = mPos;
+            while (itemStart < end) {
+                int itemEnd = itemStart;
+                while (itemEnd < end && mBuf[itemEnd] != '/') {
+                    itemEnd++;
+                }
+                addTupleValue(itemEnd == itemStart
+                        ? BuilderInterface.EMPTY_VERTEX_VALUE
+                        : NumberParser.parseInt(mBuf, itemStart, itemEnd));
+                found++;
+                itemStart = itemEnd + 1;
+            }
+            while (found < expectedValuesPerTuple) {
+                addTupleValue(BuilderInterface.EMPTY_VERTEX_VALUE);
+                found++;
+            }
+            mPos = end;
+        }
+        return mTupleCount;
+    }
+
+    /**
+     * The scratch array filled by nextVertexTuples(), only valid until the next call.
+     */
+    public int[] tuples() {
+        return mTuples;
+    }
+
+    private void addTupleValue(int value) {
+        if (mTupleCount == mTuples.length) {
+            int[] grown = new int[mTuples.length << 1];
+            System.arraycopy(mTuples, 0, grown, 0, mTupleCount);
+            mTuples = grown;
+        }
+        mTuples[mTupleCount++] = value;
+    }
+
+    private void skipWhiteSpace() {
+        while (mPos < mLimit && isWhitespace(mBuf[mPos])) {
+            mPos++;
+        }
+    }
+
+    private int tokenEnd(int start) {
+        int end = start;
+        while (end < mLimit && !isWhitespace(mBuf[end])) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * @return true for the bytes the tokenizer trims and splits tokens on, the
+     * same set String.trim() strips: all control characters and space
+     */
+    static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+}
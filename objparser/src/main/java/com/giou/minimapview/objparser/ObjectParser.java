@@ -0,0 +1,800 @@
+package com.giou.minimapview.objparser;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.INFO;
+import static java.util.logging.Level.SEVERE;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Description:
+ * Author:Giousa
+ * Date:2016/12/19
+ * Email:65489469@qq.com
+ */
+public class ObjectParser {
+    private Logger log = Logger.getLogger(ObjectParser.class.getName());
+
+    // Tokens for parsing.
+    private final static String OBJ_VERTEX_TEXTURE = "vt";
+    private final static String OBJ_VERTEX_NORMAL = "vn";
+    private final static String OBJ_VERTEX = "v";
+    private final static String OBJ_FACE = "f";
+    private final static String OBJ_GROUP_NAME = "g";
+    private final static String OBJ_OBJECT_NAME = "o";
+    private final static String OBJ_SMOOTHING_GROUP = "s";
+    private final static String OBJ_POINT = "p";
+    private final static String OBJ_LINE = "l";
+    private final static String OBJ_MAPLIB = "maplib";
+    private final static String OBJ_USEMAP = "usemap";
+    private final static String OBJ_MTLLIB = "mtllib";
+    private final static String OBJ_USEMTL = "usemtl";
+    private final static String MTL_NEWMTL = "newmtl";
+    private final static String MTL_KA = "Ka";
+    private final static String MTL_KD = "Kd";
+    private final static String MTL_KS = "Ks";
+    private final static String MTL_TF = "Tf";
+    private final static String MTL_ILLUM = "illum";
+    private final static String MTL_D = "d";
+    private final static String MTL_D_DASHHALO = "-halo";
+    private final static String MTL_NS = "Ns";
+    private final static String MTL_SHARPNESS = "sharpness";
+    private final static String MTL_NI = "Ni";
+    private final static String MTL_MAP_KA = "map_Ka";
+    private final static String MTL_MAP_KD = "map_Kd";
+    private final static String MTL_MAP_KS = "map_Ks";
+    private final static String MTL_MAP_NS = "map_Ns";
+    private final static String MTL_MAP_D = "map_d";
+    private final static String MTL_DISP = "disp";
+    private final static String MTL_DECAL = "decal";
+    private final static String MTL_BUMP = "bump";
+    private final static String MTL_REFL = "refl";
+    public final static String MTL_REFL_TYPE_SPHERE = "sphere";
+    public final static String MTL_REFL_TYPE_CUBE_TOP = "cube_top";
+    public final static String MTL_REFL_TYPE_CUBE_BOTTOM = "cube_bottom";
+    public final static String MTL_REFL_TYPE_CUBE_FRONT = "cube_front";
+    public final static String MTL_REFL_TYPE_CUBE_BACK = "cube_back";
+    public final static String MTL_REFL_TYPE_CUBE_LEFT = "cube_left";
+    public final static String MTL_REFL_TYPE_CUBE_RIGHT = "cube_right";
+
+    /**
+     * Parse progress, called on the parsing thread.
+     */
+    public interface OnProgressListener {
+        /**
+         * @param bytesRead     bytes of the OBJ file parsed so far
+         * @param totalBytes    size of the OBJ file, or -1 if unknown
+         */
+        void onProgress(long bytesRead, long totalBytes);
+    }
+
+    // How often progress is reported and cancellation is checked.
+    private static final int PROGRESS_STEP = 64 * 1024;
+
+    // Parallel parsing splits the file into chunks of about this size, files of
+    // fewer chunks are parsed sequentially as the hand-off would eat the gain.
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int MIN_PARALLEL_CHUNKS = 4;
+
+    // Only the first unknown lines of a parse are logged one by one, the rest are counted.
+    private static final int MAX_UNKNOWN_LINE_WARNINGS = 10;
+
+    private BuilderInterface builder = null;
+    // The OBJ source being parsed, MTL files are looked up next to it.
+    private ObjSource source = null;
+    private File cacheDir = null;
+    // Opened by countVertices(), reused by parse() of the same source so its
+    // stamp is only worked out once.
+    private RouteCache cache = null;
+    private ObjSource cacheSource = null;
+    private final ObjTokenizer tokenizer = new ObjTokenizer();
+    private int lineCount = 0;
+    // Byte offset of the chunk a chunk parser parses, its lines count from there.
+    private int chunkStart = -1;
+    // Shared with the chunk parsers of a parallel parse.
+    private AtomicInteger unknownLineCount = new AtomicInteger();
+    // The mtllib files read, kept with the cache. Shared like unknownLineCount.
+    private List<RouteCache.MaterialLib> materialLibs = newMaterialLibs();
+    private OnProgressListener progressListener = null;
+    private volatile boolean cancelled = false;
+    private long bytesRead = 0;
+    private long totalBytes = -1;
+    private long nextProgress = 0;
+    private Executor executor = null;
+    // Package private, tests use tiny chunks to cross many chunk boundaries.
+    int chunkSize = CHUNK_SIZE;
+    private volatile ObjectParser[] chunkParsers = null;
+
+    private final ObjLineReader.LineHandler objLineHandler = new ObjLineReader.LineHandler() {
+        @Override
+        public void handleLine(byte[] buf, int start, int end) throws IOException {
+            bytesRead += end - start + 1;
+            if (bytesRead >= nextProgress) {
+                reportProgress();
+            }
+            processObjLine(buf, start, end);
+        }
+    };
+
+//    File objFile = null;
+
+    public ObjectParser(BuilderInterface builder) {
+        this.builder = builder;
+    }
+
+    public void setBuilder(BuilderInterface builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * Keep a compiled copy of every parsed file in cacheDir and load from it
+     * while the source is unchanged.
+     * @param cacheDir  route cache directory, or null to always parse
+     */
+    public void setCacheDir(File cacheDir) {
+        this.cacheDir = cacheDir;
+        cache = null;
+    }
+
+    public void setOnProgressListener(OnProgressListener listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * Parse large sources in chunks on executor, with at most one chunk per
+     * core queued or parsing ahead of the one being handed to the builder, so
+     * only a few chunks are ever held in memory. The builder still gets every
+     * callback on the parsing thread and in file order. A chunk no pool thread
+     * has started by the time it is needed is parsed on the parsing thread, so
+     * executor may be the pool parse() itself runs on. Streamed sources like
+     * assets, and small files, are always parsed sequentially.
+     * @param executor  a pool to parse chunks on, or null to parse sequentially
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Stop a running parse() as soon as possible, it then throws an
+     * InterruptedIOException. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        ObjectParser[] parsers = chunkParsers;
+        if (parsers != null) {
+            for (ObjectParser parser : parsers) {
+                if (parser != null) {
+                    parser.cancel();
+                }
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the number of OBJ and MTL lines the last parse() skipped as unknown
+     */
+    public int getUnknownLineCount() {
+        return unknownLineCount.get();
+    }
+
+    public void parse(ObjSource source) throws FileNotFoundException, IOException {
+        String filename = source.getName();
+        this.source = source;
+        unknownLineCount = new AtomicInteger();
+        materialLibs = newMaterialLibs();
+        builder.setObjFilename(filename);
+
+        if (cacheDir == null) {
+            parseObjFile(source);
+        } else {
+            RouteCache cache = openCache(source);
+            // A later parse() checks the source again.
+            this.cache = null;
+            if (cache.replay(builder, source)) {
+                log.log(INFO, "Loaded " + filename + " from " + cache.getFile());
+            } else {
+                BuilderInterface target = builder;
+                RouteCache.Recorder recorder = new RouteCache.Recorder(target);
+                builder = recorder;
+                try {
+                    parseObjFile(source);
+                } finally {
+                    builder = target;
+                }
+                if (!cancelled) {
+                    for (RouteCache.MaterialLib lib : materialLibs) {
+                        recorder.addMaterialLib(lib);
+                    }
+                    cache.write(recorder);
+                }
+            }
+        }
+
+        if (cancelled) {
+            throw new InterruptedIOException("parsing " + filename + " cancelled");
+        }
+        builder.doneParsingObj(filename);
+    }
+
+    /**
+     * Cheap count of the geometric vertices in source, for pre-sizing
+     * buffers. Read from the route cache header when there is a current one,
+     * otherwise the source is scanned for "v" lines without parsing them.
+     */
+    public int countVertices(final ObjSource source) throws FileNotFoundException, IOException {
+        if (cacheDir != null) {
+            int cachedCount = openCache(source).readVertexCount();
+            if (cachedCount >= 0) {
+                return cachedCount;
+            }
+        }
+
+        final int[] count = new int[1];
+        ObjLineReader.LineHandler counter = new ObjLineReader.LineHandler() {
+            @Override
+            public void handleLine(byte[] buf, int start, int end) throws IOException {
+                if (cancelled) {
+                    throw new InterruptedIOException("counting " + source.getName() + " cancelled");
+                }
+                // The keyword as the tokenizer sees it: a lone "v" after any
+                // leading whitespace, ended by whitespace or the line end.
+                while (start < end && ObjTokenizer.isWhitespace(buf[start])) {
+                    start++;
+                }
+                if (start < end && buf[start] == 'v'
+                        && (end - start == 1 || ObjTokenizer.isWhitespace(buf[start + 1]))) {
+                    count[0]++;
+                }
+            }
+        };
+
+        source.readLines(new ObjLineReader(), counter);
+        return count[0];
+    }
+
+    private static List<RouteCache.MaterialLib> newMaterialLibs() {
+        return Collections.synchronizedList(new ArrayList<RouteCache.MaterialLib>());
+    }
+
+    private RouteCache openCache(ObjSource source) throws FileNotFoundException, IOException {
+        if (cache == null || cacheSource != source) {
+            cache = new RouteCache(cacheDir, source.getName(), source.getLength(), source.getStamp());
+            cacheSource = source;
+        }
+        return cache;
+    }
+
+    private void parseObjFile(ObjSource source) throws FileNotFoundException, IOException {
+        lineCount = 0;
+        bytesRead = 0;
+        nextProgress = 0;
+        totalBytes = source.getLength();
+
+        ByteBuffer data = null;
+        if (executor != null && totalBytes >= (long) chunkSize * MIN_PARALLEL_CHUNKS) {
+            data = source.getBuffer();
+        }
+        if (data != null) {
+            parseChunks(data);
+        } else {
+            source.readLines(new ObjLineReader(), objLineHandler);
+        }
+        reportProgress();
+
+        log.log(INFO, "Loaded " + lineCount + " lines");
+        if (unknownLineCount.get() > MAX_UNKNOWN_LINE_WARNINGS) {
+            log.log(WARNING, "Skipped " + unknownLineCount.get() + " unknown lines, only the first "
+                    + MAX_UNKNOWN_LINE_WARNINGS + " were logged");
+        }
+    }
+
+    // Split data at the first newline after every chunkSize bytes, parse each chunk
+    // into a BuilderLog on the executor and replay the logs here in file order.
+    private void parseChunks(ByteBuffer data) throws IOException {
+        IntArray bounds = new IntArray();
+        int position = data.position();
+        bounds.add(position);
+        while (position < data.limit()) {
+            position = (int) Math.min((long) position + chunkSize, data.limit());
+            while (position < data.limit() && data.get(position - 1) != '\n') {
+                position++;
+            }
+            bounds.add(position);
+        }
+
+        int chunkCount = bounds.size() - 1;
+        ObjectParser[] parsers = new ObjectParser[chunkCount];
+        List<FutureTask<BuilderLog>> tasks = new ArrayList<>(chunkCount);
+        for (int loopi = 0; loopi < chunkCount; loopi++) {
+            ByteBuffer chunk = data.duplicate();
+            chunk.limit(bounds.get(loopi + 1));
+            chunk.position(bounds.get(loopi));
+            parsers[loopi] = new ObjectParser(new BuilderLog());
+            parsers[loopi].source = source;
+            parsers[loopi].unknownLineCount = unknownLineCount;
+            parsers[loopi].materialLibs = materialLibs;
+            parsers[loopi].chunkStart = bounds.get(loopi);
+            tasks.add(new FutureTask<>(new ChunkTask(parsers[loopi], chunk)));
+        }
+        chunkParsers = parsers;
+        if (cancelled) {
+            // cancel() may have missed the chunk parsers.
+            cancel();
+        }
+
+        // A window of chunks in flight, chunk i + window is submitted once chunk
+        // i is done, so parsed chunks can't pile up waiting for the replay.
+        int window = Math.max(Runtime.getRuntime().availableProcessors(), 1);
+        int submitted = 0;
+        try {
+            for (; submitted < Math.min(window, chunkCount); submitted++) {
+                executor.execute(tasks.get(submitted));
+            }
+            for (int loopi = 0; loopi < chunkCount; loopi++) {
+                // Parse it here if it is still queued, e.g. behind this very
+                // parse on a one thread pool. A task already started is left
+                // alone and waited for.
+                tasks.get(loopi).run();
+                BuilderLog chunkLog = tasks.get(loopi).get();
+                tasks.set(loopi, null);
+                if (submitted < chunkCount) {
+                    executor.execute(tasks.get(submitted++));
+                }
+                chunkLog.replay(builder);
+                lineCount += parsers[loopi].lineCount;
+                // Let the replayed log go.
+                parsers[loopi] = null;
+                bytesRead += bounds.get(loopi + 1) - bounds.get(loopi);
+                reportProgress();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("parsing interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            // Stop whatever is still queued or running after a failure.
+            for (int loopi = 0; loopi < chunkCount; loopi++) {
+                if (tasks.get(loopi) != null) {
+                    parsers[loopi].cancel();
+                    tasks.get(loopi).cancel(false);
+                }
+            }
+            chunkParsers = null;
+        }
+    }
+
+    private static class ChunkTask implements Callable<BuilderLog> {
+        private final ObjectParser parser;
+        private final ByteBuffer chunk;
+
+        ChunkTask(ObjectParser parser, ByteBuffer chunk) {
+            this.parser = parser;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public BuilderLog call() throws IOException {
+            parser.totalBytes = chunk.remaining();
+            new ObjLineReader().readBuffer(chunk, parser.objLineHandler);
+            return (BuilderLog) parser.builder;
+        }
+    }
+
+    private void reportProgress() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("parsing cancelled");
+        }
+        nextProgress = bytesRead + PROGRESS_STEP;
+        if (progressListener != null) {
+            progressListener.onProgress(bytesRead, totalBytes);
+        }
+    }
+
+    // Dispatch on the raw bytes, comments (which may be in any encoding) are never decoded.
+    private void processObjLine(byte[] buf, int start, int end) throws IOException {
+        tokenizer.reset(buf, start, end);
+
+        if (tokenizer.isEmpty()) {
+            return;
+        }
+
+        // The keyword is the first token, matched exactly with one switch on its
+        // first byte, so "s" doesn't take "sharpness" and the order doesn't matter.
+        int keywordLength = tokenizer.tokenLength();
+        byte second = tokenizer.byteAt(1);
+        switch (tokenizer.byteAt(0)) {
+            case '#': // comment
+                return;
+            case 'v':
+                if (keywordLength == 1) {
+                    processVertex();
+                } else if (keywordLength == 2 && second == 't') {
+                    processVertexTexture();
+                } else if (keywordLength == 2 && second == 'n') {
+                    processVertexNormal();
+                } else {
+                    warnUnknownObjLine();
+                }
+                break;
+            case 'f':
+                if (keywordLength == 1) {
+                    processFace();
+                } else {
+                    warnUnknownObjLine();
+                }
+                break;
+            case 'l':
+                if (keywordLength == 1) {
+                    processLine();
+                } else {
+                    warnUnknownObjLine();
+                }
+                break;
+            case 'g':
+                if (keywordLength == 1) {
+                    processGroupName();
+                } else {
+                    warnUnknownObjLine();
+                }
+                break;
+            case 'o':
+                if (keywordLength == 1) {
+                    processObjectName();
+                } else {
+                    warnUnknownObjLine();
+                }
+                break;
+            case 's':
+                if (keywordLength == 1) {
+                    processSmoothingGroup();
+                } else {
+                    warnUnknownObjLine();
+                }
+                break;
+            case 'p':
+                if (keywordLength == 1) {
+                    processPoint();
+                } else {
+                    warnUnknownObjLine();
+                }
+                break;
+            case 'm':
+                if (tokenizer.startsWith(OBJ_MTLLIB) && keywordLength == OBJ_MTLLIB.length()) {
+                    processMaterialLib();
+                } else if (tokenizer.startsWith(OBJ_MAPLIB) && keywordLength == OBJ_MAPLIB.length()) {
+                    processMapLib();
+                } else {
+                    warnUnknownObjLine();
+                }
+                break;
+            case 'u':
+                if (tokenizer.startsWith(OBJ_USEMTL) && keywordLength == OBJ_USEMTL.length()) {
+                    processUseMaterial();
+                } else if (tokenizer.startsWith(OBJ_USEMAP) && keywordLength == OBJ_USEMAP.length()) {
+                    processUseMap();
+                } else {
+                    warnUnknownObjLine();
+                }
+                break;
+            default:
+                warnUnknownObjLine();
+                break;
+        }
+        lineCount++;
+    }
+
+    // Counts the line the tokenizer is on, and logs it while under the limit.
+    private void warnUnknownObjLine() {
+        if (chunkStart < 0) {
+            warnUnknownLine("line " + lineCount);
+        } else {
+            // Earlier chunks may still be parsing, so the file line isn't known.
+            warnUnknownLine("line " + lineCount + " of the chunk at byte " + chunkStart);
+        }
+    }
+
+    private void warnUnknownLine(String where) {
+        if (unknownLineCount.incrementAndGet() <= MAX_UNKNOWN_LINE_WARNINGS) {
+            log.log(WARNING, where + " unknown line |" + tokenizer.line() + "|");
+        }
+    }
+
+    private void processVertex() {
+        tokenizer.skip(OBJ_VERTEX.length());
+        float x = tokenizer.nextFloat();
+        float y = tokenizer.nextFloat();
+        float z = tokenizer.nextFloat();
+        builder.addVertexGeometric(x, y, z);
+    }
+
+    private void processVertexTexture() {
+        tokenizer.skip(OBJ_VERTEX_TEXTURE.length());
+        float u = tokenizer.nextFloat();
+        float v = tokenizer.nextFloat();
+        builder.addVertexTexture(u, v);
+    }
+
+    private void processVertexNormal() {
+        tokenizer.skip(OBJ_VERTEX_NORMAL.length());
+        float x = tokenizer.nextFloat();
+        float y = tokenizer.nextFloat();
+        float z = tokenizer.nextFloat();
+        builder.addVertexNormal(x, y, z);
+    }
+
+    private void processFace() {
+        builder.addFace(parseVertexTuples(OBJ_FACE.length(), 3));
+    }
+
+    // The builder may keep the array, so hand out an exact sized copy of the
+    // tokenizer's scratch buffer, or null for an empty list like StringUtils did.
+    private int[] parseVertexTuples(int keywordLength, int expectedValuesPerTuple) {
+        tokenizer.skip(keywordLength);
+        int count = tokenizer.nextVertexTuples(expectedValuesPerTuple);
+        if (count == 0) {
+            return null;
+        }
+        return Arrays.copyOf(tokenizer.tuples(), count);
+    }
+
+    // Rest of the current line after the keyword, trimmed.
+    private String restOfLine(String keyword) {
+        tokenizer.skip(keyword.length());
+        return tokenizer.rest();
+    }
+
+    private void processGroupName() {
+        String[] groupnames = StringUtils.parseWhitespaceList(restOfLine(OBJ_GROUP_NAME));
+        builder.setCurrentGroupNames(groupnames);
+    }
+
+    private void processObjectName() {
+        builder.addObjectName(restOfLine(OBJ_OBJECT_NAME));
+    }
+
+    private void processSmoothingGroup() {
+        String line = restOfLine(OBJ_SMOOTHING_GROUP);
+        int groupNumber = 0;
+        if (!line.equalsIgnoreCase("off")) {
+            groupNumber = Integer.parseInt(line);
+        }
+        builder.setCurrentSmoothingGroup(groupNumber);
+    }
+
+    private void processPoint() {
+        builder.addPoints(parseVertexTuples(OBJ_POINT.length(), 1));
+    }
+
+    private void processLine() {
+        builder.addLine(parseVertexTuples(OBJ_LINE.length(), 2));
+    }
+
+    private void processMaterialLib() throws FileNotFoundException, IOException {
+        String[] matlibnames = StringUtils.parseWhitespaceList(restOfLine(OBJ_MTLLIB));
+
+        if (null != matlibnames) {
+            for (int loopi = 0; loopi < matlibnames.length; loopi++) {
+                ObjSource mtlSource = source == null ? null : source.resolve(matlibnames[loopi]);
+                if (mtlSource == null) {
+                    log.log(WARNING, "Nowhere to look for material file name='" + matlibnames[loopi] + "'");
+                    continue;
+                }
+                // Stamped before reading, so a file changed meanwhile is read again next time.
+                materialLibs.add(RouteCache.MaterialLib.of(matlibnames[loopi], mtlSource));
+                try {
+                    parseMtlFile(mtlSource);
+                } catch (FileNotFoundException e) {
+                    log.log(SEVERE, "Can't find material file name='" + matlibnames[loopi] + "', e=" + e);
+                }
+            }
+        }
+    }
+
+    private void processUseMaterial() {
+        builder.setCurrentUseMaterial(restOfLine(OBJ_USEMTL));
+    }
+
+    private void processMapLib() {
+        String[] maplibnames = StringUtils.parseWhitespaceList(restOfLine(OBJ_MAPLIB));
+        builder.addMapLib(maplibnames);
+    }
+
+    private void processUseMap() {
+        builder.setCurrentUseMap(restOfLine(OBJ_USEMAP));
+    }
+
+
+    // The OBJ line that named the MTL file is done with the tokenizer, so it is reused here.
+    private void parseMtlFile(ObjSource mtlSource) throws FileNotFoundException, IOException {
+        final int[] mtlLineCount = new int[1];
+        mtlSource.readLines(new ObjLineReader(), new ObjLineReader.LineHandler() {
+            @Override
+            public void handleLine(byte[] buf, int start, int end) {
+                mtlLineCount[0]++;
+                processMtlLine(buf, start, end, mtlLineCount[0]);
+            }
+        });
+        builder.doneParsingMaterial();
+
+        log.log(INFO, "Loaded " + mtlLineCount[0] + " material lines from " + mtlSource.getName());
+    }
+
+    // Keywords are matched as whole tokens, the order doesn't matter.
+    private void processMtlLine(byte[] buf, int start, int end, int mtlLineNumber) {
+        tokenizer.reset(buf, start, end);
+
+        if (tokenizer.isEmpty() || tokenizer.startsWith("#")) {
+            return;
+        }
+
+        if (tokenizer.nextTokenEquals(MTL_NEWMTL)) {
+            processNewmtl();
+        } else if (tokenizer.nextTokenEquals(MTL_KA)) {
+            processReflectivityTransmissivity(BuilderInterface.MTL_KA);
+        } else if (tokenizer.nextTokenEquals(MTL_KD)) {
+            processReflectivityTransmissivity(BuilderInterface.MTL_KD);
+        } else if (tokenizer.nextTokenEquals(MTL_KS)) {
+            processReflectivityTransmissivity(BuilderInterface.MTL_KS);
+        } else if (tokenizer.nextTokenEquals(MTL_TF)) {
+            processReflectivityTransmissivity(BuilderInterface.MTL_TF);
+        } else if (tokenizer.nextTokenEquals(MTL_ILLUM)) {
+            processIllum();
+        } else if (tokenizer.nextTokenEquals(MTL_D)) {
+            processD();
+        } else if (tokenizer.nextTokenEquals(MTL_NS)) {
+            processNs();
+        } else if (tokenizer.nextTokenEquals(MTL_SHARPNESS)) {
+            processSharpness();
+        } else if (tokenizer.nextTokenEquals(MTL_NI)) {
+            processNi();
+        } else if (tokenizer.nextTokenEquals(MTL_MAP_KA)) {
+            processMapDecalDispBump(BuilderInterface.MTL_MAP_KA);
+        } else if (tokenizer.nextTokenEquals(MTL_MAP_KD)) {
+            processMapDecalDispBump(BuilderInterface.MTL_MAP_KD);
+        } else if (tokenizer.nextTokenEquals(MTL_MAP_KS)) {
+            processMapDecalDispBump(BuilderInterface.MTL_MAP_KS);
+        } else if (tokenizer.nextTokenEquals(MTL_MAP_NS)) {
+            processMapDecalDispBump(BuilderInterface.MTL_MAP_NS);
+        } else if (tokenizer.nextTokenEquals(MTL_MAP_D)) {
+            processMapDecalDispBump(BuilderInterface.MTL_MAP_D);
+        } else if (tokenizer.nextTokenEquals(MTL_DISP)) {
+            processMapDecalDispBump(BuilderInterface.MTL_DISP);
+        } else if (tokenizer.nextTokenEquals(MTL_DECAL)) {
+            processMapDecalDispBump(BuilderInterface.MTL_DECAL);
+        } else if (tokenizer.nextTokenEquals(MTL_BUMP)) {
+            processMapDecalDispBump(BuilderInterface.MTL_BUMP);
+        } else if (tokenizer.nextTokenEquals(MTL_REFL)) {
+            processRefl();
+        } else {
+            warnUnknownLine("material line " + mtlLineNumber);
+        }
+    }
+
+    private void processNewmtl() {
+        builder.newMtl(tokenizer.rest());
+    }
+
+    private void processReflectivityTransmissivity(int type) {
+        if (!tokenizer.hasNext()) {
+            log.log(SEVERE, "Got Ka line with no tokens, line = |" + tokenizer.line() + "|");
+            return;
+        }
+        if (tokenizer.nextTokenEquals("spectral")) {
+            // Ka spectral file.rfl factor_num
+            log.log(WARNING, "Sorry Charlie, this parse doesn't handle \'spectral\' parsing.  (Mostly because I can't find any info on the spectra.rfl file.)");
+            return;
+
+        } else if (tokenizer.nextTokenEquals("xyz")) {
+            // Ka xyz x_num y_num z_num
+
+            if (!tokenizer.hasNext()) {
+                log.log(SEVERE, "Got xyz line with not enough x/y/z tokens, need at least one value for x, found 0 line = |" + tokenizer.line() + "|");
+                return;
+            }
+            float x = tokenizer.nextFloat();
+            float y = tokenizer.hasNext() ? tokenizer.nextFloat() : x;
+            float z = tokenizer.hasNext() ? tokenizer.nextFloat() : x;
+            builder.setXYZ(type, x, y, z);
+        } else {
+            // Ka r_num g_num b_num
+            float r = tokenizer.nextFloat();
+            float g = tokenizer.hasNext() ? tokenizer.nextFloat() : r;
+            float b = tokenizer.hasNext() ? tokenizer.nextFloat() : r;
+            builder.setRGB(type, r, g, b);
+        }
+    }
+
+    private void processIllum() {
+        int illumModel = tokenizer.nextInt();
+        if ((illumModel < 0) || (illumModel > 10)) {
+            log.log(SEVERE, "Got illum model value out of range (0 to 10 inclusive is allowed), value=" + illumModel + ", line=" + tokenizer.line());
+            return;
+        }
+        builder.setIllum(illumModel);
+    }
+
+    // "d nnn.nn" or "d -halo nnn.nn"
+    private void processD() {
+        boolean halo = tokenizer.nextTokenEquals(MTL_D_DASHHALO);
+        float factor = tokenizer.nextFloat();
+        builder.setD(halo, factor);
+    }
+
+    private void processNs() {
+        float exponent = tokenizer.nextFloat();
+        builder.setNs(exponent);
+    }
+
+    private void processSharpness() {
+        float value = tokenizer.nextFloat();
+        builder.setSharpness(value);
+    }
+
+    private void processNi() {
+        float opticalDensity = tokenizer.nextFloat();
+        builder.setNi(opticalDensity);
+    }
+
+    private void processMapDecalDispBump(int type) {
+        String filename = tokenizer.rest();
+        builder.setMapDecalDispBump(type, filename);
+
+        // @TODO: Add processing of the options...?
+    }
+
+    private void processRefl() {
+        String filename = null;
+
+        int type = BuilderInterface.MTL_REFL_TYPE_UNKNOWN;
+        if (tokenizer.nextTokenEquals("-type")) {
+            if (tokenizer.nextTokenEquals(MTL_REFL_TYPE_SPHERE)) {
+                type = BuilderInterface.MTL_REFL_TYPE_SPHERE;
+            } else if (tokenizer.nextTokenEquals(MTL_REFL_TYPE_CUBE_TOP)) {
+                type = BuilderInterface.MTL_REFL_TYPE_CUBE_TOP;
+            } else if (tokenizer.nextTokenEquals(MTL_REFL_TYPE_CUBE_BOTTOM)) {
+                type = BuilderInterface.MTL_REFL_TYPE_CUBE_BOTTOM;
+            } else if (tokenizer.nextTokenEquals(MTL_REFL_TYPE_CUBE_FRONT)) {
+                type = BuilderInterface.MTL_REFL_TYPE_CUBE_FRONT;
+            } else if (tokenizer.nextTokenEquals(MTL_REFL_TYPE_CUBE_BACK)) {
+                type = BuilderInterface.MTL_REFL_TYPE_CUBE_BACK;
+            } else if (tokenizer.nextTokenEquals(MTL_REFL_TYPE_CUBE_LEFT)) {
+                type = BuilderInterface.MTL_REFL_TYPE_CUBE_LEFT;
+            } else if (tokenizer.nextTokenEquals(MTL_REFL_TYPE_CUBE_RIGHT)) {
+                type = BuilderInterface.MTL_REFL_TYPE_CUBE_RIGHT;
+            } else {
+                log.log(SEVERE, "unknown material refl -type, line = |" + tokenizer.line() + "|");
+                return;
+            }
+        }
+        filename = tokenizer.rest();
+
+        builder.setRefl(type, filename);
+    }
+}
@@ -0,0 +1,909 @@
+package com.giou.minimapview.objparser;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Description: Compiled binary copy of a parsed OBJ file, so repeated loads can
+ * replay the geometry without parsing the text again.
+ *
+ * Layout, in native byte order:
+ *
+ *   int    magic, version
+ *   long   source size, source stamp (mtime or content hash)
+ *   int    source path length, UTF-8 path bytes padded to 4
+ *   int    vertex, texture and normal float counts
+ *   int    face count, face index count
+ *   int    line count, line index count
+ *   int    point count, point index count
+ *   int    statement int count, order int count
+ *   float  vertices (x,y,z), textures (u,v), normals (x,y,z)
+ *   int    face lengths, face indices
+ *   int    line lengths, line indices
+ *   int    point lengths, point indices
+ *          A length of -1 is an element the builder got as null.
+ *   int    statements: per o, g, s, usemtl, usemap, maplib or material
+ *          statement its kind, then its arguments. Strings are UTF-8 length
+ *          and bytes padded to 4, -1 for none. The mtllib files read are kept
+ *          as name, size and stamp, a cache is only current while they are too.
+ *   int    order: the callbacks as runs of kind and count, so replay() makes
+ *          them in the order the parser did.
+ *
+ * Indices are stored as the builder got them. Since the order is kept,
+ * relative (negative) indices refer to the same vertices on replay.
+ * setObjFilename() and doneParsingObj() are made by ObjectParser.parse() on a
+ * replay too, and are not stored.
+ */
+public class RouteCache {
+    private static Logger log = Logger.getLogger(RouteCache.class.getName());
+
+    private static final int MAGIC = 0x4D4D5243; // "MMRC"
+    private static final int VERSION = 5;
+    private static final int SECTION_COUNT = 11;
+
+    private static final int ORDER_VERTEX = 0;
+    private static final int ORDER_TEXTURE = 1;
+    private static final int ORDER_NORMAL = 2;
+    private static final int ORDER_FACE = 3;
+    private static final int ORDER_LINE = 4;
+    private static final int ORDER_POINTS = 5;
+    private static final int ORDER_STATEMENT = 6;
+
+    private static final int STATEMENT_OBJECT = 0;
+    private static final int STATEMENT_GROUPS = 1;
+    private static final int STATEMENT_USEMTL = 2;
+    private static final int STATEMENT_NEWMTL = 3;
+    private static final int STATEMENT_XYZ = 4;
+    private static final int STATEMENT_RGB = 5;
+    private static final int STATEMENT_ILLUM = 6;
+    private static final int STATEMENT_D = 7;
+    private static final int STATEMENT_NS = 8;
+    private static final int STATEMENT_SHARPNESS = 9;
+    private static final int STATEMENT_NI = 10;
+    private static final int STATEMENT_MAP = 11;
+    private static final int STATEMENT_REFL = 12;
+    private static final int STATEMENT_DONE_MATERIAL = 13;
+    private static final int STATEMENT_MATERIAL_LIB = 14;
+    private static final int STATEMENT_MAP_LIB = 15;
+    private static final int STATEMENT_SMOOTHING = 16;
+    private static final int STATEMENT_USEMAP = 17;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mFile;
+    private final String mSourcePath;
+    private final long mSourceSize;
+    private final long mSourceStamp;
+
+    /**
+     * @param cacheDir      directory to keep the cache file in
+     * @param sourcePath    name of the source the OBJ file was loaded from
+     * @param sourceSize    size of the source in bytes
+     * @param sourceStamp   modification time or content hash of the source
+     */
+    public RouteCache(File cacheDir, String sourcePath, long sourceSize, long sourceStamp) {
+        mFile = new File(cacheDir, "route-" + Integer.toHexString(sourcePath.hashCode()) + ".bin");
+        mSourcePath = sourcePath;
+        mSourceSize = sourceSize;
+        mSourceStamp = sourceStamp;
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Content stamp for sources without a modification time. Hashing is a plain
+     * sequential read and far cheaper than parsing. The stream is closed.
+     */
+    public static long checksum(InputStream inputStream) throws IOException {
+        CRC32 crc = new CRC32();
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, count);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Content stamp of the remaining bytes of buffer, its position is left unchanged.
+     */
+    public static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        if (buffer.hasArray()) {
+            crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            ByteBuffer source = buffer.duplicate();
+            byte[] chunk = new byte[64 * 1024];
+            while (source.hasRemaining()) {
+                int count = Math.min(source.remaining(), chunk.length);
+                source.get(chunk, 0, count);
+                crc.update(chunk, 0, count);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * A material file read while parsing, by its mtllib name.
+     */
+    static final class MaterialLib {
+        final String name;
+        final long size;
+        final long stamp;
+
+        MaterialLib(String name, long size, long stamp) {
+            this.name = name;
+            this.size = size;
+            this.stamp = stamp;
+        }
+
+        /**
+         * @return the size and stamp of mtlSource, -1 for both if it is missing
+         */
+        static MaterialLib of(String name, ObjSource mtlSource) throws IOException {
+            try {
+                return new MaterialLib(name, mtlSource.getLength(), mtlSource.getStamp());
+            } catch (FileNotFoundException e) {
+                return new MaterialLib(name, -1, -1);
+            }
+        }
+    }
+
+    /**
+     * Replay the cached geometry and materials into builder. Nothing is passed
+     * to the builder unless the whole cache file is present, current and intact.
+     * @param source    the OBJ source, its mtllib files are resolved against it
+     * @return true if the geometry was replayed, false if the source has to be parsed
+     */
+    public boolean replay(BuilderInterface builder, ObjSource source) {
+        if (!mFile.isFile()) {
+            return false;
+        }
+
+        Sections cached;
+        try {
+            cached = read(source);
+        } catch (IOException e) {
+            log.log(WARNING, "Can't read route cache '" + mFile + "', e=" + e);
+            return false;
+        } catch (RuntimeException e) {
+            // Truncated or corrupt file, BufferUnderflowException and friends.
+            log.log(WARNING, "Corrupt route cache '" + mFile + "', e=" + e);
+            return false;
+        }
+        if (cached == null) {
+            return false;
+        }
+
+        IntBuffer order = cached.order;
+        for (int loopi = 0; loopi < order.limit(); loopi += 2) {
+            int kind = order.get(loopi);
+            for (int count = order.get(loopi + 1); count > 0; count--) {
+                switch (kind) {
+                    case ORDER_VERTEX:
+                        builder.addVertexGeometric(cached.vertices.get(), cached.vertices.get(),
+                                cached.vertices.get());
+                        break;
+                    case ORDER_TEXTURE:
+                        builder.addVertexTexture(cached.textures.get(), cached.textures.get());
+                        break;
+                    case ORDER_NORMAL:
+                        builder.addVertexNormal(cached.normals.get(), cached.normals.get(), cached.normals.get());
+                        break;
+                    case ORDER_FACE:
+                        builder.addFace(getElement(cached.faceLengths, cached.faceIndices));
+                        break;
+                    case ORDER_LINE:
+                        builder.addLine(getElement(cached.lineLengths, cached.lineIndices));
+                        break;
+                    case ORDER_POINTS:
+                        builder.addPoints(getElement(cached.pointLengths, cached.pointIndices));
+                        break;
+                    default:
+                        readStatement(cached.statements, cached.statements.getInt(), builder, null);
+                        break;
+                }
+            }
+        }
+        return true;
+    }
+
+    // The next element, straight from the mapped sections.
+    private static int[] getElement(IntBuffer lengths, IntBuffer indices) {
+        int length = lengths.get();
+        if (length < 0) {
+            return null;
+        }
+        int[] values = new int[length];
+        indices.get(values);
+        return values;
+    }
+
+    // Consume the arguments of a statement and pass it to builder, if there
+    // is one. With a source, the mtllib files are checked instead.
+    // @return false if a material file changed since the cache was written
+    private static boolean readStatement(ByteBuffer statements, int kind, BuilderInterface builder,
+                                         ObjSource source) {
+        switch (kind) {
+            case STATEMENT_OBJECT: {
+                String name = getString(statements);
+                if (builder != null) {
+                    builder.addObjectName(name);
+                }
+                break;
+            }
+            case STATEMENT_GROUPS: {
+                String[] groups = getStrings(statements);
+                if (builder != null) {
+                    builder.setCurrentGroupNames(groups);
+                }
+                break;
+            }
+            case STATEMENT_MAP_LIB: {
+                String[] names = getStrings(statements);
+                if (builder != null) {
+                    builder.addMapLib(names);
+                }
+                break;
+            }
+            case STATEMENT_SMOOTHING: {
+                int groupNumber = statements.getInt();
+                if (builder != null) {
+                    builder.setCurrentSmoothingGroup(groupNumber);
+                }
+                break;
+            }
+            case STATEMENT_USEMTL: {
+                String name = getString(statements);
+                if (builder != null) {
+                    builder.setCurrentUseMaterial(name);
+                }
+                break;
+            }
+            case STATEMENT_USEMAP: {
+                String name = getString(statements);
+                if (builder != null) {
+                    builder.setCurrentUseMap(name);
+                }
+                break;
+            }
+            case STATEMENT_NEWMTL: {
+                String name = getString(statements);
+                if (builder != null) {
+                    builder.newMtl(name);
+                }
+                break;
+            }
+            case STATEMENT_XYZ:
+            case STATEMENT_RGB: {
+                int type = statements.getInt();
+                float x = statements.getFloat();
+                float y = statements.getFloat();
+                float z = statements.getFloat();
+                if (builder != null && kind == STATEMENT_XYZ) {
+                    builder.setXYZ(type, x, y, z);
+                } else if (builder != null) {
+                    builder.setRGB(type, x, y, z);
+                }
+                break;
+            }
+            case STATEMENT_ILLUM: {
+                int illumModel = statements.getInt();
+                if (builder != null) {
+                    builder.setIllum(illumModel);
+                }
+                break;
+            }
+            case STATEMENT_D: {
+                boolean halo = statements.getInt() != 0;
+                float factor = statements.getFloat();
+                if (builder != null) {
+                    builder.setD(halo, factor);
+                }
+                break;
+            }
+            case STATEMENT_NS:
+            case STATEMENT_SHARPNESS:
+            case STATEMENT_NI: {
+                float value = statements.getFloat();
+                if (builder == null) {
+                    break;
+                }
+                if (kind == STATEMENT_NS) {
+                    builder.setNs(value);
+                } else if (kind == STATEMENT_SHARPNESS) {
+                    builder.setSharpness(value);
+                } else {
+                    builder.setNi(value);
+                }
+                break;
+            }
+            case STATEMENT_MAP:
+            case STATEMENT_REFL: {
+                int type = statements.getInt();
+                String filename = getString(statements);
+                if (builder != null && kind == STATEMENT_MAP) {
+                    builder.setMapDecalDispBump(type, filename);
+                } else if (builder != null) {
+                    builder.setRefl(type, filename);
+                }
+                break;
+            }
+            case STATEMENT_DONE_MATERIAL:
+                if (builder != null) {
+                    builder.doneParsingMaterial();
+                }
+                break;
+            case STATEMENT_MATERIAL_LIB: {
+                String name = getString(statements);
+                long size = statements.getLong();
+                long stamp = statements.getLong();
+                ObjSource mtlSource = source == null ? null : source.resolve(name);
+                if (mtlSource != null) {
+                    try {
+                        MaterialLib current = MaterialLib.of(name, mtlSource);
+                        if (current.size != size || current.stamp != stamp) {
+                            return false;
+                        }
+                    } catch (IOException e) {
+                        return false;
+                    }
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of cached vertices, or -1 if there is no current cache file
+     */
+    public int readVertexCount() {
+        if (!mFile.isFile()) {
+            return -1;
+        }
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                        .order(ByteOrder.nativeOrder());
+                if (!readHeader(buffer)) {
+                    return -1;
+                }
+                return buffer.getInt() / 3;
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            return -1;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Write what recorder collected. Failures are logged and leave no cache file behind.
+     * @return true if the cache file was written
+     */
+    public boolean write(Recorder recorder) {
+        File parent = mFile.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            log.log(WARNING, "Can't create route cache directory '" + parent + "'");
+            return false;
+        }
+
+        byte[] path = mSourcePath.getBytes(UTF_8);
+        int statementsSize = recorder.mStatements.position();
+        long size = 4 + 4 + 8 + 8 + 4 + padded(path.length) + SECTION_COUNT * 4
+                + 4L * (recorder.mVertices.size() + recorder.mTextures.size() + recorder.mNormals.size())
+                + 4L * (recorder.mFaceLengths.size() + recorder.mFaceIndices.size())
+                + 4L * (recorder.mLineLengths.size() + recorder.mLineIndices.size())
+                + 4L * (recorder.mPointLengths.size() + recorder.mPointIndices.size())
+                + statementsSize + 4L * recorder.mOrder.size();
+
+        File tmpFile = new File(mFile.getPath() + ".tmp");
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(tmpFile, "rw");
+            try {
+                randomAccessFile.setLength(size);
+                ByteBuffer buffer = randomAccessFile.getChannel()
+                        .map(FileChannel.MapMode.READ_WRITE, 0, size)
+                        .order(ByteOrder.nativeOrder());
+
+                buffer.putInt(MAGIC);
+                buffer.putInt(VERSION);
+                buffer.putLong(mSourceSize);
+                buffer.putLong(mSourceStamp);
+                buffer.putInt(path.length);
+                buffer.put(path);
+                buffer.position(buffer.position() + padded(path.length) - path.length);
+
+                buffer.putInt(recorder.mVertices.size());
+                buffer.putInt(recorder.mTextures.size());
+                buffer.putInt(recorder.mNormals.size());
+                buffer.putInt(recorder.mFaceLengths.size());
+                buffer.putInt(recorder.mFaceIndices.size());
+                buffer.putInt(recorder.mLineLengths.size());
+                buffer.putInt(recorder.mLineIndices.size());
+                buffer.putInt(recorder.mPointLengths.size());
+                buffer.putInt(recorder.mPointIndices.size());
+                buffer.putInt(statementsSize / 4);
+                buffer.putInt(recorder.mOrder.size());
+
+                putFloats(buffer, recorder.mVertices);
+                putFloats(buffer, recorder.mTextures);
+                putFloats(buffer, recorder.mNormals);
+                putInts(buffer, recorder.mFaceLengths);
+                putInts(buffer, recorder.mFaceIndices);
+                putInts(buffer, recorder.mLineLengths);
+                putInts(buffer, recorder.mLineIndices);
+                putInts(buffer, recorder.mPointLengths);
+                putInts(buffer, recorder.mPointIndices);
+                buffer.put(recorder.mStatements.array(), 0, statementsSize);
+                putInts(buffer, recorder.mOrder);
+            } finally {
+                randomAccessFile.close();
+            }
+            if (!tmpFile.renameTo(mFile)) {
+                throw new IOException("rename to '" + mFile + "' failed");
+            }
+            return true;
+        } catch (IOException e) {
+            log.log(WARNING, "Can't write route cache '" + mFile + "', e=" + e);
+            tmpFile.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Views of the sections of a mapped cache file, positioned at their start.
+     */
+    private static final class Sections {
+        FloatBuffer vertices;
+        FloatBuffer textures;
+        FloatBuffer normals;
+        IntBuffer faceLengths;
+        IntBuffer faceIndices;
+        IntBuffer lineLengths;
+        IntBuffer lineIndices;
+        IntBuffer pointLengths;
+        IntBuffer pointIndices;
+        ByteBuffer statements;
+        IntBuffer order;
+    }
+
+    // Map the file and check it can be replayed as a whole. The sections are
+    // read in place, the mapping stays valid after the file is closed.
+    // Returns null when the file belongs to another source or an older format,
+    // or a material file changed.
+    private Sections read(ObjSource source) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.nativeOrder());
+
+            if (!readHeader(buffer)) {
+                return null;
+            }
+
+            int[] counts = new int[SECTION_COUNT];
+            long total = 0;
+            for (int loopi = 0; loopi < counts.length; loopi++) {
+                counts[loopi] = buffer.getInt();
+                if (counts[loopi] < 0) {
+                    throw new IOException("negative section length");
+                }
+                total += 4L * counts[loopi];
+            }
+            if (total != buffer.remaining()) {
+                throw new IOException("size mismatch, expected " + total + " bytes, found " + buffer.remaining());
+            }
+
+            Sections cached = new Sections();
+            cached.vertices = section(buffer, counts[0]).asFloatBuffer();
+            cached.textures = section(buffer, counts[1]).asFloatBuffer();
+            cached.normals = section(buffer, counts[2]).asFloatBuffer();
+            cached.faceLengths = section(buffer, counts[3]).asIntBuffer();
+            cached.faceIndices = section(buffer, counts[4]).asIntBuffer();
+            cached.lineLengths = section(buffer, counts[5]).asIntBuffer();
+            cached.lineIndices = section(buffer, counts[6]).asIntBuffer();
+            cached.pointLengths = section(buffer, counts[7]).asIntBuffer();
+            cached.pointIndices = section(buffer, counts[8]).asIntBuffer();
+            cached.statements = section(buffer, counts[9]);
+            cached.order = section(buffer, counts[10]).asIntBuffer();
+
+            if (sum(cached.faceLengths) != counts[4] || sum(cached.lineLengths) != counts[6]
+                    || sum(cached.pointLengths) != counts[8]) {
+                throw new IOException("element lengths don't match index counts");
+            }
+            int statementCount = checkOrder(cached.order, counts);
+            return checkStatements(cached.statements, statementCount, source) ? cached : null;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    // The next ints ints of buffer as a buffer of their own.
+    private static ByteBuffer section(ByteBuffer buffer, int ints) {
+        ByteBuffer section = buffer.slice().order(ByteOrder.nativeOrder());
+        section.limit(4 * ints);
+        buffer.position(buffer.position() + 4 * ints);
+        return section;
+    }
+
+    // Walk the statements section, so replay() can't fail half way, and check
+    // the material files against source. Leaves the section at its start.
+    private static boolean checkStatements(ByteBuffer statements, int count, ObjSource source)
+            throws IOException {
+        boolean current = true;
+        for (; count > 0; count--) {
+            int kind = statements.getInt();
+            if (kind < STATEMENT_OBJECT || kind > STATEMENT_USEMAP) {
+                throw new IOException("bad statement kind " + kind);
+            }
+            current &= readStatement(statements, kind, null, source);
+        }
+        if (statements.hasRemaining()) {
+            throw new IOException("more statements than the order has");
+        }
+        statements.rewind();
+        return current;
+    }
+
+    // Check the runs use up the element sections exactly.
+    // @return the number of statements they replay
+    private static int checkOrder(IntBuffer order, int[] counts) throws IOException {
+        if (order.limit() % 2 != 0) {
+            throw new IOException("odd order length");
+        }
+        long[] totals = new long[ORDER_STATEMENT + 1];
+        for (int loopi = 0; loopi < order.limit(); loopi += 2) {
+            int kind = order.get(loopi);
+            int count = order.get(loopi + 1);
+            if (kind < ORDER_VERTEX || kind > ORDER_STATEMENT || count <= 0) {
+                throw new IOException("bad order entry");
+            }
+            totals[kind] += count;
+        }
+        if (totals[ORDER_VERTEX] * 3 != counts[0] || totals[ORDER_TEXTURE] * 2 != counts[1]
+                || totals[ORDER_NORMAL] * 3 != counts[2] || totals[ORDER_FACE] != counts[3]
+                || totals[ORDER_LINE] != counts[5] || totals[ORDER_POINTS] != counts[7]
+                || totals[ORDER_STATEMENT] > Integer.MAX_VALUE) {
+            throw new IOException("order doesn't match the sections");
+        }
+        return (int) totals[ORDER_STATEMENT];
+    }
+
+    // Check the header belongs to this source and leave buffer at the section counts.
+    private boolean readHeader(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != mSourceSize || buffer.getLong() != mSourceStamp) {
+            return false;
+        }
+        byte[] path = new byte[buffer.getInt()];
+        buffer.get(path);
+        if (!mSourcePath.equals(new String(path, UTF_8))) {
+            return false;
+        }
+        buffer.position(buffer.position() + padded(path.length) - path.length);
+        return true;
+    }
+
+    private static int padded(int length) {
+        return (length + 3) & ~3;
+    }
+
+    // Length prefixed UTF-8, padded to 4, null as length -1.
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        buffer.position(buffer.position() + padded(length) - length);
+        return new String(bytes, UTF_8);
+    }
+
+    // Count first, -1 for null.
+    private static String[] getStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        String[] values = new String[count];
+        for (int loopi = 0; loopi < count; loopi++) {
+            values[loopi] = getString(buffer);
+        }
+        return values;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        buffer.position(buffer.position() + padded(bytes.length) - bytes.length);
+    }
+
+    // Sum of the element lengths, the -1 of null elements counts as none.
+    private static long sum(IntBuffer lengths) throws IOException {
+        long sum = 0;
+        for (int loopi = 0; loopi < lengths.limit(); loopi++) {
+            int length = lengths.get(loopi);
+            if (length < -1) {
+                throw new IOException("negative element length");
+            }
+            sum += Math.max(length, 0);
+        }
+        return sum;
+    }
+
+    private static void putFloats(ByteBuffer buffer, FloatArray values) {
+        buffer.asFloatBuffer().put(values.array(), 0, values.size());
+        buffer.position(buffer.position() + 4 * values.size());
+    }
+
+    private static void putInts(ByteBuffer buffer, IntArray values) {
+        buffer.asIntBuffer().put(values.array(), 0, values.size());
+        buffer.position(buffer.position() + 4 * values.size());
+    }
+
+    /**
+     * Passes every callback on to the wrapped builder and records it, in order,
+     * for RouteCache.write(). setObjFilename() and doneParsingObj() are passed
+     * on only, ObjectParser.parse() makes them on a replay as well.
+     */
+    public static class Recorder implements BuilderInterface {
+
+        private final BuilderInterface mTarget;
+
+        final FloatArray mVertices = new FloatArray();
+        final FloatArray mTextures = new FloatArray();
+        final FloatArray mNormals = new FloatArray();
+        final IntArray mFaceLengths = new IntArray();
+        final IntArray mFaceIndices = new IntArray();
+        final IntArray mLineLengths = new IntArray();
+        final IntArray mLineIndices = new IntArray();
+        final IntArray mPointLengths = new IntArray();
+        final IntArray mPointIndices = new IntArray();
+
+        // The statements laid out as in the statements section, up to the position.
+        ByteBuffer mStatements = ByteBuffer.allocate(256).order(ByteOrder.nativeOrder());
+        // Runs of kind and count, as in the order section.
+        final IntArray mOrder = new IntArray();
+
+        public Recorder(BuilderInterface target) {
+            mTarget = target;
+        }
+
+        /**
+         * Keep lib as a file the cache depends on, it is not passed on.
+         */
+        void addMaterialLib(MaterialLib lib) {
+            recordStatement(STATEMENT_MATERIAL_LIB, stringSize(lib.name) + 16);
+            putString(mStatements, lib.name);
+            mStatements.putLong(lib.size);
+            mStatements.putLong(lib.stamp);
+        }
+
+        private void order(int kind) {
+            int size = mOrder.size();
+            if (size > 0 && mOrder.get(size - 2) == kind) {
+                mOrder.array()[size - 1]++;
+            } else {
+                mOrder.add(kind);
+                mOrder.add(1);
+            }
+        }
+
+        private void record(int kind, IntArray lengths, IntArray indices, int values[]) {
+            order(kind);
+            if (values == null) {
+                lengths.add(-1);
+                return;
+            }
+            lengths.add(values.length);
+            indices.addAll(values, 0, values.length);
+        }
+
+        // Start a statements entry with room for at least extraBytes more.
+        private void recordStatement(int kind, int extraBytes) {
+            int needed = mStatements.position() + 4 + extraBytes;
+            if (needed > mStatements.capacity()) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(needed, mStatements.capacity() * 2))
+                        .order(ByteOrder.nativeOrder());
+                grown.put(mStatements.array(), 0, mStatements.position());
+                mStatements = grown;
+            }
+            mStatements.putInt(kind);
+            order(ORDER_STATEMENT);
+        }
+
+        private void recordString(int kind, String value) {
+            recordStatement(kind, stringSize(value));
+            putString(mStatements, value);
+        }
+
+        private static int stringSize(String value) {
+            return 4 + (value == null ? 0 : padded(value.getBytes(UTF_8).length));
+        }
+
+        private void recordStrings(int kind, String[] values) {
+            int size = 4;
+            for (int loopi = 0; values != null && loopi < values.length; loopi++) {
+                size += stringSize(values[loopi]);
+            }
+            recordStatement(kind, size);
+            mStatements.putInt(values == null ? -1 : values.length);
+            for (int loopi = 0; values != null && loopi < values.length; loopi++) {
+                putString(mStatements, values[loopi]);
+            }
+        }
+
+        public void setObjFilename(String filename) {
+            mTarget.setObjFilename(filename);
+        }
+
+        public void addVertexGeometric(float x, float y, float z) {
+            order(ORDER_VERTEX);
+            mVertices.add(x, y, z);
+            mTarget.addVertexGeometric(x, y, z);
+        }
+
+        public void addVertexTexture(float u, float v) {
+            order(ORDER_TEXTURE);
+            mTextures.add(u);
+            mTextures.add(v);
+            mTarget.addVertexTexture(u, v);
+        }
+
+        public void addVertexNormal(float x, float y, float z) {
+            order(ORDER_NORMAL);
+            mNormals.add(x, y, z);
+            mTarget.addVertexNormal(x, y, z);
+        }
+
+        public void addPoints(int values[]) {
+            record(ORDER_POINTS, mPointLengths, mPointIndices, values);
+            mTarget.addPoints(values);
+        }
+
+        public void addLine(int values[]) {
+            record(ORDER_LINE, mLineLengths, mLineIndices, values);
+            mTarget.addLine(values);
+        }
+
+        public void addFace(int vertexIndices[]) {
+            record(ORDER_FACE, mFaceLengths, mFaceIndices, vertexIndices);
+            mTarget.addFace(vertexIndices);
+        }
+
+        public void addObjectName(String name) {
+            recordString(STATEMENT_OBJECT, name);
+            mTarget.addObjectName(name);
+        }
+
+        public void addMapLib(String[] names) {
+            recordStrings(STATEMENT_MAP_LIB, names);
+            mTarget.addMapLib(names);
+        }
+
+        public void setCurrentGroupNames(String[] names) {
+            recordStrings(STATEMENT_GROUPS, names);
+            mTarget.setCurrentGroupNames(names);
+        }
+
+        public void setCurrentSmoothingGroup(int groupNumber) {
+            recordStatement(STATEMENT_SMOOTHING, 4);
+            mStatements.putInt(groupNumber);
+            mTarget.setCurrentSmoothingGroup(groupNumber);
+        }
+
+        public void setCurrentUseMap(String name) {
+            recordString(STATEMENT_USEMAP, name);
+            mTarget.setCurrentUseMap(name);
+        }
+
+        public void setCurrentUseMaterial(String name) {
+            recordString(STATEMENT_USEMTL, name);
+            mTarget.setCurrentUseMaterial(name);
+        }
+
+        public void newMtl(String name) {
+            recordString(STATEMENT_NEWMTL, name);
+            mTarget.newMtl(name);
+        }
+
+        public void setXYZ(int type, float x, float y, float z) {
+            recordStatement(STATEMENT_XYZ, 16);
+            mStatements.putInt(type);
+            mStatements.putFloat(x).putFloat(y).putFloat(z);
+            mTarget.setXYZ(type, x, y, z);
+        }
+
+        public void setRGB(int type, float r, float g, float b) {
+            recordStatement(STATEMENT_RGB, 16);
+            mStatements.putInt(type);
+            mStatements.putFloat(r).putFloat(g).putFloat(b);
+            mTarget.setRGB(type, r, g, b);
+        }
+
+        public void setIllum(int illumModel) {
+            recordStatement(STATEMENT_ILLUM, 4);
+            mStatements.putInt(illumModel);
+            mTarget.setIllum(illumModel);
+        }
+
+        public void setD(boolean halo, float factor) {
+            recordStatement(STATEMENT_D, 8);
+            mStatements.putInt(halo ? 1 : 0);
+            mStatements.putFloat(factor);
+            mTarget.setD(halo, factor);
+        }
+
+        public void setNs(float exponent) {
+            recordStatement(STATEMENT_NS, 4);
+            mStatements.putFloat(exponent);
+            mTarget.setNs(exponent);
+        }
+
+        public void setSharpness(float value) {
+            recordStatement(STATEMENT_SHARPNESS, 4);
+            mStatements.putFloat(value);
+            mTarget.setSharpness(value);
+        }
+
+        public void setNi(float opticalDensity) {
+            recordStatement(STATEMENT_NI, 4);
+            mStatements.putFloat(opticalDensity);
+            mTarget.setNi(opticalDensity);
+        }
+
+        public void setMapDecalDispBump(int type, String filename) {
+            recordStatement(STATEMENT_MAP, 4 + stringSize(filename));
+            mStatements.putInt(type);
+            putString(mStatements, filename);
+            mTarget.setMapDecalDispBump(type, filename);
+        }
+
+        public void setRefl(int type, String filename) {
+            recordStatement(STATEMENT_REFL, 4 + stringSize(filename));
+            mStatements.putInt(type);
+            putString(mStatements, filename);
+            mTarget.setRefl(type, filename);
+        }
+
+        public void doneParsingMaterial() {
+            recordStatement(STATEMENT_DONE_MATERIAL, 0);
+            mTarget.doneParsingMaterial();
+        }
+
+        public void doneParsingObj(String filename) {
+            mTarget.doneParsingObj(filename);
+        }
+    }
+}
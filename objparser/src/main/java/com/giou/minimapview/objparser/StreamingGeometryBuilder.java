@@ -0,0 +1,88 @@
+package com.giou.minimapview.objparser;
+
+/**
+ * Description: A GeometryBuilder that also publishes every batchSize vertices
+ * to a VertexStream, with the lines completed meanwhile, so the route can be
+ * drawn while the rest still parses. A line is published once its l element
+ * is parsed, never in part.
+ */
+public class StreamingGeometryBuilder extends GeometryBuilder {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private final VertexStream mStream;
+    private final int mBatchSize;
+
+    private float[] mBatch;
+    private int mBatchCount;
+    // The lines completed since the last batch, as VertexStream takes them.
+    private final IntArray mBatchLineStarts = new IntArray();
+    private final IntArray mBatchLineIndices = new IntArray();
+
+    public StreamingGeometryBuilder(VertexStream stream) {
+        this(stream, 0, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param expectedVertexCount   pre-size the buffer, see ObjectParser.countVertices()
+     * @param batchSize             vertices per published batch
+     */
+    public StreamingGeometryBuilder(VertexStream stream, int expectedVertexCount, int batchSize) {
+        super(expectedVertexCount);
+        mStream = stream;
+        mBatchSize = batchSize;
+        mBatch = new float[batchSize * 3];
+        mBatchLineStarts.add(0);
+    }
+
+    @Override
+    public void addVertexGeometric(float x, float y, float z) {
+        super.addVertexGeometric(x, y, z);
+
+        int offset = mBatchCount * 3;
+        mBatch[offset] = x;
+        mBatch[offset + 1] = y;
+        mBatch[offset + 2] = z;
+        if (++mBatchCount == mBatchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void addLine(int values[]) {
+        int lineCount = getLineCount();
+        super.addLine(values);
+        if (getLineCount() == lineCount) {
+            // Fewer than two vertices, dropped.
+            return;
+        }
+        int start = getLineStarts()[lineCount];
+        int end = getLineStarts()[lineCount + 1];
+        mBatchLineIndices.addAll(getLineIndices(), start, end - start);
+        mBatchLineStarts.add(mBatchLineIndices.size());
+        // Lines usually follow all the vertices, they are batched on their own then.
+        if (mBatchLineIndices.size() >= mBatchSize) {
+            flush();
+        }
+    }
+
+    // The stream keeps the published arrays, start new ones.
+    private void flush() {
+        int lineCount = mBatchLineStarts.size() - 1;
+        if (mBatchCount > 0 || lineCount > 0) {
+            mStream.publish(mBatch, mBatchCount, lineCount > 0 ? mBatchLineStarts.toArray() : null,
+                    lineCount > 0 ? mBatchLineIndices.toArray() : null, lineCount);
+            mBatch = new float[mBatchSize * 3];
+            mBatchCount = 0;
+            mBatchLineStarts.setSize(1);
+            mBatchLineIndices.clear();
+        }
+    }
+
+    @Override
+    public void doneParsingObj(String filename) {
+        super.doneParsingObj(filename);
+        flush();
+        mStream.finish();
+    }
+}
@@ -73,7 +73,6 @@ public class StringUtils {
         int count = startIndex;
         int itemStart = startIndex;
         int itemEnd = 0;
-        int itemLength = 0;
 
         while (count < listLength) {
             // Skip any leading whitespace
@@ -91,8 +90,7 @@ public class StringUtils {
                     break;
                 }
             }
-            itemLength = itemEnd - itemStart;
-            returnArray[returnArrayCount++] = Float.parseFloat(new String(listChars, itemStart, itemLength));
+            returnArray[returnArrayCount++] = NumberParser.parseFloat(listChars, itemStart, itemEnd);
             if (returnArrayCount >= numFloats) {
                 break;
             }
@@ -121,7 +119,6 @@ public class StringUtils {
         int count = startIndex;
         int itemStart = startIndex;
         int itemEnd = 0;
-        int itemLength = 0;
 
         while (count < listLength) {
             // Skip any leading whitespace
@@ -139,8 +136,7 @@ public class StringUtils {
                     break;
                 }
             }
-            itemLength = itemEnd - itemStart;
-            returnList.add(Integer.parseInt(new String(listChars, itemStart, itemLength)));
+            returnList.add(NumberParser.parseInt(listChars, itemStart, itemEnd));
 
             count = itemEnd;
         }
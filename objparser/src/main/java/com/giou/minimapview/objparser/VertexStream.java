@@ -0,0 +1,142 @@
+package com.giou.minimapview.objparser;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Description: Hands batches of parsed vertices, and the complete lines (l
+ * elements) among them, from the parsing thread to one consumer, usually the
+ * ui thread, while the parse is still running. Lines index the vertices of all
+ * batches so far, as GeometryBuilder does, and one line never spans two
+ * objects, so the consumer can draw them as the finished route does. A linked
+ * single-producer/single-consumer queue: publishing never blocks or waits for
+ * the consumer, and draining takes no lock.
+ */
+public class VertexStream {
+
+    /**
+     * Called on the producer thread when batches arrive and the consumer
+     * drained everything before, so one wakeup covers any number of batches.
+     */
+    public interface OnBatchesAvailableListener {
+        void onBatchesAvailable(VertexStream stream);
+    }
+
+    private static class Batch {
+        final float[] vertices;
+        final int vertexCount;
+        // Vertices of line l are lineIndices[lineStarts[l] .. lineStarts[l + 1]).
+        final int[] lineStarts;
+        final int[] lineIndices;
+        final int lineCount;
+        // Written by the producer only, once the batch is filled.
+        volatile Batch next;
+
+        Batch(float[] vertices, int vertexCount, int[] lineStarts, int[] lineIndices, int lineCount) {
+            this.vertices = vertices;
+            this.vertexCount = vertexCount;
+            this.lineStarts = lineStarts;
+            this.lineIndices = lineIndices;
+            this.lineCount = lineCount;
+        }
+    }
+
+    private final OnBatchesAvailableListener mListener;
+
+    // The last batch consumed, owned by the consumer.
+    private Batch mHead;
+    // The last batch published, owned by the producer.
+    private Batch mTail;
+
+    private volatile boolean mFinished;
+
+    // Set when a wakeup is pending, cleared by the consumer before it drains.
+    private final AtomicBoolean mSignalled = new AtomicBoolean();
+
+    public VertexStream(OnBatchesAvailableListener listener) {
+        mListener = listener;
+        mHead = new Batch(null, 0, null, null, 0);
+        mTail = mHead;
+    }
+
+    /**
+     * Producer side. The stream keeps vertices, it must not be modified afterwards.
+     * @param vertices      interleaved x,y,z
+     */
+    public void publish(float[] vertices, int vertexCount) {
+        publish(vertices, vertexCount, null, null, 0);
+    }
+
+    /**
+     * Producer side, vertices and the lines completed with them. The stream
+     * keeps the arrays, they must not be modified afterwards.
+     * @param vertices      interleaved x,y,z
+     * @param lineStarts    lineCount + 1 offsets into lineIndices, null if lineCount is 0
+     * @param lineIndices   0-based indices of vertices published so far, this batch's included
+     */
+    public void publish(float[] vertices, int vertexCount, int[] lineStarts, int[] lineIndices, int lineCount) {
+        Batch batch = new Batch(vertices, vertexCount, lineStarts, lineIndices, lineCount);
+        // The volatile write makes the batch contents visible to the consumer.
+        mTail.next = batch;
+        mTail = batch;
+        signal();
+    }
+
+    /**
+     * Producer side, no batches follow.
+     */
+    public void finish() {
+        mFinished = true;
+        signal();
+    }
+
+    private void signal() {
+        if (mListener != null && mSignalled.compareAndSet(false, true)) {
+            mListener.onBatchesAvailable(this);
+        }
+    }
+
+    /**
+     * Consumer side, append the vertices of every batch published so far.
+     * @param out   receives interleaved x,y,z
+     * @return the number of vertices appended
+     */
+    public int drainTo(FloatArray out) {
+        return drainTo(out, null, null);
+    }
+
+    /**
+     * Consumer side, append the vertices and lines of every batch published so far.
+     * @param out           receives interleaved x,y,z
+     * @param lineStarts    receives the end offset into lineIndices of every
+     *                      line, start it with 0; null to drop the lines
+     * @param lineIndices   receives the 0-based vertex indices of every line
+     * @return the number of vertices appended
+     */
+    public int drainTo(FloatArray out, IntArray lineStarts, IntArray lineIndices) {
+        mSignalled.set(false);
+
+        int vertexCount = 0;
+        Batch batch = mHead.next;
+        while (batch != null) {
+            out.addAll(batch.vertices, 0, batch.vertexCount * 3);
+            vertexCount += batch.vertexCount;
+            if (lineStarts != null && batch.lineCount > 0) {
+                int offset = lineIndices.size();
+                lineIndices.addAll(batch.lineIndices, 0, batch.lineStarts[batch.lineCount]);
+                for (int line = 1; line <= batch.lineCount; line++) {
+                    lineStarts.add(offset + batch.lineStarts[line]);
+                }
+            }
+            mHead = batch;
+            batch = batch.next;
+        }
+        return vertexCount;
+    }
+
+    /**
+     * Consumer side. Once true, a following drainTo() gets the last vertices and lines.
+     */
+    public boolean isFinished() {
+        return mFinished;
+    }
+}
@@ -0,0 +1,126 @@
+package com.giou.minimapview.objparser;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * An OBJ file with its MTL file, parsed into the material table and replayed
+ * from the route cache.
+ */
+public class MaterialParseTest {
+
+    private static final String OBJ = ""
+            + "mtllib route.mtl\n"
+            + "v 0 0 0\nv 1 0 0\nv 1 1 0\n"
+            + "usemtl climb\n"
+            + "l 1 2 3\n"
+            + "usemtl flat\n"
+            + "f 1 2 3\n"
+            + "l 3 1\n";
+
+    private static final String MTL = ""
+            + "# two materials\n"
+            + "newmtl climb\n"
+            + "Kd 1 0 0\n"
+            + "d 0.5\n"
+            + "Ns 10\n"
+            + "illum 2\n"
+            + "map_Kd climb.png\n"
+            + "\n"
+            + "newmtl flat\n"
+            + "Ka 0.1 0.1 0.1\n";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static void write(File file, String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.getBytes(Charset.forName("UTF-8")));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static GeometryBuilder parse(File obj, File cacheDir) throws Exception {
+        GeometryBuilder geometry = new GeometryBuilder();
+        ObjectParser parser = new ObjectParser(geometry);
+        parser.setCacheDir(cacheDir);
+        parser.parse(new FileSource(obj));
+        return geometry;
+    }
+
+    @Test
+    public void materialsAreReadFromTheMtlFile() throws Exception {
+        File obj = new File(mFolder.getRoot(), "route.obj");
+        write(obj, OBJ);
+        write(new File(mFolder.getRoot(), "route.mtl"), MTL);
+
+        GeometryBuilder geometry = parse(obj, null);
+        MaterialTable materials = geometry.getMaterials();
+        assertEquals(2, materials.size());
+
+        int climb = materials.getId("climb");
+        assertEquals(1f, materials.getColor(climb, BuilderInterface.MTL_KD, 0), 0f);
+        assertEquals(0f, materials.getColor(climb, BuilderInterface.MTL_KD, 1), 0f);
+        assertEquals(0.5f, materials.getDissolve(climb), 0f);
+        assertEquals(10f, materials.getShininess(climb), 0f);
+        assertEquals(2, materials.getIllum(climb));
+        assertEquals("climb.png", materials.getMap(climb, BuilderInterface.MTL_MAP_KD));
+        assertEquals(0x80FF0000, materials.getDiffuseArgb(climb));
+
+        // Only Ka is set, the rest keeps the defaults.
+        int flat = materials.getId("flat");
+        assertEquals(0.1f, materials.getColor(flat, BuilderInterface.MTL_KA, 2), 1e-6f);
+        assertEquals(0.8f, materials.getColor(flat, BuilderInterface.MTL_KD, 0), 0f);
+        assertEquals(1f, materials.getDissolve(flat), 0f);
+        assertEquals(60f, materials.getSharpness(flat), 0f);
+        assertEquals(1, materials.getIllum(flat));
+        assertNull(materials.getMap(flat, BuilderInterface.MTL_MAP_KD));
+        assertEquals(0xFFCCCCCC, materials.getDiffuseArgb(flat));
+
+        assertArrayEquals(new int[] {climb, flat}, Arrays.copyOf(geometry.getLineMaterials(), 2));
+        assertEquals(flat, geometry.getFaceMaterials()[0]);
+    }
+
+    @Test
+    public void cachedRouteKeepsItsMaterials() throws Exception {
+        File cacheDir = mFolder.newFolder("cache");
+        File obj = new File(mFolder.getRoot(), "route.obj");
+        File mtl = new File(mFolder.getRoot(), "route.mtl");
+        write(obj, OBJ);
+        write(mtl, MTL);
+
+        GeometryBuilder parsed = parse(obj, cacheDir);
+        assertEquals(1, cacheDir.list().length);
+        GeometryBuilder replayed = parse(obj, cacheDir);
+
+        MaterialTable materials = replayed.getMaterials();
+        assertEquals(parsed.getMaterials().size(), materials.size());
+        for (int material = 0; material < materials.size(); material++) {
+            assertEquals(parsed.getMaterials().getName(material), materials.getName(material));
+            assertEquals(parsed.getMaterials().getDiffuseArgb(material), materials.getDiffuseArgb(material));
+            assertEquals(parsed.getMaterials().getIllum(material), materials.getIllum(material));
+        }
+        int climb = materials.getId("climb");
+        int flat = materials.getId("flat");
+        assertEquals(climb, replayed.getLineMaterials()[0]);
+        assertEquals(flat, replayed.getLineMaterials()[1]);
+        assertEquals(flat, replayed.getFaceMaterials()[0]);
+
+        // A changed MTL file is read again, the OBJ file is the same.
+        write(mtl, MTL.replace("Kd 1 0 0", "Kd 0 0 1"));
+        assertTrue(mtl.setLastModified(mtl.lastModified() + 10000));
+        GeometryBuilder reparsed = parse(obj, cacheDir);
+        assertEquals(0x800000FF, reparsed.getMaterials().getDiffuseArgb(reparsed.getMaterials().getId("climb")));
+    }
+}
@@ -0,0 +1,237 @@
+package com.giou.minimapview.objparser;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * NumberParser must give exactly what Float.parseFloat and Integer.parseInt
+ * give, on every input.
+ */
+public class NumberParserTest {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final int CORPUS_SIZE = 200000;
+
+    /**
+     * Parse text from the middle of a larger array, so ranges are honoured.
+     */
+    private static void assertSameFloat(String text) {
+        byte[] bytes = ("x " + text + " y").getBytes(ISO_8859_1);
+        char[] chars = ("x " + text + " y").toCharArray();
+        int end = 2 + text.length();
+
+        Float expected;
+        try {
+            expected = Float.parseFloat(text);
+        } catch (NumberFormatException e) {
+            expected = null;
+        }
+
+        try {
+            float actual = NumberParser.parseFloat(bytes, 2, end);
+            assertNotNull("bytes \"" + text + "\" should not parse", expected);
+            assertEquals("bytes \"" + text + "\"",
+                    Float.floatToRawIntBits(expected), Float.floatToRawIntBits(actual));
+        } catch (NumberFormatException e) {
+            assertNull("bytes \"" + text + "\" should parse", expected);
+        }
+
+        try {
+            float actual = NumberParser.parseFloat(chars, 2, end);
+            assertNotNull("chars \"" + text + "\" should not parse", expected);
+            assertEquals("chars \"" + text + "\"",
+                    Float.floatToRawIntBits(expected), Float.floatToRawIntBits(actual));
+        } catch (NumberFormatException e) {
+            assertNull("chars \"" + text + "\" should parse", expected);
+        }
+    }
+
+    private static void assertSameInt(String text) {
+        byte[] bytes = ("/" + text + "/").getBytes(ISO_8859_1);
+        char[] chars = ("/" + text + "/").toCharArray();
+        int end = 1 + text.length();
+
+        Integer expected;
+        try {
+            expected = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            expected = null;
+        }
+
+        try {
+            int actual = NumberParser.parseInt(bytes, 1, end);
+            assertEquals("bytes \"" + text + "\"", expected, Integer.valueOf(actual));
+        } catch (NumberFormatException e) {
+            assertNull("bytes \"" + text + "\" should parse", expected);
+        }
+
+        try {
+            int actual = NumberParser.parseInt(chars, 1, end);
+            assertEquals("chars \"" + text + "\"", expected, Integer.valueOf(actual));
+        } catch (NumberFormatException e) {
+            assertNull("chars \"" + text + "\" should parse", expected);
+        }
+    }
+
+    private static String randomDigits(Random random, int count) {
+        StringBuilder digits = new StringBuilder(count);
+        for (int loopi = 0; loopi < count; loopi++) {
+            digits.append((char) ('0' + random.nextInt(10)));
+        }
+        return digits.toString();
+    }
+
+    private static String randomSign(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "-";
+            case 1:
+                return "+";
+            default:
+                return "";
+        }
+    }
+
+    @Test
+    public void randomFloatBits() {
+        Random random = new Random(1);
+        for (int loopi = 0; loopi < CORPUS_SIZE; loopi++) {
+            float value = Float.intBitsToFloat(random.nextInt());
+            assertSameFloat(Float.toString(value));
+            assertSameFloat(Double.toString(value));
+        }
+    }
+
+    @Test
+    public void exporterFormats() {
+        Random random = new Random(2);
+        for (int loopi = 0; loopi < CORPUS_SIZE; loopi++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 8);
+            assertSameFloat(String.format(Locale.US, "%." + random.nextInt(13) + "f", value));
+            assertSameFloat(String.format(Locale.US, "%." + random.nextInt(10) + "e", value));
+            assertSameFloat(String.format(Locale.US, "%." + random.nextInt(10) + "E", value));
+        }
+    }
+
+    @Test
+    public void randomDecimals() {
+        Random random = new Random(3);
+        for (int loopi = 0; loopi < CORPUS_SIZE; loopi++) {
+            String integer = randomDigits(random, random.nextInt(12));
+            String fraction = randomDigits(random, random.nextInt(20));
+            StringBuilder text = new StringBuilder(randomSign(random)).append(integer);
+            if (random.nextBoolean() || integer.isEmpty()) {
+                text.append('.').append(fraction);
+            }
+            if (random.nextInt(3) == 0) {
+                text.append(random.nextBoolean() ? 'e' : 'E').append(randomSign(random))
+                        .append(random.nextInt(random.nextBoolean() ? 30 : 60));
+            }
+            assertSameFloat(text.toString());
+        }
+    }
+
+    @Test
+    public void halfwayCases() {
+        Random random = new Random(4);
+        for (int loopi = 0; loopi < CORPUS_SIZE; loopi++) {
+            // Exact midpoints between neighbouring floats, and just either side.
+            float value = Float.intBitsToFloat(random.nextInt() & 0x7FFFFFFF);
+            if (Float.isNaN(value) || Float.isInfinite(value) || value == Float.MAX_VALUE) {
+                continue;
+            }
+            BigDecimal low = new BigDecimal(value);
+            BigDecimal high = new BigDecimal(Math.nextUp(value));
+            BigDecimal middle = low.add(high).divide(BigDecimal.valueOf(2));
+            BigDecimal nudge = middle.ulp();
+            assertSameFloat(middle.toString());
+            assertSameFloat(middle.add(nudge).toString());
+            assertSameFloat(middle.subtract(nudge).toString());
+            assertSameFloat(middle.toPlainString());
+
+            // Integers of 25 to 53 bits, the ones above 2^24 with a set lowest
+            // bit beyond float precision fall exactly between two floats.
+            long integer = (random.nextLong() >>> 11) >>> random.nextInt(29);
+            assertSameFloat(Long.toString(integer));
+            assertSameFloat(Long.toString(integer | 1L << 24 | 1L));
+        }
+        assertSameFloat("16777217");
+        assertSameFloat("16777219");
+        assertSameFloat("33554434");
+        assertSameFloat("1.6777217e7");
+        assertSameFloat("9007199254740993");
+    }
+
+    @Test
+    public void specialFloats() {
+        String[] texts = {
+                "0", "-0", "+0", "0.0", "-0.0", ".5", "-.5", "5.", "-5.", "00012.5000",
+                "1e22", "1e23", "1e-22", "1e-23", "3.4028235e38", "3.4028236e38", "1e39",
+                "1.4e-45", "7e-46", "1e-50", "1.17549435e-38", "0.000000000000000000000001",
+                "NaN", "-NaN", "Infinity", "-Infinity", "0x1.8p1", "1f", "1d", "1.5F",
+                "", "-", "+", ".", "-.", "e5", ".e5", "1e", "1e+", "1e-", "--1", "+-1",
+                "1.2.3", "1e5.5", "1 2", "12a", "1e99999999999", "1e-99999999999",
+        };
+        for (String text : texts) {
+            assertSameFloat(text);
+        }
+    }
+
+    @Test
+    public void randomInts() {
+        Random random = new Random(5);
+        for (int loopi = 0; loopi < CORPUS_SIZE; loopi++) {
+            int value = random.nextInt() >> random.nextInt(32);
+            assertSameInt(Integer.toString(value));
+            assertSameInt(randomSign(random) + randomDigits(random, random.nextInt(12)));
+            assertSameInt(Long.toString(random.nextLong() >> random.nextInt(64)));
+        }
+    }
+
+    @Test
+    public void charsBeyondLatin1() {
+        // Only the char entry points can see these, they skip the byte parsers.
+        String[] texts = {"\u0661\u0662", "-\u0661\u0662", "1\u0662", "\u0661.5", "1\u2009", "\u00b2"};
+        for (String text : texts) {
+            char[] chars = ("/" + text + "/").toCharArray();
+            int end = 1 + text.length();
+            try {
+                assertEquals(text, Integer.valueOf(Integer.parseInt(text)),
+                        Integer.valueOf(NumberParser.parseInt(chars, 1, end)));
+            } catch (NumberFormatException e) {
+                try {
+                    Integer.parseInt(text);
+                    fail("\"" + text + "\" should parse");
+                } catch (NumberFormatException expected) {
+                }
+            }
+            try {
+                NumberParser.parseFloat(chars, 1, end);
+                fail("\"" + text + "\" should not parse as a float");
+            } catch (NumberFormatException expected) {
+            }
+        }
+        // Longer than the scratch buffer the chars are narrowed into.
+        assertSameFloat("0.000000000000000000000000000000000000000000000000001234567");
+        assertSameInt("00000000000000000000000000000000000000000000000000000012345");
+    }
+
+    @Test
+    public void specialInts() {
+        String[] texts = {
+                "0", "-0", "+0", "000000000", "0000000001", "999999999", "1000000000",
+                "2147483647", "2147483648", "-2147483648", "-2147483649", "+2147483647",
+                "", "-", "+", "--1", "1-", "1.0", "1e3", " 1", "1 ", "a", "12345678a",
+        };
+        for (String text : texts) {
+            assertSameInt(text);
+        }
+    }
+}
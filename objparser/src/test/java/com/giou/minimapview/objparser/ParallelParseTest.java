@@ -0,0 +1,263 @@
+package com.giou.minimapview.objparser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parsing in parallel chunks must give the builder exactly the calls of a
+ * sequential parse.
+ */
+public class ParallelParseTest {
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        mExecutor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * A random route mixing every kind of line, with faces and lines using
+     * both absolute and negative relative indices.
+     */
+    private static byte[] randomObj(long seed, int vertexCount, String newline) {
+        Random random = new Random(seed);
+        StringBuilder obj = new StringBuilder();
+        obj.append("# random route").append(newline);
+        obj.append("mtllib route.mtl").append(newline);
+        int vertices = 0;
+        int textures = 0;
+        int normals = 0;
+        while (vertices < vertexCount) {
+            switch (random.nextInt(10)) {
+                case 0:
+                    obj.append("g Line").append(random.nextInt(100)).append(newline);
+                    break;
+                case 1:
+                    obj.append("vt ").append(random.nextFloat()).append(' ').append(random.nextFloat()).append(newline);
+                    textures++;
+                    break;
+                case 2:
+                    obj.append("vn 0 0 1").append(newline);
+                    normals++;
+                    break;
+                case 3:
+                    if (vertices >= 3 && textures > 0 && normals > 0) {
+                        obj.append("f ").append(vertices - 2).append('/').append(textures).append('/').append(normals)
+                                .append(" -2/-1/-1 ").append(vertices).append("//1").append(newline);
+                    }
+                    break;
+                case 4:
+                    if (vertices >= 4) {
+                        obj.append("l -4 -3 -2 -1").append(newline);
+                    }
+                    break;
+                case 5:
+                    obj.append("usemtl track").append(random.nextInt(3)).append(newline);
+                    break;
+                default:
+                    obj.append(String.format(Locale.US, "v %.5f %.5f %.5f",
+                            random.nextFloat() * 1000, random.nextFloat() * 1000, random.nextFloat())).append(newline);
+                    vertices++;
+                    break;
+            }
+        }
+        // No newline after the last line.
+        obj.append("f -3 -2 -1");
+        return obj.toString().getBytes(Charset.forName("US-ASCII"));
+    }
+
+    /**
+     * A builder writing every call it gets to out, one line per call.
+     */
+    private static BuilderInterface recorder(final StringBuilder out) {
+        return (BuilderInterface) Proxy.newProxyInstance(BuilderInterface.class.getClassLoader(),
+                new Class<?>[] {BuilderInterface.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        out.append(method.getName());
+                        if (args != null) {
+                            for (Object arg : args) {
+                                out.append(' ');
+                                if (arg instanceof int[]) {
+                                    out.append(Arrays.toString((int[]) arg));
+                                } else if (arg instanceof Object[]) {
+                                    out.append(Arrays.toString((Object[]) arg));
+                                } else {
+                                    out.append(arg);
+                                }
+                            }
+                        }
+                        out.append('\n');
+                        return null;
+                    }
+                });
+    }
+
+    private static String parse(ObjSource source, ExecutorService executor, int chunkSize) throws Exception {
+        StringBuilder calls = new StringBuilder();
+        ObjectParser parser = new ObjectParser(recorder(calls));
+        parser.setExecutor(executor);
+        parser.chunkSize = chunkSize;
+        parser.parse(source);
+        return calls.toString();
+    }
+
+    @Test
+    public void parallelMatchesSequential() throws Exception {
+        for (int seed = 0; seed < 5; seed++) {
+            String newline = seed % 2 == 0 ? "\n" : "\r\n";
+            ObjSource source = new ByteArraySource("random.obj", randomObj(seed, 20000, newline));
+
+            String sequential = parse(source, null, 1024);
+            String parallel = parse(source, mExecutor, 1024 + seed * 77);
+            assertEquals(sequential, parallel);
+        }
+    }
+
+    @Test
+    public void negativeIndicesResolveAcrossChunks() throws Exception {
+        ObjSource source = new ByteArraySource("random.obj", randomObj(42, 20000, "\n"));
+
+        GeometryBuilder sequential = new GeometryBuilder();
+        new ObjectParser(sequential).parse(source);
+
+        GeometryBuilder parallel = new GeometryBuilder();
+        ObjectParser parser = new ObjectParser(parallel);
+        parser.setExecutor(mExecutor);
+        parser.chunkSize = 512;
+        parser.parse(source);
+
+        assertEquals(sequential.getVertexCount(), parallel.getVertexCount());
+        assertTrue(sequential.getFaceCount() > 0);
+        assertEquals(sequential.getFaceCount(), parallel.getFaceCount());
+        assertArrayEquals(sequential.getFaceIndices(), parallel.getFaceIndices());
+    }
+
+    @Test
+    public void relativeIndicesOfLaterChunksResolveToAbsoluteVertices() throws Exception {
+        // Triangle k refers back to vertices 3k .. 3k + 2 only through negative
+        // indices, and its line to the first and last of them.
+        StringBuilder obj = new StringBuilder();
+        int triangles = 2000;
+        for (int k = 0; k < triangles; k++) {
+            obj.append("v ").append(k).append(" 0 0\n");
+            obj.append("v ").append(k).append(" 1 0\n");
+            obj.append("v ").append(k).append(" 2 0\n");
+            obj.append("f -3 -2 -1\n");
+            obj.append("l -1 -3\n");
+        }
+        ObjSource source = new ByteArraySource("relative.obj", obj.toString().getBytes(Charset.forName("US-ASCII")));
+
+        final AtomicInteger chunks = new AtomicInteger();
+        GeometryBuilder parallel = new GeometryBuilder();
+        ObjectParser parser = new ObjectParser(parallel);
+        parser.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                chunks.incrementAndGet();
+                mExecutor.execute(command);
+            }
+        });
+        parser.chunkSize = 256;
+        parser.parse(source);
+        assertTrue(chunks.get() > 100);
+
+        GeometryBuilder sequential = new GeometryBuilder();
+        new ObjectParser(sequential).parse(source);
+
+        assertEquals(triangles, parallel.getFaceCount());
+        assertEquals(triangles, parallel.getLineCount());
+        int[] faces = parallel.getFaceIndices();
+        int[] lines = parallel.getLineIndices();
+        float[] vertices = parallel.getVertices();
+        for (int k = 0; k < triangles; k++) {
+            assertEquals(3 * k, faces[3 * k]);
+            assertEquals(3 * k + 1, faces[3 * k + 1]);
+            assertEquals(3 * k + 2, faces[3 * k + 2]);
+            assertEquals(3 * k + 2, lines[2 * k]);
+            assertEquals(3 * k, lines[2 * k + 1]);
+            // The vertex each index lands on is the one of its own triangle.
+            assertEquals(k, vertices[faces[3 * k] * 3], 0f);
+            assertEquals(2f, vertices[faces[3 * k + 2] * 3 + 1], 0f);
+        }
+        assertArrayEquals(Arrays.copyOf(sequential.getFaceIndices(), 3 * triangles),
+                Arrays.copyOf(faces, 3 * triangles));
+        assertArrayEquals(Arrays.copyOf(sequential.getLineIndices(), 2 * triangles),
+                Arrays.copyOf(lines, 2 * triangles));
+    }
+
+    @Test
+    public void smallSourcesAreParsedSequentially() throws Exception {
+        final AtomicInteger executed = new AtomicInteger();
+        ExecutorService counting = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>()) {
+            @Override
+            public void execute(Runnable command) {
+                executed.incrementAndGet();
+                super.execute(command);
+            }
+        };
+        try {
+            byte[] data = randomObj(7, 100, "\n");
+            String calls = parse(new ByteArraySource("small.obj", data), counting, data.length);
+            assertEquals(0, executed.get());
+            assertEquals(parse(new ByteArraySource("small.obj", data), null, data.length), calls);
+        } finally {
+            counting.shutdownNow();
+        }
+    }
+
+    @Test
+    public void parseOnItsOwnOneThreadPoolCompletes() throws Exception {
+        final ObjSource source = new ByteArraySource("random.obj", randomObj(7, 20000, "\n"));
+        final ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            // Every chunk queues behind the parse itself.
+            Future<String> parallel = single.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return parse(source, single, 1024);
+                }
+            });
+            assertEquals(parse(source, null, 1024), parallel.get(10, TimeUnit.SECONDS));
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test(expected = InterruptedIOException.class)
+    public void cancelStopsParallelParse() throws Exception {
+        ObjectParser parser = new ObjectParser(new GeometryBuilder());
+        parser.setExecutor(mExecutor);
+        parser.chunkSize = 1024;
+        parser.cancel();
+        parser.parse(new ByteArraySource("random.obj", randomObj(3, 20000, "\n")));
+    }
+}
@@ -0,0 +1,141 @@
+package com.giou.minimapview.objparser;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * A route replayed from its cache file must make the same builder calls, with
+ * the same arguments and in the same order, as parsing it did.
+ */
+public class RouteCacheTest {
+
+    // Every statement the recorder keeps, with vertices between the elements
+    // and relative indices reaching back across them.
+    private static final String OBJ = ""
+            + "mtllib route.mtl\n"
+            + "maplib a.map b.map\n"
+            + "v 0 0 0\nv 1 0 0\nv 1 1 0\n"
+            + "vt 0 0\nvt 1 0\nvt 1 1\n"
+            + "vn 0 0 1\n"
+            + "o course\n"
+            + "g start finish\n"
+            + "s 1\n"
+            + "usemtl climb\n"
+            + "usemap a.map\n"
+            + "f 1/1/1 2/2/1 3/3/1\n"
+            + "l -3 -2 -1\n"
+            + "v 2 1 0\nv 2 2 0\n"
+            + "f -3/-3/-1 -2/-2/-1 -1/-1/-1\n"
+            + "p -1 1\n"
+            + "s off\n"
+            + "usemap off\n"
+            + "g\n"
+            + "v 3 3 0\n"
+            + "l 5 -1\n";
+
+    private static final String MTL = ""
+            + "newmtl climb\n"
+            + "Kd 1 0 0\n"
+            + "d 0.5\n"
+            + "map_Kd climb.png\n";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static void write(File file, String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.getBytes(Charset.forName("UTF-8")));
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * A builder logging every call it gets with its arguments.
+     */
+    private static BuilderInterface recorder(final List<String> calls) {
+        return (BuilderInterface) Proxy.newProxyInstance(BuilderInterface.class.getClassLoader(),
+                new Class<?>[] {BuilderInterface.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        calls.add(method.getName() + (args == null ? "" : Arrays.deepToString(args)));
+                        return null;
+                    }
+                });
+    }
+
+    private static List<String> parse(File obj, File cacheDir) throws Exception {
+        List<String> calls = new ArrayList<>();
+        ObjectParser parser = new ObjectParser(recorder(calls));
+        parser.setCacheDir(cacheDir);
+        parser.parse(new FileSource(obj));
+        return calls;
+    }
+
+    @Test
+    public void replayMakesTheParsedCalls() throws Exception {
+        File cacheDir = mFolder.newFolder("cache");
+        File obj = new File(mFolder.getRoot(), "route.obj");
+        write(obj, OBJ);
+        write(new File(mFolder.getRoot(), "route.mtl"), MTL);
+
+        List<String> parsed = parse(obj, cacheDir);
+        assertEquals(1, cacheDir.list().length);
+        FileSource source = new FileSource(obj);
+        RouteCache cache = new RouteCache(cacheDir, source.getName(), source.getLength(), source.getStamp());
+        assertTrue(cache.replay(recorder(new ArrayList<String>()), source));
+        List<String> replayed = parse(obj, cacheDir);
+
+        assertEquals(parsed, replayed);
+        // Relative indices are passed on as they are, the order keeps them valid.
+        assertTrue(replayed.contains("addFace[[-3, -3, -1, -2, -2, -1, -1, -1, -1]]"));
+        assertTrue(replayed.contains("addMapLib[[a.map, b.map]]"));
+        assertTrue(replayed.contains("setCurrentSmoothingGroup[0]"));
+        assertTrue(replayed.contains("setCurrentUseMap[off]"));
+        assertTrue(replayed.contains("setCurrentGroupNames[null]"));
+        int lastVertex = replayed.indexOf("addVertexGeometric[3.0, 3.0, 0.0]");
+        assertTrue(replayed.get(lastVertex + 1).startsWith("addLine[[5, "));
+    }
+
+    @Test
+    public void staleSizeOrStampIsAMiss() throws Exception {
+        File cacheDir = mFolder.newFolder("cache");
+        File obj = new File(mFolder.getRoot(), "route.obj");
+        write(obj, OBJ);
+        parse(obj, cacheDir);
+
+        FileSource source = new FileSource(obj);
+        List<String> calls = new ArrayList<>();
+        RouteCache current = new RouteCache(cacheDir, source.getName(), source.getLength(), source.getStamp());
+        RouteCache resized = new RouteCache(cacheDir, source.getName(), source.getLength() + 1, source.getStamp());
+        RouteCache restamped = new RouteCache(cacheDir, source.getName(), source.getLength(), source.getStamp() + 1);
+        assertFalse(resized.replay(recorder(calls), source));
+        assertFalse(restamped.replay(recorder(calls), source));
+        assertEquals(-1, resized.readVertexCount());
+        assertTrue(calls.isEmpty());
+        assertTrue(current.replay(recorder(calls), source));
+        assertFalse(calls.isEmpty());
+
+        // The same size written later is parsed again, not replayed.
+        write(obj, OBJ.replace("v 3 3 0", "v 4 4 0"));
+        assertTrue(obj.setLastModified(obj.lastModified() + 10000));
+        List<String> reparsed = parse(obj, cacheDir);
+        assertTrue(reparsed.contains("addVertexGeometric[4.0, 4.0, 0.0]"));
+        assertEquals(reparsed, parse(obj, cacheDir));
+    }
+}
@@ -0,0 +1,170 @@
+package com.giou.minimapview.objparser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keywords are matched whole, and lines the parser doesn't know are counted
+ * and only logged up to a limit.
+ */
+public class UnknownLineTest {
+
+    private final Logger mLog = Logger.getLogger(ObjectParser.class.getName());
+    private final List<String> mWarnings = new ArrayList<>();
+    private final Handler mHandler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getLevel() == Level.WARNING) {
+                mWarnings.add(record.getMessage());
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mLog.addHandler(mHandler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mLog.removeHandler(mHandler);
+    }
+
+    /**
+     * A builder collecting the name of every call it gets.
+     */
+    private static BuilderInterface recorder(final List<String> calls) {
+        return (BuilderInterface) Proxy.newProxyInstance(BuilderInterface.class.getClassLoader(),
+                new Class<?>[] {BuilderInterface.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        calls.add(method.getName());
+                        return null;
+                    }
+                });
+    }
+
+    private static ObjSource source(String obj) {
+        return new ByteArraySource("route.obj", obj.getBytes(Charset.forName("US-ASCII")));
+    }
+
+    @Test
+    public void keywordsAreMatchedWhole() throws Exception {
+        List<String> calls = new ArrayList<>();
+        ObjectParser parser = new ObjectParser(recorder(calls));
+        parser.parse(source(""
+                + "v 0 0 0\n"
+                + "vp 0.5 0.5\n"
+                + "sharpness 2\n"
+                + "usemtlx climb\n"
+                + "s 1\n"
+                + "usemtl climb\n"));
+
+        // Before, vp was a vertex, sharpness a smoothing group and usemtlx a usemtl.
+        assertEquals(1, count(calls, "addVertexGeometric"));
+        assertEquals(1, count(calls, "setCurrentSmoothingGroup"));
+        assertEquals(1, count(calls, "setCurrentUseMaterial"));
+        assertEquals(3, parser.getUnknownLineCount());
+        assertEquals(3, mWarnings.size());
+        assertTrue(mWarnings.get(0), mWarnings.get(0).startsWith("line 1 unknown line |vp 0.5 0.5|"));
+    }
+
+    @Test
+    public void onlyTheFirstUnknownLinesAreLogged() throws Exception {
+        StringBuilder obj = new StringBuilder();
+        for (int loopi = 0; loopi < 25; loopi++) {
+            obj.append("curv 0 1 ").append(loopi).append('\n');
+        }
+        ObjectParser parser = new ObjectParser(new GeometryBuilder());
+        parser.parse(source(obj.toString()));
+
+        assertEquals(25, parser.getUnknownLineCount());
+        // Ten lines, then one summary.
+        assertEquals(11, mWarnings.size());
+        assertTrue(mWarnings.get(10), mWarnings.get(10).startsWith("Skipped 25 unknown lines"));
+
+        // Counted per parse.
+        mWarnings.clear();
+        parser.parse(source("v 0 0 0\n"));
+        assertEquals(0, parser.getUnknownLineCount());
+        assertTrue(mWarnings.isEmpty());
+    }
+
+    @Test
+    public void chunkLinesSayWhichChunk() throws Exception {
+        StringBuilder obj = new StringBuilder();
+        for (int loopi = 0; loopi < 100; loopi++) {
+            obj.append("v 0 0 ").append(loopi).append('\n');
+        }
+        int unknownAt = obj.length();
+        obj.append("vp 0.5\n");
+
+        ObjectParser parser = new ObjectParser(new GeometryBuilder());
+        parser.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        parser.chunkSize = 64;
+        parser.parse(source(obj.toString()));
+
+        assertEquals(1, parser.getUnknownLineCount());
+        String warning = mWarnings.get(0);
+        assertTrue(warning, warning.contains(" of the chunk at byte "));
+        // The chunk starts at most one chunk before the line.
+        int chunkStart = Integer.parseInt(warning.replaceAll(".* of the chunk at byte (\\d+) .*", "$1"));
+        assertTrue(warning, chunkStart <= unknownAt && unknownAt - chunkStart < 64 + 16);
+    }
+
+    @Test
+    public void vertexCountSeesTheLinesTheParserDoes() throws Exception {
+        ObjSource source = source(""
+                + "\fv 1 2 3\n"
+                + "\tv 1 2 3\r\n"
+                + "\u000bv\f1 2 3\n"
+                + " vt 0 0\n"
+                + "vp 0.5\n"
+                + "#v 1 2 3\n");
+        GeometryBuilder geometry = new GeometryBuilder();
+        ObjectParser parser = new ObjectParser(geometry);
+        int counted = parser.countVertices(source);
+        parser.parse(source);
+
+        assertEquals(3, geometry.getVertexCount());
+        assertEquals(geometry.getVertexCount(), counted);
+    }
+
+    private static int count(List<String> calls, String name) {
+        int count = 0;
+        for (String call : calls) {
+            if (call.equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,160 @@
+package com.giou.minimapview.objparser;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Batches published on one thread must reach the consumer complete and in order.
+ */
+public class VertexStreamTest {
+
+    private static byte[] route(int vertexCount) {
+        StringBuilder obj = new StringBuilder();
+        for (int loopi = 0; loopi < vertexCount; loopi++) {
+            obj.append(String.format(Locale.US, "v %d.5 %d.25 0", loopi, -loopi)).append('\n');
+        }
+        return obj.toString().getBytes(Charset.forName("US-ASCII"));
+    }
+
+    @Test
+    public void streamedVerticesMatchBuilder() throws Exception {
+        final AtomicInteger wakeups = new AtomicInteger();
+        final VertexStream stream = new VertexStream(new VertexStream.OnBatchesAvailableListener() {
+            @Override
+            public void onBatchesAvailable(VertexStream stream) {
+                wakeups.incrementAndGet();
+            }
+        });
+        final StreamingGeometryBuilder builder = new StreamingGeometryBuilder(stream, 0, 100);
+        final Exception[] failure = new Exception[1];
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new ObjectParser(builder).parse(new ByteArraySource("route.obj", route(100050)));
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        producer.start();
+
+        // Drain while the parse runs, as the ui thread would.
+        FloatArray streamed = new FloatArray();
+        int drains = 0;
+        boolean finished;
+        do {
+            finished = stream.isFinished();
+            stream.drainTo(streamed);
+            drains++;
+        } while (!finished);
+        producer.join();
+
+        assertNull(failure[0]);
+        assertTrue(drains > 0);
+        assertTrue(wakeups.get() > 0);
+        assertEquals(100050, builder.getVertexCount());
+        assertEquals(builder.getVertexCount() * 3, streamed.size());
+        for (int loopi = 0; loopi < streamed.size(); loopi++) {
+            assertEquals(builder.getVertices()[loopi], streamed.get(loopi), 0f);
+        }
+        assertEquals(0, stream.drainTo(streamed));
+    }
+
+    @Test
+    public void streamedLinesMatchBuilder() throws Exception {
+        // Two objects, each a few vertices and then its lines, one of them
+        // reaching back with relative indices.
+        StringBuilder obj = new StringBuilder();
+        for (int object = 0; object < 2; object++) {
+            obj.append("o part").append(object).append('\n');
+            for (int loopi = 0; loopi < 250; loopi++) {
+                obj.append(String.format(Locale.US, "v %d %d 0", loopi, object)).append('\n');
+            }
+            for (int loopi = 0; loopi < 50; loopi++) {
+                obj.append("l -").append(250 - 5 * loopi).append(" -").append(249 - 5 * loopi)
+                        .append(" -").append(248 - 5 * loopi).append('\n');
+            }
+            obj.append("l 1\n");
+        }
+        VertexStream stream = new VertexStream(null);
+        StreamingGeometryBuilder builder = new StreamingGeometryBuilder(stream, 0, 64);
+
+        FloatArray vertices = new FloatArray();
+        IntArray lineStarts = new IntArray();
+        lineStarts.add(0);
+        IntArray lineIndices = new IntArray();
+        new ObjectParser(builder).parse(new ByteArraySource("route.obj",
+                obj.toString().getBytes(Charset.forName("US-ASCII"))));
+        assertTrue(stream.isFinished());
+        stream.drainTo(vertices, lineStarts, lineIndices);
+
+        // The line of one vertex is dropped, as by the builder.
+        assertEquals(100, builder.getLineCount());
+        assertEquals(builder.getLineCount() + 1, lineStarts.size());
+        assertArrayEquals(Arrays.copyOf(builder.getLineStarts(), lineStarts.size()), lineStarts.toArray());
+        assertArrayEquals(Arrays.copyOf(builder.getLineIndices(), lineIndices.size()), lineIndices.toArray());
+        // Lines of the second object index its own vertices.
+        assertEquals(250 + 245, lineIndices.get(lineStarts.get(99)));
+        assertEquals(builder.getVertexCount() * 3, vertices.size());
+    }
+
+    @Test
+    public void linesArePublishedWhole() {
+        VertexStream stream = new VertexStream(null);
+        StreamingGeometryBuilder builder = new StreamingGeometryBuilder(stream, 0, 4);
+        for (int loopi = 0; loopi < 4; loopi++) {
+            builder.addVertexGeometric(loopi, 0, 0);
+        }
+        FloatArray vertices = new FloatArray();
+        IntArray lineStarts = new IntArray();
+        lineStarts.add(0);
+        IntArray lineIndices = new IntArray();
+        assertEquals(4, stream.drainTo(vertices, lineStarts, lineIndices));
+        assertEquals(1, lineStarts.size());
+
+        // v/vt tuples, as the parser passes lines.
+        builder.addLine(new int[] {1, BuilderInterface.EMPTY_VERTEX_VALUE, 2, BuilderInterface.EMPTY_VERTEX_VALUE,
+                3, BuilderInterface.EMPTY_VERTEX_VALUE, 4, BuilderInterface.EMPTY_VERTEX_VALUE});
+        assertEquals(0, stream.drainTo(vertices, lineStarts, lineIndices));
+        assertArrayEquals(new int[] {0, 4}, lineStarts.toArray());
+        assertArrayEquals(new int[] {0, 1, 2, 3}, lineIndices.toArray());
+    }
+
+    @Test
+    public void wakeupsAreCoalesced() {
+        final AtomicInteger wakeups = new AtomicInteger();
+        VertexStream stream = new VertexStream(new VertexStream.OnBatchesAvailableListener() {
+            @Override
+            public void onBatchesAvailable(VertexStream stream) {
+                wakeups.incrementAndGet();
+            }
+        });
+
+        stream.publish(new float[] {1, 2, 3}, 1);
+        stream.publish(new float[] {4, 5, 6, 7, 8, 9}, 2);
+        assertEquals(1, wakeups.get());
+
+        FloatArray out = new FloatArray();
+        assertEquals(3, stream.drainTo(out));
+        assertEquals(9, out.size());
+        assertEquals(9f, out.get(8), 0f);
+
+        stream.publish(new float[] {10, 11, 12, 0, 0, 0}, 1);
+        assertEquals(2, wakeups.get());
+        assertEquals(1, stream.drainTo(out));
+        assertEquals(12, out.size());
+        assertFalse(stream.isFinished());
+
+        stream.finish();
+        assertTrue(stream.isFinished());
+        assertEquals(0, stream.drainTo(out));
+    }
+}